@@ -0,0 +1,44 @@
+#!/usr/bin/env bash
+# Load test: the regular (blocking) GET /products against the reactive GET /reactive/products,
+# at increasing concurrency. Prints hey's summary (requests/sec and latency percentiles) per run.
+#
+# Usage:
+#   mvn spring-boot:run                                  # in another terminal
+#   scripts/reactive-load-test.sh [requests] [levels]    # default: 20000 requests at 50 100 500 1000
+#
+# Requires hey (https://github.com/rakyll/hey) and the MySQL database from docker-compose,
+# with some products loaded (e.g. through POST /products/import).
+
+set -euo pipefail
+
+REQUESTS="${1:-20000}"
+LEVELS="${2:-50 100 500 1000}"
+PORT="${PORT:-4500}"
+BASE="http://localhost:${PORT}"
+
+if ! command -v hey > /dev/null; then
+    echo "hey is not installed: go install github.com/rakyll/hey@latest" >&2
+    exit 1
+fi
+if ! curl -sf -o /dev/null "$BASE/products"; then
+    echo "the application is not answering on $BASE" >&2
+    exit 1
+fi
+
+# Prints the lines of hey's report that matter for the comparison
+run() {
+    local name="$1" concurrency="$2"
+    shift 2
+    echo "== $name, $concurrency concurrent clients"
+    hey -n "$REQUESTS" -c "$concurrency" "$@" \
+        | grep -E 'Requests/sec|Average|Slowest|(50|95|99)% in|\[[0-9]{3}\]|Error'
+}
+
+for concurrency in $LEVELS; do
+    # Warm-up, so the JIT and both pools are ready before measuring
+    hey -n 1000 -c 50 "$BASE/products" > /dev/null
+    hey -n 1000 -c 50 -H "Accept: application/json" "$BASE/reactive/products" > /dev/null
+
+    run "blocking /products" "$concurrency" "$BASE/products"
+    run "reactive /reactive/products" "$concurrency" -H "Accept: application/json" "$BASE/reactive/products"
+done
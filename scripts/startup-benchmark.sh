@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Startup-time benchmark: measures the time from launching the JVM to the first
+# successful GET /products, for the regular jar and for the fast-startup build.
+#
+# Usage:
+#   mvn -Pproduction -DskipTests package      # builds both the jar and target/application (AOT + CDS)
+#   scripts/startup-benchmark.sh [runs]       # default: 5 runs per mode
+#
+# Requires the MySQL database from docker-compose to be running.
+
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${PORT:-4500}"
+URL="http://localhost:${PORT}/products"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+JAR="target/gestionpedidos-0.0.1-SNAPSHOT.jar"
+APP_DIR="target/application"
+
+if [[ ! -f "$JAR" || ! -f "$APP_DIR/application.jsa" ]]; then
+    echo "Build first with: mvn -Pproduction -DskipTests package" >&2
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+# Launches the given command and prints the milliseconds until GET /products answers 200
+measure() {
+    local start pid elapsed
+    start=$(now_ms)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "application exited before answering" >&2
+            return 1
+        fi
+        sleep 0.02
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$elapsed"
+}
+
+run_mode() {
+    local name="$1"
+    shift
+    local total=0 best=0 ms
+    for ((i = 1; i <= RUNS; i++)); do
+        ms=$(measure "$@")
+        total=$((total + ms))
+        if ((best == 0 || ms < best)); then
+            best=$ms
+        fi
+        echo "  $name run $i: ${ms} ms"
+    done
+    echo "$name: average $((total / RUNS)) ms, best ${best} ms"
+}
+
+echo "Time to first successful GET /products ($RUNS runs per mode)"
+run_mode "baseline (reflection)" \
+    "$JAVA" -jar "$JAR"
+run_mode "fast startup (prod, AOT + AppCDS + Flyway)" \
+    "$JAVA" -XX:SharedArchiveFile="$APP_DIR/application.jsa" -Dspring.aot.enabled=true \
+    -jar "$APP_DIR/gestionpedidos-0.0.1-SNAPSHOT.jar" --spring.profiles.active=prod
@@ -0,0 +1,21 @@
+package com.restaurante.gestionpedidos.config;
+
+import com.fasterxml.jackson.databind.Module;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the {@link EntityJsonModule} serializers on the application's ObjectMapper
+ * (Spring Boot installs every Module bean). Turn them off with gestionpedidos.json.precompiled=false
+ * to go back to Jackson's bean serializers.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestionpedidos.json.precompiled", havingValue = "true", matchIfMissing = true)
+public class EntityJsonConfig {
+
+    @Bean
+    public Module entityJsonModule() {
+        return new EntityJsonModule();
+    }
+}
@@ -0,0 +1,256 @@
+package com.restaurante.gestionpedidos.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import com.restaurante.gestionpedidos.models.Category;
+import com.restaurante.gestionpedidos.models.Customer;
+import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.models.Product;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Hand-written Jackson serializers for the entities the listings return in bulk: customers with their
+ * orders, orders, and products with their category.
+ *
+ * They write the same JSON as the annotations on the entities would make Jackson's bean serializer write
+ * (same properties, same order, nulls included, the customer of an order left out as its back reference),
+ * but straight to the generator: no introspection, no per-property lookups and the property names
+ * pre-encoded. Dates in Jackson's default format (ISO-8601 in UTC, Spring Boot's default too) are written
+ * from their epoch millis; any other date configuration goes through the provider.
+ *
+ * Any change to the JSON of these entities must be made here too; EntityJsonModuleTest compares both outputs.
+ */
+public class EntityJsonModule extends SimpleModule {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString PHONE = new SerializedString("phone");
+    private static final SerializableString LOCATION = new SerializedString("location");
+    private static final SerializableString ORDERS = new SerializedString("orders");
+    private static final SerializableString ORDER_DATE = new SerializedString("orderDate");
+    private static final SerializableString VERSION = new SerializedString("version");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString STOCK = new SerializedString("stock");
+    private static final SerializableString STOCK_SHARDS = new SerializedString("stockShards");
+    private static final SerializableString CATEGORY = new SerializedString("category");
+    private static final SerializableString PRICE = new SerializedString("price");
+
+    public EntityJsonModule() {
+        super("EntityJsonModule");
+        addSerializer(Category.class, CategorySerializer.INSTANCE);
+        addSerializer(Product.class, ProductSerializer.INSTANCE);
+        addSerializer(Order.class, OrderSerializer.INSTANCE);
+        addSerializer(Customer.class, CustomerSerializer.INSTANCE);
+    }
+
+    static final class CategorySerializer extends StdSerializer<Category> {
+
+        static final CategorySerializer INSTANCE = new CategorySerializer();
+
+        private CategorySerializer() {
+            super(Category.class);
+        }
+
+        @Override
+        public void serialize(Category category, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(category);
+            writeNumber(gen, ID, category.getId());
+            writeString(gen, NAME, category.getName());
+            writeString(gen, LOCATION, category.getLocation());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class ProductSerializer extends StdSerializer<Product> {
+
+        static final ProductSerializer INSTANCE = new ProductSerializer();
+
+        private ProductSerializer() {
+            super(Product.class);
+        }
+
+        @Override
+        public void serialize(Product product, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(product);
+            writeNumber(gen, ID, product.getId());
+            writeString(gen, NAME, product.getName());
+            writeString(gen, DESCRIPTION, product.getDescription());
+            writeNumber(gen, STOCK, product.getStock());
+            writeNumber(gen, STOCK_SHARDS, product.getStockShards());
+            writeString(gen, LOCATION, product.getLocation());
+            gen.writeFieldName(CATEGORY);
+            Category category = product.getCategory();
+            if (category == null) {
+                gen.writeNull();
+            } else {
+                CategorySerializer.INSTANCE.serialize(category, gen, provider);
+            }
+            // The price has no field of its own (it is stored in cents), so Jackson puts it last
+            gen.writeFieldName(PRICE);
+            Long priceCents = product.getPriceCents();
+            if (priceCents == null) {
+                gen.writeNull();
+            } else {
+                writeCents(priceCents, gen);
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    static final class OrderSerializer extends StdSerializer<Order> {
+
+        static final OrderSerializer INSTANCE = new OrderSerializer();
+
+        private OrderSerializer() {
+            super(Order.class);
+        }
+
+        // The customer is the back reference of Customer.orders and is never written
+        @Override
+        public void serialize(Order order, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(order);
+            writeNumber(gen, ID, order.getId());
+            gen.writeFieldName(ORDER_DATE);
+            Date orderDate = order.getOrderDate();
+            if (orderDate == null) {
+                gen.writeNull();
+            } else {
+                writeDate(orderDate, gen, provider);
+            }
+            writeString(gen, LOCATION, order.getLocation());
+            writeNumber(gen, VERSION, order.getVersion());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class CustomerSerializer extends StdSerializer<Customer> {
+
+        static final CustomerSerializer INSTANCE = new CustomerSerializer();
+
+        private CustomerSerializer() {
+            super(Customer.class);
+        }
+
+        @Override
+        public void serialize(Customer customer, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(customer);
+            writeNumber(gen, ID, customer.getId());
+            writeString(gen, NAME, customer.getName());
+            writeString(gen, EMAIL, customer.getEmail());
+            writeString(gen, PHONE, customer.getPhone());
+            writeString(gen, LOCATION, customer.getLocation());
+            gen.writeFieldName(ORDERS);
+            List<Order> orders = customer.getOrders();
+            if (orders == null) {
+                gen.writeNull();
+            } else {
+                gen.writeStartArray(orders, orders.size());
+                for (Order order : orders) {
+                    if (order == null) {
+                        gen.writeNull();
+                    } else {
+                        OrderSerializer.INSTANCE.serialize(order, gen, provider);
+                    }
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    // Same characters as the BigDecimal of Money.toDecimal (always two decimals, never an exponent), without creating it
+    private static void writeCents(long cents, JsonGenerator gen) throws IOException {
+        char[] text = new char[22];
+        int start = text.length;
+        long units = Math.abs(cents / 100);
+        int decimals = (int) Math.abs(cents % 100);
+        text[--start] = (char) ('0' + decimals % 10);
+        text[--start] = (char) ('0' + decimals / 10);
+        text[--start] = '.';
+        do {
+            text[--start] = (char) ('0' + units % 10);
+            units /= 10;
+        } while (units > 0);
+        if (cents < 0) {
+            text[--start] = '-';
+        }
+        gen.writeNumber(text, start, text.length - start);
+    }
+
+    // Same characters as StdDateFormat, e.g. 2025-03-01T12:00:00.123+00:00, without a Calendar or a String
+    private static void writeDate(Date date, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                || provider.getConfig().getDateFormat() != StdDateFormat.instance) {
+            provider.defaultSerializeDateValue(date, gen);
+            return;
+        }
+        long millis = date.getTime();
+        LocalDateTime utc = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), 0, ZoneOffset.UTC);
+        if (utc.getYear() < 0 || utc.getYear() > 9999) {
+            provider.defaultSerializeDateValue(date, gen);
+            return;
+        }
+        char[] text = new char[29];
+        digits(text, 0, utc.getYear(), 4);
+        text[4] = '-';
+        digits(text, 5, utc.getMonthValue(), 2);
+        text[7] = '-';
+        digits(text, 8, utc.getDayOfMonth(), 2);
+        text[10] = 'T';
+        digits(text, 11, utc.getHour(), 2);
+        text[13] = ':';
+        digits(text, 14, utc.getMinute(), 2);
+        text[16] = ':';
+        digits(text, 17, utc.getSecond(), 2);
+        text[19] = '.';
+        digits(text, 20, (int) Math.floorMod(millis, 1000), 3);
+        "+00:00".getChars(0, 6, text, 23);
+        gen.writeString(text, 0, text.length);
+    }
+
+    private static void digits(char[] text, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void writeString(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, SerializableString name, Long value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.longValue());
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, SerializableString name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.intValue());
+        }
+    }
+}
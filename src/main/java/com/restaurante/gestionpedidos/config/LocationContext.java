@@ -0,0 +1,85 @@
+package com.restaurante.gestionpedidos.config;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * The restaurant location (branch) the current thread works for.
+ *
+ * The {@link LocationRoutingDataSource} opens every new connection on that location's database;
+ * threads without a location (startup, scheduled work, requests without the X-Location header)
+ * use the main one. A connection keeps the location it was opened for, so the location must be
+ * chosen before a transaction starts, never inside one.
+ */
+public final class LocationContext {
+
+    /**
+     * The location served by spring.datasource.
+     */
+    public static final String MAIN = "main";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private LocationContext() {
+    }
+
+    /**
+     * Gets the location of the current thread.
+     *
+     * @return The location key, {@link #MAIN} if none was set.
+     */
+    public static String current() {
+        String location = CURRENT.get();
+        return location != null ? location : MAIN;
+    }
+
+    /**
+     * Runs an action against one location and restores the previous location afterwards.
+     *
+     * @param location The location key.
+     * @param action   The action, typically a call to a transactional service.
+     * @return The result of the action.
+     * @throws IllegalStateException If called inside a transaction bound to another location.
+     */
+    public static <T> T call(String location, Supplier<T> action) {
+        String previous = enter(location);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Runs an action against one location and restores the previous location afterwards.
+     *
+     * @param location The location key.
+     * @param action   The action.
+     */
+    public static void run(String location, Runnable action) {
+        call(location, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Sets the location, returning the previous one for restore()
+    static String enter(String location) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && !location.equals(current())) {
+            throw new IllegalStateException("Cannot switch to location '" + location + "' inside a transaction on '"
+                    + current() + "'");
+        }
+        String previous = CURRENT.get();
+        CURRENT.set(location);
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.restaurante.gestionpedidos.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.*;
+
+/**
+ * One database per restaurant location, behind a single {@link LocationRoutingDataSource}.
+ *
+ * The main location uses spring.datasource; every other location is declared with its own
+ * connection properties, e.g. gestionpedidos.locations.north.url, username and password
+ * (the same keys as spring.datasource). Each location gets its own connection pool, created
+ * lazily on its first query. Flyway creates and migrates the schema of every location at startup.
+ *
+ * A transaction only takes a pooled connection when it runs its first statement, so read-only
+ * transactions answered from memory (or waiting for the order journal) hold no connection.
+ */
+@Configuration
+public class LocationDataSourceConfig implements DisposableBean {
+
+    private static final String PREFIX = "gestionpedidos.locations";
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    public Locations locations(Environment environment) {
+        Set<String> names = new LinkedHashSet<>();
+        names.add(LocationContext.MAIN);
+        names.addAll(otherLocations(environment).keySet());
+        return new Locations(Collections.unmodifiableSet(names));
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        Map<String, DataSource> targets = new LinkedHashMap<>();
+        targets.put(LocationContext.MAIN, pool(LocationContext.MAIN, properties));
+        otherLocations(environment).forEach((name, location) -> targets.put(name, pool(name, location)));
+        LocationRoutingDataSource router = new LocationRoutingDataSource(targets);
+        router.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(router);
+    }
+
+    // Flyway migrates every location, one after the other, instead of only the main one
+    @Bean
+    @ConditionalOnProperty(name = "spring.flyway.enabled", havingValue = "true", matchIfMissing = true)
+    public FlywayMigrationStrategy locationMigrationStrategy(Locations locations) {
+        return flyway -> locations.names().forEach(name -> LocationContext.run(name, flyway::migrate));
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource pool(String name, DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("location-" + name);
+        pools.add(pool);
+        return pool;
+    }
+
+    private static Map<String, DataSourceProperties> otherLocations(Environment environment) {
+        Map<String, DataSourceProperties> locations = Binder.get(environment)
+                .bind(PREFIX, Bindable.mapOf(String.class, DataSourceProperties.class))
+                .orElseGet(Map::of);
+        if (locations.containsKey(LocationContext.MAIN)) {
+            throw new IllegalStateException("'" + LocationContext.MAIN + "' is the location of spring.datasource, "
+                    + "remove " + PREFIX + "." + LocationContext.MAIN);
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,68 @@
+package com.restaurante.gestionpedidos.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Resolves the restaurant location of each request from the X-Location header and sets it
+ * as the {@link LocationContext} for the whole request. Requests without the header work on
+ * the main location; unknown locations are answered with 400 Bad Request.
+ */
+@Component
+public class LocationFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Location";
+
+    private final Locations locations;
+
+    @Autowired
+    public LocationFilter(Locations locations) {
+        this.locations = locations;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HEADER);
+        if (header == null || header.isBlank()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String location = header.trim().toLowerCase(Locale.ROOT);
+        if (!locations.contains(location)) {
+            badRequest(response, "Unknown location '" + location + "', available locations are "
+                    + String.join(", ", locations.names()));
+            return;
+        }
+        // The reactive API reads through its own R2DBC pool, which only knows the main database
+        if (!LocationContext.MAIN.equals(location) && request.getRequestURI().startsWith(request.getContextPath() + "/reactive/")) {
+            badRequest(response, "The reactive API only serves the " + LocationContext.MAIN + " location");
+            return;
+        }
+
+        String previous = LocationContext.enter(location);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            LocationContext.restore(previous);
+        }
+    }
+
+    private static void badRequest(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(message);
+    }
+}
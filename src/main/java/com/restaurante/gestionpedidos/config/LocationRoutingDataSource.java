@@ -0,0 +1,26 @@
+package com.restaurante.gestionpedidos.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DataSource that opens each connection on the database of the current {@link LocationContext}.
+ * JPA, the JDBC templates and Flyway all go through it, so one busy location only loads its own database.
+ * An unknown location fails instead of falling back to the main database.
+ */
+public class LocationRoutingDataSource extends AbstractRoutingDataSource {
+
+    public LocationRoutingDataSource(Map<String, DataSource> locations) {
+        setTargetDataSources(new LinkedHashMap<>(locations));
+        setDefaultTargetDataSource(locations.get(LocationContext.MAIN));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return LocationContext.current();
+    }
+}
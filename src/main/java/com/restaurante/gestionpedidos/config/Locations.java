@@ -0,0 +1,22 @@
+package com.restaurante.gestionpedidos.config;
+
+import java.util.Set;
+
+/**
+ * The configured restaurant locations: {@link LocationContext#MAIN} first, then the ones
+ * declared under gestionpedidos.locations, in declaration order.
+ *
+ * @param names The location keys.
+ */
+public record Locations(Set<String> names) {
+
+    /**
+     * Checks whether a location is configured.
+     *
+     * @param name The location key.
+     * @return true if the location has a database.
+     */
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+}
@@ -0,0 +1,52 @@
+package com.restaurante.gestionpedidos.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Non-blocking R2DBC access for the reactive read API, on the same schema as JPA.
+ *
+ * The connection pool is deliberately not exposed as a ConnectionFactory bean: Spring Boot
+ * backs off its JDBC DataSource (and with it JPA) as soon as one exists, which is also why
+ * R2dbcAutoConfiguration is excluded. Connections are opened lazily, on the first query.
+ *
+ * Properties: gestionpedidos.r2dbc.url, username, password and pool-size.
+ */
+@Configuration
+public class ReactiveDatabaseConfig implements DisposableBean {
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(@Value("${gestionpedidos.r2dbc.url}") String url,
+                                                 @Value("${gestionpedidos.r2dbc.username:}") String username,
+                                                 @Value("${gestionpedidos.r2dbc.password:}") String password,
+                                                 @Value("${gestionpedidos.r2dbc.pool-size:20}") int poolSize) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .initialSize(0)
+                .maxSize(poolSize)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
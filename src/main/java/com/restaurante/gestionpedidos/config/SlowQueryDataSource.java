@@ -0,0 +1,236 @@
+package com.restaurante.gestionpedidos.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DataSource wrapper that times every statement and hands finished ones to the {@link SlowQueryLog}.
+ *
+ * Connections, statements and result sets are thin dynamic proxies. Prepared statements remember
+ * their bind values, and batches the values of every row added. Queries are timed until their result
+ * set is done with, so the row count and the fetch time are included: when it is closed, or when its
+ * statement is closed or executed again, or its connection closed. Extends DelegatingDataSource so
+ * unwrap() still reaches the pool.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        // Statements not closed yet: closing the connection closes them, and with them the queries they are reading
+        private final Set<StatementHandler> open = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("close")) {
+                open.forEach(StatementHandler::finish);
+                open.clear();
+            }
+            Object result = SlowQueryDataSource.invoke(target, method, args);
+            return switch (method.getName()) {
+                case "createStatement" -> proxy(Statement.class, statement((Statement) result, null));
+                case "prepareStatement" -> proxy(PreparedStatement.class, statement((Statement) result, (String) args[0]));
+                case "prepareCall" -> proxy(CallableStatement.class, statement((Statement) result, (String) args[0]));
+                default -> result;
+            };
+        }
+
+        private StatementHandler statement(Statement statement, String sql) {
+            StatementHandler handler = new StatementHandler(this, statement, sql);
+            open.add(handler);
+            return handler;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final ConnectionHandler connection;
+        private final Statement target;
+        private final String sql;
+        private Object[] binds = new Object[0];
+        // Rows added with addBatch() (prepared statements) or statements added with addBatch(sql)
+        private final List<Object[]> batchRows = new ArrayList<>();
+        private final List<String> batchSql = new ArrayList<>();
+        // The query whose result set is still being read
+        private Query reading;
+
+        private StatementHandler(ConnectionHandler connection, Statement target, String sql) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                binds = new Object[0];
+            } else if (name.equals("addBatch")) {
+                if (args == null) {
+                    batchRows.add(binds.clone());
+                } else {
+                    batchSql.add((String) args[0]);
+                }
+            } else if (name.equals("clearBatch")) {
+                batchRows.clear();
+                batchSql.clear();
+            } else if (name.startsWith("execute")) {
+                return execute(method, args);
+            } else if (name.equals("getResultSet")) {
+                Object result = SlowQueryDataSource.invoke(target, method, args);
+                return result instanceof ResultSet resultSet && reading != null
+                        ? proxy(ResultSet.class, new ResultSetHandler(resultSet, reading)) : result;
+            } else if (name.equals("getMoreResults") || name.equals("close")) {
+                finish();
+                if (name.equals("close")) {
+                    connection.open.remove(this);
+                }
+            }
+            return SlowQueryDataSource.invoke(target, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index > binds.length) {
+                binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+            }
+            binds[index - 1] = value;
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            // Executing again closes the result set of the previous execution
+            finish();
+            Query query;
+            if (method.getName().startsWith("executeBatch") || method.getName().startsWith("executeLargeBatch")) {
+                query = batchSql.isEmpty() ? new Query(sql, batchRows.toArray()) : new Query(String.join("; ", batchSql), new Object[0]);
+                batchRows.clear();
+                batchSql.clear();
+            } else {
+                query = new Query(args != null && args.length > 0 && args[0] instanceof String text ? text : sql, binds.clone());
+            }
+            Object result = SlowQueryDataSource.invoke(target, method, args);
+
+            if (result instanceof ResultSet resultSet) {
+                query.rows = 0;
+                reading = query;
+                return proxy(ResultSet.class, new ResultSetHandler(resultSet, query));
+            }
+            if (Boolean.TRUE.equals(result)) {
+                // A result set, read through getResultSet()
+                query.rows = 0;
+                reading = query;
+                return result;
+            }
+            if (result instanceof Boolean) {
+                query.rows = target.getUpdateCount();
+            } else if (result instanceof Integer count) {
+                query.rows = count;
+            } else if (result instanceof Long count) {
+                query.rows = count;
+            } else if (result instanceof int[] counts) {
+                query.rows = Arrays.stream(counts).filter(count -> count >= 0).asLongStream().sum();
+            } else if (result instanceof long[] counts) {
+                query.rows = Arrays.stream(counts).filter(count -> count >= 0).sum();
+            }
+            query.finish();
+            return result;
+        }
+
+        private void finish() {
+            if (reading != null) {
+                reading.finish();
+                reading = null;
+            }
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final Query query;
+
+        private ResultSetHandler(ResultSet target, Query query) {
+            this.target = target;
+            this.query = query;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SlowQueryDataSource.invoke(target, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                query.rows++;
+            } else if (method.getName().equals("close")) {
+                query.finish();
+            }
+            return result;
+        }
+    }
+
+    // One execution of a statement, recorded once when it is done (rows is -1 when unknown)
+    private final class Query {
+
+        private final String sql;
+        private final Object[] binds;
+        private final long start = System.nanoTime();
+        private long rows = -1;
+        private boolean recorded;
+
+        private Query(String sql, Object[] binds) {
+            this.sql = sql;
+            this.binds = binds;
+        }
+
+        private void finish() {
+            if (!recorded) {
+                recorded = true;
+                slowQueryLog.record(sql, binds, rows, System.nanoTime() - start);
+            }
+        }
+    }
+}
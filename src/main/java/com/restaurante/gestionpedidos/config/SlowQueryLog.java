@@ -0,0 +1,159 @@
+package com.restaurante.gestionpedidos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous log of slow SQL statements.
+ *
+ * Statements slower than the threshold are always recorded; faster ones only with the
+ * configured sampling probability. Each entry carries the bind values (of every row, for a batch),
+ * the row count and the
+ * controller/service method that issued it. The calling thread only pays for a queue offer
+ * (plus a stack walk for the few recorded statements): formatting and writing happen on a
+ * background thread, and entries are dropped rather than blocking when the queue is full.
+ */
+public class SlowQueryLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger("SLOW_QUERY");
+    private static final String APP_PACKAGE = "com.restaurante.gestionpedidos.";
+    private static final int QUEUE_CAPACITY = 10_000;
+    // Rows of a batch whose bind values are written out
+    private static final int MAX_LOGGED_ROWS = 10;
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int maxBindLength;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+
+    public SlowQueryLog(long thresholdMillis, double sampleRate, int maxBindLength) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleRate = sampleRate;
+        this.maxBindLength = maxBindLength;
+        this.writer = new Thread(this::drain, "slow-query-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Called on the JDBC thread once a statement has finished (rows is -1 when unknown).
+    // The binds of a batch are one Object[] per row.
+    void record(String sql, Object[] binds, long rows, long elapsedNanos) {
+        boolean slow = elapsedNanos >= thresholdNanos;
+        if (!slow && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        enqueue(new Entry(sql, binds, rows, elapsedNanos, slow, origin()));
+    }
+
+    void enqueue(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // The log line of an entry, without the slow/sampled prefix
+    String message(Entry entry) {
+        return TimeUnit.NANOSECONDS.toMillis(entry.elapsedNanos()) + " ms, rows=" + (entry.rows() < 0 ? "?" : entry.rows())
+                + ", origin=" + entry.origin() + ", sql=[" + entry.sql() + "], binds=" + formatBinds(entry.binds());
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Entry entry = queue.take();
+                if (entry.slow()) {
+                    log.warn("Slow query: {}", message(entry));
+                } else {
+                    log.info("Sampled query: {}", message(entry));
+                }
+
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    log.warn("Slow query log queue full, {} entries dropped", lost);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String formatBinds(Object[] binds) {
+        if (binds == null || binds.length == 0) {
+            return "[]";
+        }
+        if (binds[0] instanceof Object[]) {
+            String rows = Arrays.stream(binds).limit(MAX_LOGGED_ROWS).map(this::formatBind).collect(Collectors.joining(", "));
+            return "[" + rows + (binds.length > MAX_LOGGED_ROWS ? ", ... " + (binds.length - MAX_LOGGED_ROWS) + " more rows]" : "]");
+        }
+        return Arrays.stream(binds).map(this::formatBind).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private String formatBind(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Object[] row) {
+            return formatBinds(row);
+        }
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        if (value instanceof InputStream || value instanceof Reader) {
+            return "<stream>";
+        }
+        String text = value instanceof CharSequence ? "'" + value + "'" : String.valueOf(value);
+        return text.length() > maxBindLength ? text.substring(0, maxBindLength) + "..." : text;
+    }
+
+    // Controller and service methods on the current stack, outermost first, e.g. "OrderController.updateOrder > OrderService.updateOrder"
+    private static String origin() {
+        List<String> frames = StackWalker.getInstance().walk(stack -> stack
+                .filter(frame -> {
+                    String className = frame.getClassName();
+                    return className.startsWith(APP_PACKAGE)
+                            && (className.contains(".controllers.") || className.contains(".services."))
+                            && !className.contains("$$");
+                })
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .distinct()
+                .limit(4)
+                .collect(Collectors.toList()));
+        if (frames.isEmpty()) {
+            return "[" + Thread.currentThread().getName() + "]";
+        }
+        StringBuilder origin = new StringBuilder();
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            origin.append(frames.get(i));
+            if (i > 0) {
+                origin.append(" > ");
+            }
+        }
+        return origin.toString();
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    @Override
+    public void destroy() {
+        writer.interrupt();
+    }
+
+    record Entry(String sql, Object[] binds, long rows, long elapsedNanos, boolean slow, String origin) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.restaurante.gestionpedidos.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration of the slow-query log, replacing Hibernate's synchronous show-sql output.
+ * Every DataSource bean is wrapped in a {@link SlowQueryDataSource}.
+ *
+ * Properties (all optional):
+ * gestionpedidos.slow-query.enabled, threshold-ms, sample-rate and max-bind-length.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestionpedidos.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryLogConfig {
+
+    @Bean
+    public SlowQueryLog slowQueryLog(@Value("${gestionpedidos.slow-query.threshold-ms:200}") long thresholdMillis,
+                                     @Value("${gestionpedidos.slow-query.sample-rate:0}") double sampleRate,
+                                     @Value("${gestionpedidos.slow-query.max-bind-length:100}") int maxBindLength) {
+        return new SlowQueryLog(thresholdMillis, sampleRate, maxBindLength);
+    }
+
+    // Static so the post-processor does not force early creation of this configuration class
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof SlowQueryDataSource)) {
+                    return new SlowQueryDataSource(dataSource, slowQueryLog.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
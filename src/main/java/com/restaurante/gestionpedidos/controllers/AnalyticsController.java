@@ -0,0 +1,66 @@
+package com.restaurante.gestionpedidos.controllers;
+
+import com.restaurante.gestionpedidos.services.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST Controller for the sales analytics.
+ * Answers from an in-memory copy of the order items, so the queries do not reach the database.
+ * Only available when gestionpedidos.analytics.enabled is true.
+ */
+@RestController
+@RequestMapping("/analytics")
+@ConditionalOnProperty(name = "gestionpedidos.analytics.enabled", havingValue = "true")
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+
+    /**
+     * Constructor for injecting the AnalyticsService dependency.
+     *
+     * @param analyticsService The service responsible for the analytics queries.
+     */
+    @Autowired
+    public AnalyticsController(AnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    /**
+     * Retrieves the units sold and the revenue of the order items, valued at the current product prices.
+     * Every filter is optional; with "groupBy" (up to two of hour, day, product, category, customer)
+     * one row is returned per group, e.g. groupBy=category,hour.
+     *
+     * @param from       First day of the period (ISO date, inclusive).
+     * @param to         Last day of the period (ISO date, inclusive).
+     * @param groupBy    Optional list of dimensions to group by.
+     * @param productId  Optional product to restrict the items to.
+     * @param categoryId Optional category to restrict the items to.
+     * @param customerId Optional customer to restrict the items to.
+     * @return ResponseEntity containing one row per group with its units and revenue,
+     *         a 400 Bad Request response if a parameter is invalid or the result has too many groups,
+     *         or a 503 Service Unavailable response while the analytics are still loading.
+     */
+    @GetMapping("/order-items")
+    public ResponseEntity<?> getOrderItemTotals(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                @RequestParam(required = false) List<String> groupBy,
+                                                @RequestParam(required = false) Long productId,
+                                                @RequestParam(required = false) Long categoryId,
+                                                @RequestParam(required = false) Long customerId) {
+        try {
+            return ResponseEntity.ok(analyticsService.getOrderItemTotals(from, to, groupBy, productId, categoryId, customerId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+}
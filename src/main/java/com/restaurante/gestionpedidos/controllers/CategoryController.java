@@ -3,10 +3,10 @@ package com.restaurante.gestionpedidos.controllers;
 import com.restaurante.gestionpedidos.models.Category;
 import com.restaurante.gestionpedidos.services.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -32,23 +32,44 @@ public class CategoryController {
     /**
      * Retrieves a list of all categories.
      * Optionally includes associated products if the "includeProducts" parameter is set to true.
+     * With "fields", only the listed properties are read and returned, without products.
      *
      * @param includeProducts Boolean flag to include associated products in the response.
-     * @return A list of all categories.
+     * @param fields          Optional comma-separated list of properties to return.
+     * @return A list of all categories, or a 400 Bad Request response if a field is unknown.
      */
     @GetMapping
-    public List<Category> getAllCategories(@RequestParam(required = false, defaultValue = "false") boolean includeProducts) {
-        return categoryService.getAllCategories(includeProducts);
+    public ResponseEntity<?> getAllCategories(@RequestParam(required = false, defaultValue = "false") boolean includeProducts,
+                                              @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                return ResponseEntity.ok(categoryService.getAllCategories(fields));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
+        return ResponseEntity.ok(categoryService.getAllCategories(includeProducts));
     }
 
     /**
      * Retrieves a specific category by its ID.
+     * With "fields", only the listed properties are read and returned.
      *
-     * @param id The ID of the category to retrieve.
-     * @return ResponseEntity containing the category if found, or a 404 Not Found response if not.
+     * @param id     The ID of the category to retrieve.
+     * @param fields Optional comma-separated list of properties to return.
+     * @return ResponseEntity containing the category if found, a 404 Not Found response if not,
+     *         or a 400 Bad Request response if a field is unknown.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable Long id) {
+    public ResponseEntity<?> getCategoryById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                return categoryService.getCategoryById(id, fields)
+                        .map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
         Optional<Category> category = categoryService.getCategoryById(id);
         return category.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -83,10 +104,15 @@ public class CategoryController {
      *
      * @param id The ID of the category to delete.
      * @return ResponseEntity with a 204 No Content response if deletion was successful,
-     *         or 404 Not Found if the category does not exist.
+     *         404 Not Found if the category does not exist,
+     *         or 409 Conflict if any of its products is on an order.
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteCategory(@PathVariable Long id) {
-        return categoryService.deleteCategory(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    public ResponseEntity<?> deleteCategory(@PathVariable Long id) {
+        try {
+            return categoryService.deleteCategory(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 }
@@ -1,8 +1,11 @@
 package com.restaurante.gestionpedidos.controllers;
 
+import com.restaurante.gestionpedidos.dto.CustomerDetail;
 import com.restaurante.gestionpedidos.models.Customer;
 import com.restaurante.gestionpedidos.services.CustomerService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -30,33 +33,83 @@ public class CustomerController {
     }
 
     /**
-     * Retrieves a list of all customers.
-     * Optionally includes orders if the "includeOrders" parameter is set to true.
+     * Retrieves a list of all customers, each like GET /customers/{id}: with their most recent orders
+     * (newest first), the number of orders they ever placed and the value of all of them at the current prices.
+     * With "fields", only the listed properties are read and returned, without orders (e.g. fields=name,phone).
+     * With "ids", only those customers are returned, in the requested order, and
+     * IDs that match nothing are returned as {"id": ..., "notFound": true}.
      *
-     * @param includeOrders Boolean flag to include associated orders in the response.
-     * @return A list of all customers.
+     * @param recentOrders Number of recent orders to include per customer (1 to 100, 10 by default).
+     * @param fields       Optional comma-separated list of properties to return.
+     * @param ids          Optional comma-separated list of up to 500 customer IDs.
+     * @return A list of customers, or a 400 Bad Request response if a field is unknown, there are too many IDs
+     *         or recentOrders is out of range.
      */
     @GetMapping
-    public List<Customer> getAllCustomers(@RequestParam(required = false, defaultValue = "false") boolean includeOrders) {
-        if (includeOrders) {
-            return customerService.getAllCustomers();
-        } else {
-            return customerService.getAllCustomers();
+    public ResponseEntity<?> getAllCustomers(@RequestParam(defaultValue = "10") int recentOrders,
+                                             @RequestParam(required = false) String fields,
+                                             @RequestParam(required = false) List<Long> ids) {
+        try {
+            if (ids != null) {
+                return ResponseEntity.ok(fields != null ? customerService.getCustomersByIds(ids, fields)
+                        : customerService.getCustomersByIds(ids, recentOrders));
+            }
+            if (fields != null) {
+                return ResponseEntity.ok(customerService.getAllCustomers(fields));
+            }
+            return ResponseEntity.ok(customerService.getAllCustomers(recentOrders));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
     /**
-     * Retrieves a specific customer by its ID.
-     * Optionally includes orders if the "includeOrders" parameter is set to true.
+     * Retrieves a specific customer by its ID, with their most recent orders (newest first),
+     * the number of orders they ever placed and the value of all of them at the current prices.
+     * The full order history is available, paged, at /customers/{id}/orders.
+     * With "fields", only the listed properties are read and returned, without orders.
      *
-     * @param id            The ID of the customer to retrieve.
-     * @param includeOrders Boolean flag to include associated orders in the response.
-     * @return ResponseEntity containing the customer if found, or a 404 Not Found response if not.
+     * @param id           The ID of the customer to retrieve.
+     * @param recentOrders Number of recent orders to include (1 to 100, 10 by default).
+     * @param fields       Optional comma-separated list of properties to return.
+     * @return ResponseEntity containing the customer if found, a 404 Not Found response if not,
+     *         or a 400 Bad Request response if a field is unknown or recentOrders is out of range.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Customer> getCustomerById(@PathVariable Long id, @RequestParam(required = false, defaultValue = "false") boolean includeOrders) {
-        Optional<Customer> customer = customerService.getCustomerById(id);
-        return customer.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<?> getCustomerById(@PathVariable Long id, @RequestParam(defaultValue = "10") int recentOrders,
+                                             @RequestParam(required = false) String fields) {
+        try {
+            if (fields != null) {
+                return customerService.getCustomerById(id, fields)
+                        .map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+            }
+            Optional<CustomerDetail> customer = customerService.getCustomerDetail(id, recentOrders);
+            return customer.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves a customer's orders, newest first, one page at a time.
+     *
+     * @param id   The ID of the customer.
+     * @param page The page number, starting at 0.
+     * @param size The number of orders per page (1 to 100, 20 by default).
+     * @return ResponseEntity containing the page of orders and the paging information,
+     *         a 404 Not Found response if the customer does not exist,
+     *         or a 400 Bad Request response if the page or size is out of range.
+     */
+    @GetMapping("/{id}/orders")
+    public ResponseEntity<?> getCustomerOrders(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "20") int size) {
+        try {
+            return customerService.getCustomerOrders(id, page, size)
+                    .map(orders -> ResponseEntity.ok(new PagedModel<>(orders)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
@@ -89,10 +142,15 @@ public class CustomerController {
      *
      * @param id The ID of the customer to delete.
      * @return ResponseEntity with a 204 No Content response if deletion was successful,
-     *         or 404 Not Found if the customer does not exist.
+     *         404 Not Found if the customer does not exist,
+     *         or 409 Conflict if orders of the customer are still being written from the order journal.
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteCustomer(@PathVariable Long id) {
-        return customerService.deleteCustomer(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    public ResponseEntity<?> deleteCustomer(@PathVariable Long id) {
+        try {
+            return customerService.deleteCustomer(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 }
@@ -1,13 +1,33 @@
 package com.restaurante.gestionpedidos.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.dto.ExportManifest;
+import com.restaurante.gestionpedidos.dto.LocationTotals;
+import com.restaurante.gestionpedidos.dto.OrderItemTotals;
+import com.restaurante.gestionpedidos.dto.OrderTotals;
+import com.restaurante.gestionpedidos.dto.OrderView;
+import com.restaurante.gestionpedidos.exceptions.ConcurrentUpdateException;
 import com.restaurante.gestionpedidos.models.Customer;
 import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.services.LocationReportService;
+import com.restaurante.gestionpedidos.services.OrderExportService;
 import com.restaurante.gestionpedidos.services.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -19,39 +39,229 @@ import java.util.Optional;
 public class OrderController {
 
     private final OrderService orderService;
+    private final LocationReportService locationReportService;
+    private final OrderExportService orderExportService;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Constructor for injecting the OrderService dependency.
+     * Constructor for injecting the OrderService, LocationReportService, OrderExportService and ObjectMapper dependencies.
      *
-     * @param orderService The service responsible for handling order operations.
+     * @param orderService          The service responsible for handling order operations.
+     * @param locationReportService The service responsible for the reports across all locations.
+     * @param orderExportService    The service responsible for the bulk exports of the order history.
+     * @param objectMapper          The JSON mapper used to stream the items of an order.
      */
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, LocationReportService locationReportService,
+                           OrderExportService orderExportService, ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.locationReportService = locationReportService;
+        this.orderExportService = orderExportService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Retrieves a list of all orders.
+     * With "fields", only the listed properties are read and returned (e.g. fields=orderDate,customer.name).
+     * With "ids", only those orders are returned, in the requested order, and
+     * IDs that match nothing are returned as {"id": ..., "notFound": true}.
      *
-     * @return A list of all orders.
+     * @param fields Optional comma-separated list of properties to return.
+     * @param ids    Optional comma-separated list of up to 500 order IDs.
+     * @return A list of orders, or a 400 Bad Request response if a field is unknown or there are too many IDs.
      */
     @GetMapping
-    public List<Order> getAllOrders() {
-        return orderService.getAllOrders();
+    public ResponseEntity<?> getAllOrders(@RequestParam(required = false) String fields,
+                                          @RequestParam(required = false) List<Long> ids) {
+        if (ids != null) {
+            try {
+                return ResponseEntity.ok(fields != null ? orderService.getOrdersByIds(ids, fields) : orderService.getOrdersByIds(ids));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
+        if (fields != null) {
+            try {
+                return ResponseEntity.ok(orderService.getAllOrders(fields));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
+        return ResponseEntity.ok(orderService.getAllOrders());
     }
 
     /**
      * Retrieves a specific order by its ID.
+     * With "fields", only the listed properties are read and returned.
      *
-     * @param id The ID of the order to retrieve.
-     * @return ResponseEntity containing the order if found, or a 404 Not Found response if not.
+     * @param id     The ID of the order to retrieve.
+     * @param fields Optional comma-separated list of properties to return.
+     * @return ResponseEntity containing the order if found, a 404 Not Found response if not,
+     *         or a 400 Bad Request response if a field is unknown.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
+    public ResponseEntity<?> getOrderById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                return orderService.getOrderById(id, fields)
+                        .map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
         Optional<Order> order = orderService.getOrderById(id);
         return order.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Retrieves everything needed to show an order in one response: the order, its customer's name,
+     * and its items with product names, prices and totals. Served from an in-memory read model.
+     *
+     * @param id The ID of the order.
+     * @return ResponseEntity containing the order view, or a 404 Not Found response if the order does not exist.
+     */
+    @GetMapping("/{id}/view")
+    public ResponseEntity<OrderView> getOrderView(@PathVariable Long id) {
+        return orderService.getOrderView(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves the items of an order, with their product names, prices and line totals, followed by the
+     * order's units and total: {"orderId": ..., "items": [...], "units": ..., "total": ...}.
+     * The items are read in chunks and streamed as they are read, so orders of any size (e.g. catering
+     * orders with thousands of lines) are never held in memory whole.
+     *
+     * @param id The ID of the order.
+     * @return ResponseEntity streaming the items and totals, or a 404 Not Found response if the order does not exist.
+     */
+    @GetMapping("/{id}/items")
+    public ResponseEntity<StreamingResponseBody> getOrderItems(@PathVariable Long id) {
+        if (orderService.getOrderById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // The body is written on another thread, which doesn't inherit the request's location
+        String location = LocationContext.current();
+        StreamingResponseBody body = out -> LocationContext.run(location, () -> writeOrderItems(id, out));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void writeOrderItems(Long id, OutputStream out) {
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeNumberField("orderId", id);
+            json.writeArrayFieldStart("items");
+            OrderItemTotals totals = orderService.forEachOrderItem(id, line -> {
+                try {
+                    json.writeObject(line);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            json.writeNumberField("units", totals.units());
+            json.writeNumberField("total", totals.total());
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retrieves the total of an order, computed from its items at the current product prices.
+     *
+     * @param id The ID of the order.
+     * @return ResponseEntity containing the order ID and its exact total (e.g. 25.50),
+     *         or a 404 Not Found response if the order does not exist.
+     */
+    @GetMapping("/{id}/total")
+    public ResponseEntity<Map<String, Object>> getOrderTotal(@PathVariable Long id) {
+        return orderService.getOrderTotal(id)
+                .map(total -> ResponseEntity.ok(Map.<String, Object>of("orderId", id, "total", total)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves the sales totals of the orders placed in a period.
+     *
+     * @param from First day of the period (ISO date, inclusive).
+     * @param to   Last day of the period (ISO date, inclusive).
+     * @return ResponseEntity containing the number of orders, units and the exact total,
+     *         or a 400 Bad Request response if the period is invalid.
+     */
+    @GetMapping("/totals")
+    public ResponseEntity<?> getOrderTotals(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            OrderTotals totals = orderService.getOrderTotals(from, to);
+            return ResponseEntity.ok(totals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the sales totals of a period in every restaurant location, and their sum.
+     * Ignores the X-Location header: all locations are always included.
+     *
+     * @param from First day of the period (ISO date, inclusive).
+     * @param to   Last day of the period (ISO date, inclusive).
+     * @return ResponseEntity containing the overall and per-location totals,
+     *         or a 400 Bad Request response if the period is invalid.
+     */
+    @GetMapping("/totals/locations")
+    public ResponseEntity<?> getLocationTotals(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            LocationTotals totals = locationReportService.getOrderTotals(from, to);
+            return ResponseEntity.ok(totals);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Starts exporting the orders placed in a period, and their items, to gzip-compressed CSV files:
+     * one file of orders and one of items per partition of days, written in the background.
+     * Starting the same period again resumes an interrupted export from the partitions still missing.
+     *
+     * @param from First day of the period (ISO date, inclusive).
+     * @param to   Last day of the period (ISO date, inclusive).
+     * @return ResponseEntity with a 202 Accepted response containing the manifest so far,
+     *         a 400 Bad Request response if the period is invalid,
+     *         or a 409 Conflict response if an export of the period is already running.
+     */
+    @PostMapping("/export")
+    public ResponseEntity<?> startExport(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            ExportManifest manifest = orderExportService.startExport(from, to);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(manifest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the manifest of an export: its finished partitions, with the rows, size and SHA-256 of their files.
+     *
+     * @param from First day of the period (ISO date, inclusive).
+     * @param to   Last day of the period (ISO date, inclusive).
+     * @return ResponseEntity containing the manifest, a 404 Not Found response if the period was never exported,
+     *         or a 400 Bad Request response if the period is invalid.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> getExport(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return orderExportService.getManifest(from, to)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Creates a new order.
      *
@@ -69,6 +279,7 @@ public class OrderController {
      * @param id    The ID of the order to update.
      * @param order The updated order details.
      * @return ResponseEntity containing the updated order if successful,
+     *         a 409 Conflict response if it was modified concurrently (stale version),
      *         or a 400 Bad Request response if an error occurs.
      */
     @PutMapping("/{id}")
@@ -76,6 +287,8 @@ public class OrderController {
         try {
             Order updatedOrder = orderService.updateOrder(id, order);
             return ResponseEntity.ok(updatedOrder);
+        } catch (ConcurrentUpdateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
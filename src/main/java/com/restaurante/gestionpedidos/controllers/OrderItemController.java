@@ -1,12 +1,14 @@
 package com.restaurante.gestionpedidos.controllers;
 
+import com.restaurante.gestionpedidos.exceptions.ConcurrentUpdateException;
+import com.restaurante.gestionpedidos.exceptions.OutOfStockException;
 import com.restaurante.gestionpedidos.models.OrderItem;
 import com.restaurante.gestionpedidos.services.OrderItemService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -31,22 +33,42 @@ public class OrderItemController {
 
     /**
      * Retrieves a list of all order items.
+     * With "fields", only the listed properties are read and returned (e.g. fields=quantity,product.name).
      *
-     * @return A list of all order items.
+     * @param fields Optional comma-separated list of properties to return.
+     * @return A list of all order items, or a 400 Bad Request response if a field is unknown.
      */
     @GetMapping
-    public List<OrderItem> getAllOrderItems() {
-        return orderItemService.getAllOrderItems();
+    public ResponseEntity<?> getAllOrderItems(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                return ResponseEntity.ok(orderItemService.getAllOrderItems(fields));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
+        return ResponseEntity.ok(orderItemService.getAllOrderItems());
     }
 
     /**
      * Retrieves a specific order item by its ID.
+     * With "fields", only the listed properties are read and returned.
      *
-     * @param id The ID of the order item to retrieve.
-     * @return ResponseEntity containing the order item if found, or a 404 Not Found response if not.
+     * @param id     The ID of the order item to retrieve.
+     * @param fields Optional comma-separated list of properties to return.
+     * @return ResponseEntity containing the order item if found, a 404 Not Found response if not,
+     *         or a 400 Bad Request response if a field is unknown.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<OrderItem> getOrderItemById(@PathVariable Long id) {
+    public ResponseEntity<?> getOrderItemById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                return orderItemService.getOrderItemById(id, fields)
+                        .map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
         Optional<OrderItem> orderItem = orderItemService.getOrderItemById(id);
         return orderItem.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -55,11 +77,19 @@ public class OrderItemController {
      * Creates a new order item.
      *
      * @param orderItem The order item details to be created.
-     * @return The created order item.
+     * @return ResponseEntity containing the created order item,
+     *         a 409 Conflict response if the product does not have enough units in stock,
+     *         or a 400 Bad Request response if an error occurs.
      */
     @PostMapping
-    public OrderItem createOrderItem(@RequestBody OrderItem orderItem) {
-        return orderItemService.createOrderItem(orderItem);
+    public ResponseEntity<?> createOrderItem(@RequestBody OrderItem orderItem) {
+        try {
+            return ResponseEntity.ok(orderItemService.createOrderItem(orderItem));
+        } catch (OutOfStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
@@ -68,6 +98,8 @@ public class OrderItemController {
      * @param id The ID of the order item to update.
      * @param orderItem The updated order item details.
      * @return ResponseEntity containing the updated order item if successful,
+     *         a 409 Conflict response if it was modified concurrently (stale version)
+     *         or the product does not have enough units in stock,
      *         or a 400 Bad Request response if an error occurs.
      */
     @PutMapping("/{id}")
@@ -75,6 +107,29 @@ public class OrderItemController {
         try {
             OrderItem updatedOrderItem = orderItemService.updateOrderItem(id, orderItem);
             return ResponseEntity.ok(updatedOrderItem);
+        } catch (ConcurrentUpdateException | OutOfStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Adds units to (or removes units from) an order item.
+     * Increments are commutative, so concurrent increments are retried instead of rejected.
+     *
+     * @param id    The ID of the order item to update.
+     * @param delta The number of units to add; negative values remove units.
+     * @return ResponseEntity containing the updated order item if successful,
+     *         a 409 Conflict response if the retries were exhausted or stock ran out,
+     *         or a 400 Bad Request response if an error occurs.
+     */
+    @PatchMapping("/{id}/quantity")
+    public ResponseEntity<?> incrementQuantity(@PathVariable Long id, @RequestParam int delta) {
+        try {
+            return ResponseEntity.ok(orderItemService.incrementQuantity(id, delta));
+        } catch (ConcurrentUpdateException | OutOfStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -1,12 +1,21 @@
 package com.restaurante.gestionpedidos.controllers;
 
+import com.restaurante.gestionpedidos.dto.PriceAdjustment;
 import com.restaurante.gestionpedidos.models.Product;
+import com.restaurante.gestionpedidos.services.ProductImportService;
 import com.restaurante.gestionpedidos.services.ProductService;
+import com.restaurante.gestionpedidos.services.StockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -18,41 +27,80 @@ import java.util.Optional;
 public class ProductController {
 
     private final ProductService productService;
+    private final StockService stockService;
+    private final ProductImportService productImportService;
 
     /**
-     * Constructor for injecting the ProductService dependency.
+     * Constructor for injecting the product service dependencies.
      *
-     * @param productService The service responsible for handling product operations.
+     * @param productService       The service responsible for handling product operations.
+     * @param stockService         The service responsible for tracking product stock.
+     * @param productImportService The service responsible for bulk CSV imports.
      */
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, StockService stockService,
+                             ProductImportService productImportService) {
         this.productService = productService;
+        this.stockService = stockService;
+        this.productImportService = productImportService;
     }
 
     /**
      * Retrieves a list of all products.
      * Optionally includes category details if "includeCategory" parameter is set to true.
+     * With "fields", only the listed properties are read and returned (e.g. fields=name,price,category.name).
+     * With "ids", only those products are returned, in the requested order (e.g. ids=3,1,2), and
+     * IDs that match nothing are returned as {"id": ..., "notFound": true}.
      *
      * @param includeCategory Boolean flag to include category information.
-     * @return A list of products.
+     * @param fields          Optional comma-separated list of properties to return.
+     * @param ids             Optional comma-separated list of up to 500 product IDs.
+     * @return A list of products, or a 400 Bad Request response if a field is unknown or there are too many IDs.
      */
     @GetMapping
-    public List<Product> getAllProducts(@RequestParam(required = false, defaultValue = "false") boolean includeCategory) {
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false, defaultValue = "false") boolean includeCategory,
+                                            @RequestParam(required = false) String fields,
+                                            @RequestParam(required = false) List<Long> ids) {
+        if (ids != null) {
+            try {
+                return ResponseEntity.ok(fields != null ? productService.getProductsByIds(ids, fields) : productService.getProductsByIds(ids));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
+        if (fields != null) {
+            try {
+                return ResponseEntity.ok(productService.getAllProducts(fields));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
         if(includeCategory){
-            return productService.getAllProducts();
+            return ResponseEntity.ok(productService.getAllProducts());
         }else{
-            return productService.getAllProducts();
+            return ResponseEntity.ok(productService.getAllProducts());
         }
     }
 
     /**
      * Retrieves a specific product by its ID.
+     * With "fields", only the listed properties are read and returned.
      *
-     * @param id The ID of the product to retrieve.
-     * @return ResponseEntity containing the product if found, or a 404 Not Found response if not.
+     * @param id     The ID of the product to retrieve.
+     * @param fields Optional comma-separated list of properties to return.
+     * @return ResponseEntity containing the product if found, a 404 Not Found response if not,
+     *         or a 400 Bad Request response if a field is unknown.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<?> getProductById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                return productService.getProductById(id, fields)
+                        .map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
         Optional<Product> product = productService.getProductById(id);
         return product.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -68,6 +116,41 @@ public class ProductController {
         return productService.createProduct(product);
     }
 
+    /**
+     * Imports products in bulk from an uploaded CSV file.
+     * Categories are matched by name and created when missing.
+     * Expected header: name,price,description,category[,stock]
+     *
+     * @param file The CSV file (multipart field "file").
+     * @return ResponseEntity containing the import report with the rejected rows,
+     *         or a 400 Bad Request response if the file cannot be read.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importProducts(@RequestParam("file") MultipartFile file) {
+        try (InputStream csv = file.getInputStream()) {
+            return ResponseEntity.ok(productImportService.importProducts(csv));
+        } catch (IOException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Imports products in bulk from a CSV request body (Content-Type: text/csv).
+     * Same format as the multipart variant, convenient for streaming uploads with curl --data-binary.
+     *
+     * @param csv The CSV request body.
+     * @return ResponseEntity containing the import report with the rejected rows,
+     *         or a 400 Bad Request response if the body cannot be read.
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importProductsFromBody(InputStream csv) {
+        try {
+            return ResponseEntity.ok(productImportService.importProducts(csv));
+        } catch (IOException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Updates an existing product.
      *
@@ -81,6 +164,66 @@ public class ProductController {
         return updatedProduct != null ? ResponseEntity.ok(updatedProduct) : ResponseEntity.notFound().build();
     }
 
+    /**
+     * Changes the prices of many products at once, e.g. for inflation or happy hour.
+     * The change runs as a single set-based UPDATE in one transaction.
+     *
+     * @param adjustment The percentage or absolute change, scoped to a category or a list of product IDs.
+     * @return ResponseEntity containing the number of products updated,
+     *         or a 400 Bad Request response if the adjustment is invalid.
+     */
+    @PatchMapping("/prices")
+    public ResponseEntity<?> adjustPrices(@RequestBody PriceAdjustment adjustment) {
+        try {
+            return ResponseEntity.ok(Map.of("updated", productService.adjustPrices(adjustment)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the units currently available for a product.
+     * For sharded products this is the sum of all of its stock shards.
+     *
+     * @param id The ID of the product.
+     * @return ResponseEntity containing the available stock (null if not tracked),
+     *         or a 404 Not Found response if the product does not exist.
+     */
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<Map<String, Object>> getProductStock(@PathVariable Long id) {
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("productId", id);
+            body.put("stock", stockService.getAvailableStock(id));
+            return ResponseEntity.ok(body);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Replaces the stock of a product.
+     * A number of shards greater than 1 turns on the striped counter mode for hot products,
+     * spreading the units over several rows so concurrent orders don't contend for one row lock.
+     *
+     * @param id       The ID of the product.
+     * @param quantity The units available; omit it to stop tracking stock.
+     * @param shards   Optional number of stock shards.
+     * @return ResponseEntity with a 204 No Content response if the stock was replaced,
+     *         or a 400 Bad Request response if an error occurs.
+     */
+    @PutMapping("/{id}/stock")
+    public ResponseEntity<?> updateProductStock(@PathVariable Long id,
+                                                @RequestParam(required = false) Integer quantity,
+                                                @RequestParam(required = false) Integer shards) {
+        try {
+            stockService.setStock(id, quantity, shards);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Deletes a product by its ID.
      *
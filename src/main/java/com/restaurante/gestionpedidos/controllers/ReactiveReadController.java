@@ -0,0 +1,108 @@
+package com.restaurante.gestionpedidos.controllers;
+
+import com.restaurante.gestionpedidos.models.Category;
+import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.models.Product;
+import com.restaurante.gestionpedidos.services.ReactiveReadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive, read-only REST Controller for products, categories and orders.
+ *
+ * Handlers return Flux/Mono backed by R2DBC, so the request thread is released while the
+ * database works. Lists are streamed as newline-delimited JSON (application/x-ndjson): each row
+ * is written as soon as it arrives, and the next rows are only requested once it has been sent.
+ * Clients that ask for application/json get a regular JSON array instead.
+ */
+@RestController
+@RequestMapping("/reactive")
+public class ReactiveReadController {
+
+    private final ReactiveReadService reactiveReadService;
+
+    /**
+     * Constructor for injecting the ReactiveReadService dependency.
+     *
+     * @param reactiveReadService The service responsible for the non-blocking queries.
+     */
+    @Autowired
+    public ReactiveReadController(ReactiveReadService reactiveReadService) {
+        this.reactiveReadService = reactiveReadService;
+    }
+
+    /**
+     * Streams all products with their category.
+     *
+     * @param categoryId Optional category to filter by.
+     * @return A stream of products.
+     */
+    @GetMapping(value = "/products", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<Product> getAllProducts(@RequestParam(required = false) Long categoryId) {
+        return reactiveReadService.getAllProducts(categoryId);
+    }
+
+    /**
+     * Retrieves a specific product by its ID.
+     *
+     * @param id The ID of the product to retrieve.
+     * @return ResponseEntity containing the product if found, or a 404 Not Found response if not.
+     */
+    @GetMapping("/products/{id}")
+    public Mono<ResponseEntity<Product>> getProductById(@PathVariable Long id) {
+        return reactiveReadService.getProductById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams all categories.
+     *
+     * @return A stream of categories.
+     */
+    @GetMapping(value = "/categories", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<Category> getAllCategories() {
+        return reactiveReadService.getAllCategories();
+    }
+
+    /**
+     * Retrieves a specific category by its ID.
+     *
+     * @param id The ID of the category to retrieve.
+     * @return ResponseEntity containing the category if found, or a 404 Not Found response if not.
+     */
+    @GetMapping("/categories/{id}")
+    public Mono<ResponseEntity<Category>> getCategoryById(@PathVariable Long id) {
+        return reactiveReadService.getCategoryById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams all orders.
+     *
+     * @param customerId Optional customer to filter by.
+     * @return A stream of orders.
+     */
+    @GetMapping(value = "/orders", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<Order> getAllOrders(@RequestParam(required = false) Long customerId) {
+        return reactiveReadService.getAllOrders(customerId);
+    }
+
+    /**
+     * Retrieves a specific order by its ID.
+     *
+     * @param id The ID of the order to retrieve.
+     * @return ResponseEntity containing the order if found, or a 404 Not Found response if not.
+     */
+    @GetMapping("/orders/{id}")
+    public Mono<ResponseEntity<Order>> getOrderById(@PathVariable Long id) {
+        return reactiveReadService.getOrderById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,44 @@
+package com.restaurante.gestionpedidos.dto;
+
+import com.restaurante.gestionpedidos.models.Customer;
+import com.restaurante.gestionpedidos.models.Order;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A customer with a bounded view of their order history: the most recent orders
+ * and aggregates over all of them. The full history is paged at /customers/{id}/orders.
+ *
+ * @param id            The customer ID.
+ * @param name          The customer's name.
+ * @param email         The customer's email address.
+ * @param phone         The customer's phone number.
+ * @param location      The location the customer belongs to.
+ * @param orderCount    Number of orders the customer ever placed.
+ * @param lifetimeSpend Value of all those orders at the current product prices, exact to the cent.
+ * @param recentOrders  The most recent orders, newest first.
+ */
+public record CustomerDetail(Long id,
+                             String name,
+                             String email,
+                             String phone,
+                             String location,
+                             long orderCount,
+                             BigDecimal lifetimeSpend,
+                             List<Order> recentOrders) {
+
+    /**
+     * Builds the detail of a customer.
+     *
+     * @param customer      The customer.
+     * @param orderCount    Number of orders the customer ever placed.
+     * @param lifetimeSpend Value of all those orders.
+     * @param recentOrders  The most recent orders, newest first.
+     * @return The customer detail.
+     */
+    public static CustomerDetail of(Customer customer, long orderCount, BigDecimal lifetimeSpend, List<Order> recentOrders) {
+        return new CustomerDetail(customer.getId(), customer.getName(), customer.getEmail(), customer.getPhone(),
+                customer.getLocation(), orderCount, lifetimeSpend, recentOrders);
+    }
+}
@@ -0,0 +1,44 @@
+package com.restaurante.gestionpedidos.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Manifest of an order history export, written as manifest.json next to its files.
+ * Only finished partitions are listed; a run that stopped halfway is resumed from the missing ones.
+ *
+ * @param location      Location whose orders are exported.
+ * @param from          First day of the export (inclusive).
+ * @param to            Last day of the export (inclusive).
+ * @param partitionDays Number of days per partition.
+ * @param complete      True once every partition of the period has been written.
+ * @param partitions    The finished partitions, by first day.
+ */
+public record ExportManifest(String location,
+                             LocalDate from,
+                             LocalDate to,
+                             int partitionDays,
+                             boolean complete,
+                             List<Partition> partitions) {
+
+    /**
+     * A finished partition: the orders placed in its days, and their items.
+     *
+     * @param from  First day of the partition (inclusive).
+     * @param to    Last day of the partition (inclusive).
+     * @param files The gzip-compressed CSV files of the partition.
+     */
+    public record Partition(LocalDate from, LocalDate to, List<ExportFile> files) {
+    }
+
+    /**
+     * A file of a partition.
+     *
+     * @param name   File name, relative to the manifest.
+     * @param rows   Number of data rows (the header excluded).
+     * @param bytes  Size of the compressed file.
+     * @param sha256 SHA-256 of the compressed file, in hex (as printed by sha256sum).
+     */
+    public record ExportFile(String name, long rows, long bytes, String sha256) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.restaurante.gestionpedidos.dto;
+
+import java.util.List;
+
+/**
+ * Result of a bulk CSV import.
+ *
+ * @param rowsRead          Number of data rows read from the file (header and blank lines excluded).
+ * @param rowsImported      Number of rows stored in the database.
+ * @param rowsFailed        Number of rows rejected.
+ * @param categoriesCreated Number of categories that did not exist and were created on the fly.
+ * @param errors            Details of the rejected rows (capped, see {@code errorsTruncated}).
+ * @param errorsTruncated   True if more rows failed than are listed in {@code errors}.
+ */
+public record ImportReport(long rowsRead,
+                           long rowsImported,
+                           long rowsFailed,
+                           int categoriesCreated,
+                           List<RowError> errors,
+                           boolean errorsTruncated) {
+
+    /**
+     * A rejected row.
+     *
+     * @param line    Line of the file on which the row starts (the header is line 1).
+     * @param message Why the row was rejected.
+     */
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.restaurante.gestionpedidos.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Sales totals of a period across all restaurant locations, for head-office reports.
+ *
+ * @param from      First day of the period (inclusive).
+ * @param to        Last day of the period (inclusive).
+ * @param orders    Number of orders placed in the period, in all locations.
+ * @param units     Number of product units ordered, in all locations.
+ * @param total     Value of the ordered units, in all locations, exact to the cent.
+ * @param locations The totals of each location, by location key.
+ */
+public record LocationTotals(LocalDate from,
+                             LocalDate to,
+                             long orders,
+                             long units,
+                             BigDecimal total,
+                             Map<String, OrderTotals> locations) {
+}
@@ -0,0 +1,15 @@
+package com.restaurante.gestionpedidos.dto;
+
+/**
+ * Placeholder for an ID of a multi-get request that matched nothing,
+ * kept at the position of the ID so results stay in request order.
+ *
+ * @param id       The requested ID.
+ * @param notFound Always true.
+ */
+public record NotFound(Long id, boolean notFound) {
+
+    public static NotFound of(Long id) {
+        return new NotFound(id, true);
+    }
+}
@@ -0,0 +1,15 @@
+package com.restaurante.gestionpedidos.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals of the items of one order, at the current product prices.
+ *
+ * @param orderId The order ID.
+ * @param units   Number of product units ordered.
+ * @param total   Value of the order, exact to the cent.
+ */
+public record OrderItemTotals(long orderId,
+                              long units,
+                              BigDecimal total) {
+}
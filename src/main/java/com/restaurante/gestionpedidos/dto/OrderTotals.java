@@ -0,0 +1,20 @@
+package com.restaurante.gestionpedidos.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales totals of the orders placed in a period.
+ *
+ * @param from   First day of the period (inclusive).
+ * @param to     Last day of the period (inclusive).
+ * @param orders Number of orders placed in the period.
+ * @param units  Number of product units ordered.
+ * @param total  Value of the ordered units at the current product prices, exact to the cent.
+ */
+public record OrderTotals(LocalDate from,
+                          LocalDate to,
+                          long orders,
+                          long units,
+                          BigDecimal total) {
+}
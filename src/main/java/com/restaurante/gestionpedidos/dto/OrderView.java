@@ -0,0 +1,46 @@
+package com.restaurante.gestionpedidos.dto;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Everything needed to show one order, denormalized into a single object:
+ * the order, its customer's name, and its items with product names, prices and totals.
+ *
+ * @param id           The order ID.
+ * @param location     The location the order belongs to.
+ * @param orderDate    When the order was placed.
+ * @param customerId   The customer's ID.
+ * @param customerName The customer's name.
+ * @param items        The order items, by ID.
+ * @param units        Number of product units ordered.
+ * @param total        Value of the order at the current product prices, exact to the cent.
+ */
+public record OrderView(long id,
+                        String location,
+                        Date orderDate,
+                        long customerId,
+                        String customerName,
+                        List<Line> items,
+                        long units,
+                        BigDecimal total) {
+
+    /**
+     * One item of the order.
+     *
+     * @param id          The order item ID.
+     * @param productId   The product's ID.
+     * @param productName The product's name.
+     * @param quantity    Units ordered.
+     * @param unitPrice   Current price of one unit.
+     * @param lineTotal   Price of all units of the line.
+     */
+    public record Line(long id,
+                       long productId,
+                       String productName,
+                       int quantity,
+                       BigDecimal unitPrice,
+                       BigDecimal lineTotal) {
+    }
+}
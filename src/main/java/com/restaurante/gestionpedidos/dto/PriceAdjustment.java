@@ -0,0 +1,21 @@
+package com.restaurante.gestionpedidos.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Request body for a bulk price change.
+ * Exactly one of {@code percentage} and {@code amount}, and exactly one of
+ * {@code categoryId} and {@code productIds}, must be given.
+ *
+ * @param percentage Relative change, e.g. 10 for +10% or -20 for a 20% discount. New prices are rounded half-up to the cent.
+ * @param amount     Absolute change added to every price, e.g. 0.50 or -1.00 (at most two decimals).
+ *                   Prices never go below zero.
+ * @param categoryId Category whose products are changed.
+ * @param productIds Explicit list of products to change.
+ */
+public record PriceAdjustment(BigDecimal percentage,
+                              BigDecimal amount,
+                              Long categoryId,
+                              List<Long> productIds) {
+}
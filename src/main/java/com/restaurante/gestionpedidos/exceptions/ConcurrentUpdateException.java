@@ -0,0 +1,18 @@
+package com.restaurante.gestionpedidos.exceptions;
+
+/**
+ * Exception thrown when an update is rejected because the entity was modified
+ * by another request in the meantime (optimistic locking conflict).
+ * Controllers translate it into a 409 Conflict response.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the given detail message.
+     *
+     * @param message Description of the conflicting update.
+     */
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.restaurante.gestionpedidos.exceptions;
+
+/**
+ * Exception thrown when an order item asks for more units of a product than are left in stock.
+ * Controllers translate it into a 409 Conflict response.
+ */
+public class OutOfStockException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the given detail message.
+     *
+     * @param message Description of the rejected reservation.
+     */
+    public OutOfStockException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,8 @@
 package com.restaurante.gestionpedidos.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.restaurante.gestionpedidos.config.LocationContext;
 import jakarta.persistence.*;
 import java.util.List;
 
@@ -27,6 +29,14 @@ public class Category {
     @Column(nullable = false, unique = true)
     private String name;
 
+    /**
+     * Restaurant location (branch) the category belongs to.
+     * Set from the location of the request when the category is first saved, and never changed afterwards.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false, updatable = false, length = 32)
+    private String location;
+
     /**
      * One-to-Many relationship with the Product entity.
      * A category can have multiple products.
@@ -110,4 +120,32 @@ public class Category {
     public void setProducts(List<Product> products) {
         this.products = products;
     }
+
+    /**
+     * Gets the location the category belongs to.
+     *
+     * @return The location key.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Sets the location the category belongs to.
+     *
+     * @param location The location key.
+     */
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * Assigns the location of the current request before the first insert.
+     */
+    @PrePersist
+    private void assignLocation() {
+        if (location == null) {
+            location = LocationContext.current();
+        }
+    }
 }
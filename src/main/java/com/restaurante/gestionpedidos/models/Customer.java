@@ -2,6 +2,8 @@ package com.restaurante.gestionpedidos.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.restaurante.gestionpedidos.config.LocationContext;
 import jakarta.persistence.*;
 
 import java.util.List;
@@ -41,6 +43,14 @@ public class Customer {
     @Column(nullable = false)
     private String phone;
 
+    /**
+     * Restaurant location (branch) the customer belongs to.
+     * Set from the location of the request when the customer is first saved, and never changed afterwards.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false, updatable = false, length = 32)
+    private String location;
+
     /**
      * One-to-Many relationship with the Order entity.
      * A customer can have multiple orders.
@@ -164,4 +174,32 @@ public class Customer {
     public void setOrders(List<Order> orders) {
         this.orders = orders;
     }
+
+    /**
+     * Gets the location the customer belongs to.
+     *
+     * @return The location key.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Sets the location the customer belongs to.
+     *
+     * @param location The location key.
+     */
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * Assigns the location of the current request before the first insert.
+     */
+    @PrePersist
+    private void assignLocation() {
+        if (location == null) {
+            location = LocationContext.current();
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package com.restaurante.gestionpedidos.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money helpers.
+ *
+ * Amounts are stored and computed as a {@code long} number of minor units (cents), so sums are
+ * exact and need no boxing. {@link BigDecimal} is only used at the edges, to read and write the
+ * exact decimal form (e.g. 12.50) in JSON and CSV.
+ */
+public final class Money {
+
+    /**
+     * Number of decimal places of the currency (minor units per major unit = 10^SCALE).
+     */
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a decimal amount to minor units.
+     *
+     * @param amount The decimal amount, e.g. 12.5.
+     * @return The amount in minor units, e.g. 1250.
+     * @throws IllegalArgumentException If the amount has more than {@link #SCALE} decimals or does not fit in a long.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        try {
+            return amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid amount " + amount.toPlainString()
+                    + ", at most " + SCALE + " decimals are allowed");
+        }
+    }
+
+    /**
+     * Converts minor units to their exact decimal form.
+     *
+     * @param minorUnits The amount in minor units, e.g. 1250.
+     * @return The decimal amount with {@link #SCALE} decimals, e.g. 12.50.
+     */
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * Adds one line (unit price times quantity) to a running total.
+     *
+     * @param total     The running total in minor units.
+     * @param unitPrice The unit price in minor units.
+     * @param quantity  The number of units.
+     * @return The new total in minor units.
+     * @throws ArithmeticException If the total overflows.
+     */
+    public static long addLine(long total, long unitPrice, int quantity) {
+        return Math.addExact(total, Math.multiplyExact(unitPrice, quantity));
+    }
+
+    /**
+     * Sums the first {@code count} lines of two parallel arrays.
+     *
+     * @param unitPrices The unit prices in minor units.
+     * @param quantities The quantities, at the same positions as the prices.
+     * @param count      The number of lines to sum.
+     * @return The total in minor units.
+     * @throws ArithmeticException If the total overflows.
+     */
+    public static long total(long[] unitPrices, int[] quantities, int count) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total = addLine(total, unitPrices[i], quantities[i]);
+        }
+        return total;
+    }
+}
@@ -2,6 +2,8 @@ package com.restaurante.gestionpedidos.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.restaurante.gestionpedidos.config.LocationContext;
 import jakarta.persistence.*;
 import java.util.Date;
 import java.util.List;
@@ -11,26 +13,28 @@ import java.util.List;
  * This class maps to the "orders" table in the database.
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_customer_date", columnList = "customer_id, order_date"))
 public class Order {
 
     /**
      * Primary key of the order entity.
-     * The ID is auto-generated using identity strategy.
+     * The ID is a time-ordered ID generated by the application (see {@link TimeOrderedIds}),
+     * so newer orders have greater IDs and inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     /**
      * Many-to-One relationship with the Customer entity.
      * Each order is associated with one customer.
      * The "customer_id" column in the orders table serves as the foreign key.
+     * Loaded lazily: it is not part of the order's JSON, and reading its ID does not load it.
      *
      * `@JsonBackReference` prevents infinite recursion when serializing customer orders.
      */
     @JsonBackReference
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
 
@@ -42,6 +46,14 @@ public class Order {
     @Temporal(TemporalType.TIMESTAMP)
     private Date orderDate;
 
+    /**
+     * Restaurant location (branch) the order belongs to.
+     * Set from the location of the request when the order is first saved, and never changed afterwards.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false, updatable = false, length = 32)
+    private String location;
+
     /**
      * One-to-Many relationship with OrderItem entity.
      * Each order can have multiple order items.
@@ -54,6 +66,14 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<OrderItem> orderItems;
 
+    /**
+     * Version counter used for optimistic locking.
+     * Hibernate increments it on every update and rejects writes based on a stale version,
+     * so concurrent edits of the same order are detected instead of silently overwritten.
+     */
+    @Version
+    private Long version;
+
     /**
      * Default constructor.
      * Automatically sets the order date to the current date when an order is created.
@@ -145,4 +165,50 @@ public class Order {
     public void setOrderItems(List<OrderItem> orderItems) {
         this.orderItems = orderItems;
     }
+
+    /**
+     * Gets the optimistic locking version of the order.
+     *
+     * @return The order version.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the optimistic locking version of the order.
+     *
+     * @param version The order version.
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets the location the order belongs to.
+     *
+     * @return The location key.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Sets the location the order belongs to.
+     *
+     * @param location The location key.
+     */
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * Assigns the location of the current request before the first insert.
+     */
+    @PrePersist
+    private void assignLocation() {
+        if (location == null) {
+            location = LocationContext.current();
+        }
+    }
 }
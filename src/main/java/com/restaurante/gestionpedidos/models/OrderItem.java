@@ -7,15 +7,16 @@ import jakarta.persistence.*;
  * This class maps to the "order_items" table in the database.
  */
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = @Index(name = "idx_order_items_order", columnList = "order_id"))
 public class OrderItem {
 
     /**
      * Primary key of the order item entity.
-     * The ID is auto-generated using identity strategy.
+     * The ID is a time-ordered ID generated by the application (see {@link TimeOrderedIds}),
+     * so newer order items have greater IDs and inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     /**
@@ -23,8 +24,9 @@ public class OrderItem {
      * Each order item belongs to one order.
      * The "order_id" column in the order_items table serves as the foreign key.
      * This field cannot be null.
+     * Loaded lazily: queries whose items are returned fetch it (see OrderItemRepository).
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
@@ -33,8 +35,9 @@ public class OrderItem {
      * Each order item is associated with one product.
      * The "product_id" column in the order_items table serves as the foreign key.
      * This field cannot be null.
+     * Loaded lazily, like {@link #order}.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
@@ -45,6 +48,14 @@ public class OrderItem {
     @Column(nullable = false)
     private Integer quantity;
 
+    /**
+     * Version counter used for optimistic locking.
+     * Hibernate increments it on every update and rejects writes based on a stale version,
+     * so concurrent edits of the same item are detected instead of silently overwritten.
+     */
+    @Version
+    private Long version;
+
     /**
      * Default constructor.
      * Required by JPA.
@@ -138,4 +149,22 @@ public class OrderItem {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
+
+    /**
+     * Gets the optimistic locking version of the order item.
+     *
+     * @return The order item version.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the optimistic locking version of the order item.
+     *
+     * @param version The order item version.
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
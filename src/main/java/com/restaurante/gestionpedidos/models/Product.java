@@ -1,9 +1,14 @@
 package com.restaurante.gestionpedidos.models;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.restaurante.gestionpedidos.config.LocationContext;
 import jakarta.persistence.*;
 
+import java.math.BigDecimal;
+
 /**
  * Entity class representing a product in the system.
  * This class maps to the "products" table in the database.
@@ -27,10 +32,13 @@ public class Product {
     private String name;
 
     /**
-     * Price of the product. It is a required field (cannot be null).
+     * Price of the product in minor units (cents). It is a required field (cannot be null).
+     * Kept as a whole number so prices and order totals are exact; exposed in JSON
+     * as a decimal through {@link #getPrice()} (see {@link Money}).
      */
-    @Column(nullable = false)
-    private Double price;
+    @JsonIgnore
+    @Column(name = "price_cents", nullable = false)
+    private Long priceCents;
 
     /**
      * Description of the product. It is a required field (cannot be null).
@@ -38,14 +46,38 @@ public class Product {
     @Column(nullable = false)
     private String description;
 
+    /**
+     * Units available for sale.
+     * A null value means stock is not tracked for this product and it never sells out.
+     * Only modified through conditional single-statement updates (see ProductRepository).
+     */
+    private Integer stock;
+
+    /**
+     * Number of stock shards for hot products.
+     * When greater than 1, the available units live in the "product_stock_shards" table,
+     * spread over this many rows so concurrent orders don't all wait on a single row lock.
+     * A null value means the stock is kept in the {@link #stock} column.
+     */
+    private Integer stockShards;
+
+    /**
+     * Restaurant location (branch) the product belongs to.
+     * Set from the location of the request when the product is first saved, and never changed afterwards.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(nullable = false, updatable = false, length = 32)
+    private String location;
+
     /**
      * Many-to-One relationship with the Category entity.
      * Each product belongs to one category.
      * The "category_id" column in the products table serves as the foreign key.
      * The category field cannot be null.
+     * Loaded lazily: queries whose products are returned fetch it (see ProductRepository).
      */
     //@JsonManagedReference
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
@@ -64,9 +96,9 @@ public class Product {
      * @param description The description of the product.
      * @param category    The category to which the product belongs.
      */
-    public Product(String name, Double price, String description, Category category) {
+    public Product(String name, BigDecimal price, String description, Category category) {
         this.name = name;
-        this.price = price;
+        setPrice(price);
         this.description = description;
         this.category = category;
     }
@@ -112,19 +144,38 @@ public class Product {
     /**
      * Gets the price of the product.
      *
-     * @return The product price.
+     * @return The product price with two decimals, or null if not set.
      */
-    public Double getPrice() {
-        return price;
+    public BigDecimal getPrice() {
+        return priceCents == null ? null : Money.toDecimal(priceCents);
     }
 
     /**
      * Sets the price of the product.
      *
-     * @param price The new product price.
+     * @param price The new product price, with at most two decimals.
+     * @throws IllegalArgumentException If the price has more than two decimals.
+     */
+    public void setPrice(BigDecimal price) {
+        this.priceCents = price == null ? null : Money.toMinorUnits(price);
+    }
+
+    /**
+     * Gets the price of the product in minor units.
+     *
+     * @return The product price in cents, or null if not set.
+     */
+    public Long getPriceCents() {
+        return priceCents;
+    }
+
+    /**
+     * Sets the price of the product in minor units.
+     *
+     * @param priceCents The new product price in cents.
      */
-    public void setPrice(Double price) {
-        this.price = price;
+    public void setPriceCents(Long priceCents) {
+        this.priceCents = priceCents;
     }
 
     /**
@@ -162,4 +213,68 @@ public class Product {
     public void setCategory(Category category) {
         this.category = category;
     }
+
+    /**
+     * Gets the units available for sale.
+     *
+     * @return The stock, or null if stock is not tracked (or is kept in shards).
+     */
+    public Integer getStock() {
+        return stock;
+    }
+
+    /**
+     * Sets the units available for sale.
+     *
+     * @param stock The new stock, or null to stop tracking stock.
+     */
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    /**
+     * Gets the number of stock shards.
+     *
+     * @return The number of shards, or null if the stock is not sharded.
+     */
+    public Integer getStockShards() {
+        return stockShards;
+    }
+
+    /**
+     * Sets the number of stock shards.
+     *
+     * @param stockShards The new number of shards.
+     */
+    public void setStockShards(Integer stockShards) {
+        this.stockShards = stockShards;
+    }
+
+    /**
+     * Gets the location the product belongs to.
+     *
+     * @return The location key.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Sets the location the product belongs to.
+     *
+     * @param location The location key.
+     */
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * Assigns the location of the current request before the first insert.
+     */
+    @PrePersist
+    private void assignLocation() {
+        if (location == null) {
+            location = LocationContext.current();
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package com.restaurante.gestionpedidos.models;
+
+import jakarta.persistence.*;
+
+/**
+ * Entity class representing one slice of the stock of a hot product.
+ * This class maps to the "product_stock_shards" table in the database.
+ *
+ * The stock of a sharded product is the sum of the quantities of all of its shards.
+ * Each reservation decrements a single shard, so concurrent orders spread their
+ * row locks over several rows instead of queuing on the product row.
+ */
+@Entity
+@Table(name = "product_stock_shards",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "shard"}))
+public class ProductStockShard {
+
+    /**
+     * Primary key of the shard entity.
+     * The ID is auto-generated using identity strategy.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID of the product this shard belongs to.
+     */
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * Index of the shard, from 0 to the product's number of shards minus one.
+     */
+    @Column(nullable = false)
+    private Integer shard;
+
+    /**
+     * Units available in this shard. This field cannot be null.
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * Default constructor.
+     * Required by JPA.
+     */
+    public ProductStockShard() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a shard with values.
+     *
+     * @param productId The ID of the product.
+     * @param shard     The index of the shard.
+     * @param quantity  The units available in the shard.
+     */
+    public ProductStockShard(Long productId, Integer shard, Integer quantity) {
+        this.productId = productId;
+        this.shard = shard;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+
+    /**
+     * Gets the shard ID.
+     *
+     * @return The shard ID.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the shard ID.
+     *
+     * @param id The new shard ID.
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID of the product.
+     *
+     * @return The product ID.
+     */
+    public Long getProductId() {
+        return productId;
+    }
+
+    /**
+     * Sets the ID of the product.
+     *
+     * @param productId The new product ID.
+     */
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    /**
+     * Gets the index of the shard.
+     *
+     * @return The shard index.
+     */
+    public Integer getShard() {
+        return shard;
+    }
+
+    /**
+     * Sets the index of the shard.
+     *
+     * @param shard The new shard index.
+     */
+    public void setShard(Integer shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * Gets the units available in the shard.
+     *
+     * @return The quantity.
+     */
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Sets the units available in the shard.
+     *
+     * @param quantity The new quantity.
+     */
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
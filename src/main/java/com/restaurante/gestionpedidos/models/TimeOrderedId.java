@@ -0,0 +1,18 @@
+package com.restaurante.gestionpedidos.models;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an ID generated in memory by {@link TimeOrderedIdGenerator}, instead of by the database.
+ * The ID is known before the INSERT, so Hibernate can send inserts in JDBC batches.
+ */
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
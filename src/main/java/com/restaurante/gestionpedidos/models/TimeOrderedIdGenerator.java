@@ -0,0 +1,34 @@
+package com.restaurante.gestionpedidos.models;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Hibernate generator behind {@link TimeOrderedId}, on the shared {@link TimeOrderedIds} of the node.
+ * The node number is read from the Hibernate setting {@value #NODE_SETTING}
+ * (spring.jpa.properties.gestionpedidos.id-node), 0 if not set.
+ */
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    public static final String NODE_SETTING = "gestionpedidos.id-node";
+
+    private TimeOrderedIds ids = TimeOrderedIds.forNode(0);
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        Object node = serviceRegistry.requireService(ConfigurationService.class).getSettings().get(NODE_SETTING);
+        if (node != null) {
+            ids = TimeOrderedIds.forNode(Integer.parseInt(node.toString().trim()));
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return ids.next();
+    }
+}
@@ -2,14 +2,20 @@ package com.restaurante.gestionpedidos.repositories;
 
 import com.restaurante.gestionpedidos.models.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface CategoryRepository extends JpaRepository<Category, Long> {
+public interface CategoryRepository extends JpaRepository<Category, Long>, FieldProjectionRepository {
     @Query("SELECT c FROM Category c LEFT JOIN FETCH c.products")
     List<Category> findAllWithProducts();
-}
 
+    // Deletes only the category row; dependents must already be gone (see CategoryService.deleteCategory)
+    @Modifying
+    @Query("DELETE FROM Category c WHERE c.id = :id")
+    int deleteCategoryRow(@Param("id") Long id);
+}
@@ -2,18 +2,18 @@ package com.restaurante.gestionpedidos.repositories;
 
 import com.restaurante.gestionpedidos.models.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
-    @Query("SELECT c FROM Customer c LEFT JOIN FETCH c.orders WHERE c.id = :id")
-    Optional<Customer> findByIdWithOrders(@Param("id") Long id);
-
-    @Query("SELECT c FROM Customer c LEFT JOIN FETCH c.orders")
-    List<Customer> findAllWithOrders();
+public interface CustomerRepository extends JpaRepository<Customer, Long>, FieldProjectionRepository {
+    // Deletes only the customer row; dependents must already be gone (see CustomerService.deleteCustomer)
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = :id")
+    int deleteCustomerRow(@Param("id") Long id);
 }
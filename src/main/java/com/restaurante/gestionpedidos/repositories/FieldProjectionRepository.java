@@ -0,0 +1,23 @@
+package com.restaurante.gestionpedidos.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Repository fragment for sparse fieldsets ({@code ?fields=}).
+ * Rows are read with dynamic projections that select only the requested columns
+ * and are returned as maps shaped like the entity's JSON, restricted to those fields.
+ */
+public interface FieldProjectionRepository {
+
+    // All rows of the entity, ordered by ID
+    List<Map<String, Object>> findAllProjected(FieldSet fields);
+
+    // One row by ID
+    Optional<Map<String, Object>> findProjectedById(FieldSet fields, Long id);
+
+    // The rows with the given IDs, ordered by ID (missing IDs are simply absent)
+    List<Map<String, Object>> findAllProjectedById(FieldSet fields, Collection<Long> ids);
+}
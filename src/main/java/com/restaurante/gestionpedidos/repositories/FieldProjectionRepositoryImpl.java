@@ -0,0 +1,84 @@
+package com.restaurante.gestionpedidos.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Criteria implementation of {@link FieldProjectionRepository}.
+ *
+ * Builds a tuple query that selects only the columns of a {@link FieldSet}, so unused columns
+ * (long descriptions, contact details) are never read, and returns each row as a map shaped like
+ * the entity's JSON restricted to those fields.
+ */
+class FieldProjectionRepositoryImpl implements FieldProjectionRepository {
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    FieldProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjected(FieldSet fields) {
+        return query(fields, null);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findProjectedById(FieldSet fields, Long id) {
+        return query(fields, (builder, root) -> builder.equal(root.get("id"), id)).stream().findFirst();
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllProjectedById(FieldSet fields, Collection<Long> ids) {
+        return query(fields, (builder, root) -> root.get("id").in(ids));
+    }
+
+    private List<Map<String, Object>> query(FieldSet fields, BiFunction<CriteriaBuilder, Root<?>, Predicate> where) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<?> root = query.from(fields.getEntityType());
+
+        List<Selection<?>> columns = new ArrayList<>();
+        for (FieldSet.Column column : fields.getColumns()) {
+            // Path navigation joins only for properties of a related entity; a relation's ID comes from the foreign key
+            Path<?> path = root;
+            for (String attribute : column.attributePath()) {
+                path = path.get(attribute);
+            }
+            columns.add(path);
+        }
+        query.multiselect(columns).orderBy(builder.asc(root.get("id")));
+        if (where != null) {
+            query.where(where.apply(builder, root));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            rows.add(toMap(fields, tuple));
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(FieldSet fields, Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        List<FieldSet.Column> columns = fields.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            FieldSet.Column column = columns.get(i);
+            Object value = tuple.get(i);
+            Map<String, Object> target = row;
+            List<String> jsonPath = column.jsonPath();
+            for (String key : jsonPath.subList(0, jsonPath.size() - 1)) {
+                target = (Map<String, Object>) target.computeIfAbsent(key, k -> new LinkedHashMap<String, Object>());
+            }
+            target.put(jsonPath.get(jsonPath.size() - 1), value == null ? null : column.converter().apply(value));
+        }
+        return row;
+    }
+}
@@ -0,0 +1,153 @@
+package com.restaurante.gestionpedidos.repositories;
+
+import com.restaurante.gestionpedidos.models.*;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Sparse fieldset: the properties a client asked for with {@code ?fields=}, resolved against the
+ * projectable properties of one entity.
+ *
+ * Scalar properties map to one column each. A relation on its own (e.g. {@code category}) is
+ * returned as a reference holding only its ID, read from the foreign key; {@code relation.property}
+ * (e.g. {@code product.name}) selects a property of the related entity through a join.
+ * The ID is always included. Collections (a customer's orders, a category's products) are not projectable.
+ */
+public final class FieldSet {
+
+    private static final Map<Class<?>, Map<String, Property>> PROPERTIES = Map.of(
+            Category.class, properties(
+                    Property.scalar("id"),
+                    Property.scalar("name"),
+                    Property.scalar("location")),
+            Customer.class, properties(
+                    Property.scalar("id"),
+                    Property.scalar("name"),
+                    Property.scalar("email"),
+                    Property.scalar("phone"),
+                    Property.scalar("location")),
+            Product.class, properties(
+                    Property.scalar("id"),
+                    Property.scalar("name"),
+                    new Property("price", "priceCents", value -> Money.toDecimal((Long) value), null),
+                    Property.scalar("description"),
+                    Property.scalar("stock"),
+                    Property.scalar("stockShards"),
+                    Property.scalar("location"),
+                    Property.relation("category", Category.class)),
+            Order.class, properties(
+                    Property.scalar("id"),
+                    Property.relation("customer", Customer.class),
+                    Property.scalar("orderDate"),
+                    Property.scalar("location"),
+                    Property.scalar("version")),
+            OrderItem.class, properties(
+                    Property.scalar("id"),
+                    Property.relation("order", Order.class),
+                    Property.relation("product", Product.class),
+                    Property.scalar("quantity"),
+                    Property.scalar("version")));
+
+    private final Class<?> entityType;
+    private final List<Column> columns;
+
+    private FieldSet(Class<?> entityType, List<Column> columns) {
+        this.entityType = entityType;
+        this.columns = columns;
+    }
+
+    /**
+     * Resolves a comma-separated field list, e.g. {@code "id,name,category.name"}.
+     *
+     * @param entityType The entity the fields belong to.
+     * @param fields     The requested fields.
+     * @return The resolved fieldset, always including the ID.
+     * @throws IllegalArgumentException If a field is unknown or not projectable.
+     */
+    public static FieldSet of(Class<?> entityType, String fields) {
+        Map<String, Column> columns = new LinkedHashMap<>();
+        columns.put("id", resolve(entityType, "id"));
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!name.isEmpty()) {
+                columns.putIfAbsent(name, resolve(entityType, name));
+            }
+        }
+        return new FieldSet(entityType, List.copyOf(columns.values()));
+    }
+
+    /**
+     * Gets the entity the fields belong to.
+     *
+     * @return The entity class.
+     */
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Gets the selected columns, in the order they appear in the query.
+     *
+     * @return The columns.
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    private static Column resolve(Class<?> entityType, String field) {
+        List<String> jsonPath = new ArrayList<>();
+        List<String> attributePath = new ArrayList<>();
+        Class<?> type = entityType;
+        String[] segments = field.split("\\.");
+        for (int i = 0; i < segments.length; i++) {
+            Property property = PROPERTIES.get(type).get(segments[i]);
+            if (property == null) {
+                throw new IllegalArgumentException("Unknown field '" + field + "', available fields are "
+                        + String.join(", ", PROPERTIES.get(type).keySet()));
+            }
+            jsonPath.add(property.name());
+            attributePath.add(property.attribute());
+            if (property.relation() == null) {
+                if (i < segments.length - 1) {
+                    throw new IllegalArgumentException("Field '" + field + "' goes past the scalar '" + segments[i] + "'");
+                }
+                return new Column(jsonPath, attributePath, property.converter());
+            }
+            type = property.relation();
+        }
+        // A relation on its own is returned as a reference to the related entity
+        jsonPath.add("id");
+        attributePath.add("id");
+        return new Column(jsonPath, attributePath, Function.identity());
+    }
+
+    private static Map<String, Property> properties(Property... properties) {
+        Map<String, Property> byName = new LinkedHashMap<>();
+        for (Property property : properties) {
+            byName.put(property.name(), property);
+        }
+        return byName;
+    }
+
+    /**
+     * One selected column.
+     *
+     * @param jsonPath      Where the value goes in the response, e.g. [category, id].
+     * @param attributePath The entity attributes leading to the column, e.g. [category, id].
+     * @param converter     Conversion from the column value to its JSON form (applied to non-null values).
+     */
+    public record Column(List<String> jsonPath, List<String> attributePath, Function<Object, Object> converter) {
+    }
+
+    private record Property(String name, String attribute, Function<Object, Object> converter, Class<?> relation) {
+
+        static Property scalar(String name) {
+            return new Property(name, name, Function.identity(), null);
+        }
+
+        static Property relation(String name, Class<?> type) {
+            return new Property(name, name, Function.identity(), type);
+        }
+    }
+}
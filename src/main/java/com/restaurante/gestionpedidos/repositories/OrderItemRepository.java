@@ -1,9 +1,60 @@
 package com.restaurante.gestionpedidos.repositories;
 
 import com.restaurante.gestionpedidos.models.OrderItem;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, FieldProjectionRepository {
+    // Items with everything their JSON shows (order, product and its category), in one statement
+    @Query("SELECT oi FROM OrderItem oi JOIN FETCH oi.order JOIN FETCH oi.product p LEFT JOIN FETCH p.category WHERE oi.id = :id")
+    Optional<OrderItem> findByIdWithOrderAndProduct(@Param("id") Long id);
+
+    @Query("SELECT oi FROM OrderItem oi JOIN FETCH oi.order JOIN FETCH oi.product p LEFT JOIN FETCH p.category")
+    List<OrderItem> findAllWithOrderAndProduct();
+
+    // One chunk of an order's items after the given item ID, in ID order, with their product (GET /orders/{id}/items)
+    @EntityGraph(attributePaths = "product")
+    List<OrderItem> findByOrderIdAndIdGreaterThanOrderById(Long orderId, Long id, Limit limit);
+
+    // Whether any product of the category is on an order (such categories are not deleted)
+    boolean existsByProductCategoryId(Long categoryId);
+
+    // ID chunks of dependent rows for the set-based cascading deletes
+    @Query("SELECT oi.id FROM OrderItem oi WHERE oi.order.customer.id = :customerId")
+    List<Long> findIdsByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    // Locks items about to be deleted in bulk, so the units given back are the ones stored when they go
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.id IN :ids")
+    List<OrderItem> findAllForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.order.id = :orderId")
+    List<OrderItem> findByOrderIdForUpdate(@Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("DELETE FROM OrderItem oi WHERE oi.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // Deletes the item only if it still has the version it was read with; 0 if it changed or is already gone
+    @Modifying
+    @Query("DELETE FROM OrderItem oi WHERE oi.id = :id AND oi.version = :version")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Modifying
+    @Query("DELETE FROM OrderItem oi WHERE oi.order.id = :orderId")
+    int deleteByOrderId(@Param("orderId") Long orderId);
 }
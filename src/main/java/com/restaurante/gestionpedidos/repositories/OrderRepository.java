@@ -1,9 +1,65 @@
 package com.restaurante.gestionpedidos.repositories;
 
 import com.restaurante.gestionpedidos.models.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, FieldProjectionRepository {
+    // Fetches the (eager) customer in the same query instead of one extra select per customer
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer WHERE o.id IN :ids")
+    List<Order> findAllWithCustomerById(@Param("ids") Collection<Long> ids);
+
+    // A customer's orders, newest first (served by the index on customer_id and order_date)
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer WHERE o.customer.id = :customerId ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findRecentByCustomerId(@Param("customerId") Long customerId, Limit limit);
+
+    @Query(value = "SELECT o FROM Order o JOIN FETCH o.customer WHERE o.customer.id = :customerId ORDER BY o.orderDate DESC, o.id DESC",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.customer.id = :customerId")
+    Page<Order> findPageByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    long countByCustomerId(Long customerId);
+
+    // The most recent orders (at most :limit) of each of the customers, newest first; the customers are expected to
+    // be loaded already, so their orders resolve to them without further queries
+    @Query(value = "SELECT id, customer_id, order_date, location, version FROM (" +
+            "SELECT o.id, o.customer_id, o.order_date, o.location, o.version, " +
+            "ROW_NUMBER() OVER (PARTITION BY o.customer_id ORDER BY o.order_date DESC, o.id DESC) AS position " +
+            "FROM orders o WHERE o.customer_id IN (:customerIds)) recent " +
+            "WHERE position <= :limit ORDER BY customer_id, order_date DESC, id DESC", nativeQuery = true)
+    List<Order> findRecentByCustomerIds(@Param("customerIds") Collection<Long> customerIds, @Param("limit") int limit);
+
+    // Order count per customer, as (customer ID, count) rows
+    @Query("SELECT o.customer.id, COUNT(o) FROM Order o WHERE o.customer.id IN :customerIds GROUP BY o.customer.id")
+    List<Object[]> countByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
+
+    // Value of all of a customer's orders at the current product prices, in cents
+    @Query("SELECT COALESCE(SUM(oi.quantity * oi.product.priceCents), 0) FROM OrderItem oi WHERE oi.order.customer.id = :customerId")
+    long sumCentsByCustomerId(@Param("customerId") Long customerId);
+
+    // Value of the orders of each customer in cents, as (customer ID, cents) rows
+    @Query("SELECT oi.order.customer.id, SUM(oi.quantity * oi.product.priceCents) FROM OrderItem oi " +
+            "WHERE oi.order.customer.id IN :customerIds GROUP BY oi.order.customer.id")
+    List<Object[]> sumCentsByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
+
+    @Query("SELECT o.id FROM Order o WHERE o.customer.id = :customerId")
+    List<Long> findIdsByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Order o WHERE o.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // Deletes only the order row; its items must already be gone (see OrderService.deleteOrder)
+    @Modifying
+    @Query("DELETE FROM Order o WHERE o.id = :id")
+    int deleteOrderRow(@Param("id") Long id);
 }
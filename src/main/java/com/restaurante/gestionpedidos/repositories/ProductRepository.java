@@ -2,19 +2,75 @@ package com.restaurante.gestionpedidos.repositories;
 
 import com.restaurante.gestionpedidos.models.Customer;
 import com.restaurante.gestionpedidos.models.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, FieldProjectionRepository {
     @Query("SELECT c FROM Product c LEFT JOIN FETCH c.category WHERE c.id = :id")
     Optional<Product> findByIdWithCategory(@Param("id") Long id);
 
     @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category")
     List<Product> findAllWithCategory();
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id IN :ids")
+    List<Product> findAllWithCategoryById(@Param("ids") Collection<Long> ids);
+
+    // Plain (non-locking) read of the stock mode, so checking it never waits on the product row
+    @Query("SELECT p.stockShards FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockShardsById(@Param("id") Long id);
+
+    // Takes the units only if enough are left; untracked stock (null) always succeeds and stays null
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.id = :id AND (p.stock IS NULL OR p.stock >= :quantity)")
+    int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.id = :id AND p.stock IS NOT NULL")
+    int releaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = :stock, p.stockShards = :stockShards WHERE p.id = :id")
+    int updateStock(@Param("id") Long id, @Param("stock") Integer stock, @Param("stockShards") Integer stockShards);
+
+    // Bulk price changes: one set-based UPDATE each, clearing the persistence context so no stale prices survive.
+    // Prices are whole cents: the factor is applied in exact decimal arithmetic and rounded half-up to the cent.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.priceCents = CAST(ROUND(p.priceCents * CAST(:factor AS BigDecimal(19, 10)), 0) AS Long) WHERE p.category.id = :categoryId")
+    int scalePricesByCategory(@Param("categoryId") Long categoryId, @Param("factor") BigDecimal factor);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.priceCents = CAST(ROUND(p.priceCents * CAST(:factor AS BigDecimal(19, 10)), 0) AS Long) WHERE p.id IN :ids")
+    int scalePricesByIds(@Param("ids") Collection<Long> ids, @Param("factor") BigDecimal factor);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.priceCents = CASE WHEN p.priceCents + :amountCents < 0 THEN 0 ELSE p.priceCents + :amountCents END " +
+            "WHERE p.category.id = :categoryId")
+    int shiftPricesByCategory(@Param("categoryId") Long categoryId, @Param("amountCents") long amountCents);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.priceCents = CASE WHEN p.priceCents + :amountCents < 0 THEN 0 ELSE p.priceCents + :amountCents END " +
+            "WHERE p.id IN :ids")
+    int shiftPricesByIds(@Param("ids") Collection<Long> ids, @Param("amountCents") long amountCents);
+
+    @Query("SELECT p.id FROM Product p WHERE p.category.id = :categoryId")
+    List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // Deletes only the product row (see ProductService.deleteProduct)
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.id = :id")
+    int deleteProductRow(@Param("id") Long id);
 }
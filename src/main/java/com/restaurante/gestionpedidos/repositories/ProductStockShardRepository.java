@@ -0,0 +1,43 @@
+package com.restaurante.gestionpedidos.repositories;
+
+import com.restaurante.gestionpedidos.models.ProductStockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, Long> {
+    // Takes the units from a single shard only if that shard has enough left
+    @Modifying
+    @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity - :quantity " +
+            "WHERE s.productId = :productId AND s.shard = :shard AND s.quantity >= :quantity")
+    int reserve(@Param("productId") Long productId, @Param("shard") int shard, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity + :quantity " +
+            "WHERE s.productId = :productId AND s.shard = :shard")
+    int release(@Param("productId") Long productId, @Param("shard") int shard, @Param("quantity") int quantity);
+
+    // Locks every shard of a product, always in the same order to avoid deadlocks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId ORDER BY s.shard")
+    List<ProductStockShard> findAllForUpdate(@Param("productId") Long productId);
+
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.productId = :productId")
+    long sumQuantity(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("DELETE FROM ProductStockShard s WHERE s.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("DELETE FROM ProductStockShard s WHERE s.productId IN :productIds")
+    int deleteByProductIds(@Param("productIds") Collection<Long> productIds);
+}
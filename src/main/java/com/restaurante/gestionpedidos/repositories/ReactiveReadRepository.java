@@ -0,0 +1,108 @@
+package com.restaurante.gestionpedidos.repositories;
+
+import com.restaurante.gestionpedidos.models.Category;
+import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.models.Product;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking, read-only queries for the reactive API, over R2DBC on the same tables JPA maps.
+ * Rows are mapped straight onto the (detached) entity classes, so the JSON matches the regular endpoints.
+ * Lists are streamed row by row as the subscriber requests them.
+ */
+@Repository
+public class ReactiveReadRepository {
+
+    private static final String SELECT_PRODUCTS = "SELECT p.id, p.name, p.price_cents, p.description, p.stock, p.stock_shards, p.location, " +
+            "c.id AS category_id, c.name AS category_name, c.location AS category_location FROM products p JOIN categories c ON c.id = p.category_id ";
+    private static final String SELECT_CATEGORIES = "SELECT id, name, location FROM categories ";
+    private static final String SELECT_ORDERS = "SELECT id, order_date, location, version FROM orders ";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveReadRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // All products (optionally of one category), ordered by ID
+    public Flux<Product> findAllProducts(Long categoryId) {
+        if (categoryId == null) {
+            return databaseClient.sql(SELECT_PRODUCTS + "ORDER BY p.id").map(ReactiveReadRepository::toProduct).all();
+        }
+        return databaseClient.sql(SELECT_PRODUCTS + "WHERE p.category_id = :categoryId ORDER BY p.id")
+                .bind("categoryId", categoryId)
+                .map(ReactiveReadRepository::toProduct).all();
+    }
+
+    public Mono<Product> findProductById(Long id) {
+        return databaseClient.sql(SELECT_PRODUCTS + "WHERE p.id = :id").bind("id", id)
+                .map(ReactiveReadRepository::toProduct).one();
+    }
+
+    // All categories, ordered by ID
+    public Flux<Category> findAllCategories() {
+        return databaseClient.sql(SELECT_CATEGORIES + "ORDER BY id").map(ReactiveReadRepository::toCategory).all();
+    }
+
+    public Mono<Category> findCategoryById(Long id) {
+        return databaseClient.sql(SELECT_CATEGORIES + "WHERE id = :id").bind("id", id)
+                .map(ReactiveReadRepository::toCategory).one();
+    }
+
+    // All orders (optionally of one customer), ordered by ID
+    public Flux<Order> findAllOrders(Long customerId) {
+        if (customerId == null) {
+            return databaseClient.sql(SELECT_ORDERS + "ORDER BY id").map(ReactiveReadRepository::toOrder).all();
+        }
+        return databaseClient.sql(SELECT_ORDERS + "WHERE customer_id = :customerId ORDER BY id")
+                .bind("customerId", customerId)
+                .map(ReactiveReadRepository::toOrder).all();
+    }
+
+    public Mono<Order> findOrderById(Long id) {
+        return databaseClient.sql(SELECT_ORDERS + "WHERE id = :id").bind("id", id)
+                .map(ReactiveReadRepository::toOrder).one();
+    }
+
+    private static Product toProduct(Readable row) {
+        Category category = new Category(row.get("category_name", String.class));
+        category.setId(row.get("category_id", Long.class));
+        category.setLocation(row.get("category_location", String.class));
+        Product product = new Product();
+        product.setId(row.get("id", Long.class));
+        product.setName(row.get("name", String.class));
+        product.setPriceCents(row.get("price_cents", Long.class));
+        product.setDescription(row.get("description", String.class));
+        product.setStock(row.get("stock", Integer.class));
+        product.setStockShards(row.get("stock_shards", Integer.class));
+        product.setLocation(row.get("location", String.class));
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category toCategory(Readable row) {
+        Category category = new Category(row.get("name", String.class));
+        category.setId(row.get("id", Long.class));
+        category.setLocation(row.get("location", String.class));
+        return category;
+    }
+
+    private static Order toOrder(Readable row) {
+        LocalDateTime orderDate = row.get("order_date", LocalDateTime.class);
+        Order order = new Order();
+        order.setId(row.get("id", Long.class));
+        order.setOrderDate(orderDate == null ? null : Timestamp.valueOf(orderDate));
+        order.setLocation(row.get("location", String.class));
+        order.setVersion(row.get("version", Long.class));
+        return order;
+    }
+}
@@ -0,0 +1,27 @@
+package com.restaurante.gestionpedidos.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers changes to in-memory state (read models, filters) until the database change behind them is committed.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    // Runs a change once the current transaction (if any) has committed, so a rolled-back write changes nothing
+    static void run(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
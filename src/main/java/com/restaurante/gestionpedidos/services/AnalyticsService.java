@@ -0,0 +1,406 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.config.Locations;
+import com.restaurante.gestionpedidos.models.Money;
+import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.models.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Ad-hoc analytics over order items (gestionpedidos.analytics.enabled): units and revenue filtered by period,
+ * product, category or customer and grouped by up to two of hour, day, product, category and customer.
+ *
+ * Queries run on an in-memory {@link OrderItemFacts} store per location, scanned in parallel, instead of
+ * joining the live tables. Each store is loaded from the database once, at startup, and then kept up to date
+ * by the write paths of orders, items, products, categories and customers. Changes made through other
+ * instances are not seen until the next start.
+ *
+ * The load reads one consistent snapshot. Changes reported from the moment the load starts, before the snapshot
+ * is taken, are queued and applied once it is read, except for the item changes whose IDs and versions the
+ * snapshot already holds, so each change is applied exactly once. Until then queries of that location are refused.
+ */
+@Service
+@ConditionalOnProperty(name = "gestionpedidos.analytics.enabled", havingValue = "true")
+public class AnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsService.class);
+
+    // Upper bound for the groups of one query
+    static final int MAX_GROUPS = 100_000;
+    // Rows read per statement while loading
+    private static final int LOAD_CHUNK = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final Locations locations;
+    private final LocalMinutes zone = new LocalMinutes();
+
+    private final Map<String, LocationFacts> byLocation = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AnalyticsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, Locations locations) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.locations = locations;
+    }
+
+    // Loads every location in the background once the application (and its schema) is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        locations.names().forEach(this::loadInBackground);
+    }
+
+    // Units and revenue of the order items placed between two days (both inclusive, either may be left open),
+    // optionally filtered, grouped by the listed dimensions (hour, day, product, category, customer)
+    public List<Map<String, Object>> getOrderItemTotals(LocalDate from, LocalDate to, List<String> groupBy,
+                                                        Long productId, Long categoryId, Long customerId) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        List<OrderItemFacts.Dimension> dimensions = dimensions(groupBy);
+        OrderItemFacts.Query query = new OrderItemFacts.Query(
+                from != null ? zone.minute(from) : Integer.MIN_VALUE,
+                to != null ? zone.minute(to.plusDays(1)) : Integer.MAX_VALUE,
+                productId, categoryId, customerId, dimensions);
+
+        List<OrderItemFacts.Group> groups = loaded().query(query, ForkJoinPool.commonPool());
+        if (groups.size() > MAX_GROUPS) {
+            throw new IllegalArgumentException("The query has more than " + MAX_GROUPS + " groups, narrow the period or the grouping");
+        }
+        if (groups.isEmpty() && dimensions.isEmpty()) {
+            groups = List.of(new OrderItemFacts.Group(List.of(), 0, 0));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(groups.size());
+        for (OrderItemFacts.Group group : groups) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < dimensions.size(); i++) {
+                row.put(column(dimensions.get(i)), group.keys().get(i));
+            }
+            row.put("units", group.units());
+            row.put("revenue", Money.toDecimal(group.revenueCents()));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // A new or changed order (its time or customer)
+    void orderSaved(Order order) {
+        long orderId = order.getId();
+        long customerId = order.getCustomer().getId();
+        int minute = order.getOrderDate() != null ? zone.minute(order.getOrderDate()) : OrderItemFacts.EXCLUDED;
+        record(facts -> facts.order(orderId, customerId, minute));
+    }
+
+    void orderDeleted(Long orderId) {
+        record(facts -> facts.deleteOrder(orderId));
+    }
+
+    // Units of a product added to (or, negative, removed from) an order by a write that left the item at the
+    // given version (a delete counts as one version more than the item had)
+    void itemChanged(Long itemId, long version, Long orderId, Long productId, int quantity) {
+        if (quantity == 0) {
+            return;
+        }
+        OrderItemFacts current = byLocation.computeIfAbsent(LocationContext.current(), location -> new LocationFacts()).facts;
+        // Orders and products written elsewhere (another instance, the CSV import) are read here, while in the caller's location
+        Consumer<OrderItemFacts> order = current.hasOrder(orderId) ? facts -> { } : lookUpOrder(orderId);
+        Consumer<OrderItemFacts> product = current.hasProduct(productId) ? facts -> { } : lookUpProduct(productId);
+        if (order == null || product == null) {
+            return;  // Deleted meanwhile
+        }
+        record(new Change(facts -> {
+            if (!facts.hasOrder(orderId)) {
+                order.accept(facts);
+            }
+            if (!facts.hasProduct(productId)) {
+                product.accept(facts);
+            }
+            facts.add(orderId, productId, quantity);
+        }, itemId, version));
+    }
+
+    // A new product, or a changed price
+    void productSaved(Product product) {
+        long productId = product.getId();
+        long categoryId = product.getCategory().getId();
+        long priceCents = product.getPriceCents();
+        record(facts -> facts.product(productId, categoryId, priceCents));
+    }
+
+    // Prices changed in bulk: the current prices of the location are read again
+    void pricesChanged() {
+        List<long[]> products = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, category_id, price_cents FROM products",
+                rs -> { products.add(new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}); });
+        record(facts -> products.forEach(p -> facts.product(p[0], p[1], p[2])));
+    }
+
+    void categoryDeleted(Long categoryId) {
+        record(facts -> facts.deleteCategory(categoryId));
+    }
+
+    void customerDeleted(Long customerId) {
+        record(facts -> facts.deleteCustomer(customerId));
+    }
+
+    // Load a location's facts from its database, in the calling thread (unless a load has already started)
+    void load(String location) {
+        LocationFacts loading = byLocation.computeIfAbsent(location, name -> new LocationFacts());
+        if (!loading.start()) {
+            return;
+        }
+        try {
+            LocationContext.run(location, () -> snapshotTransaction.executeWithoutResult(status -> {
+                // The first read fixes the snapshot the whole load sees; changes have been queued since start(),
+                // so none committed around it is lost, and the queued item versions are checked in the same snapshot
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM categories", Long.class);
+                readProducts(loading.facts);
+                readOrders(loading.facts);
+                readItems(loading.facts);
+                loading.loaded(this::itemVersions);
+            }));
+            log.info("Analytics for location '{}' loaded: {} order item facts", location, loading.facts.size());
+        } catch (RuntimeException e) {
+            byLocation.remove(location, loading);
+            log.error("Analytics for location '{}' could not be loaded, the next query retries", location, e);
+        }
+    }
+
+    private void loadInBackground(String location) {
+        Thread.ofVirtual().name("analytics-load-" + location).start(() -> load(location));
+    }
+
+    // The current location's facts, or an exception while they are still loading
+    private OrderItemFacts loaded() {
+        String location = LocationContext.current();
+        LocationFacts current = byLocation.get(location);
+        if (current == null || !current.started()) {
+            loadInBackground(location);
+        }
+        if (current == null || !current.ready) {
+            throw new IllegalStateException("Analytics for location '" + location + "' are still loading, try again shortly");
+        }
+        return current.facts;
+    }
+
+    // Applies a change to the current location's facts once the current transaction (if any) has committed
+    private void record(Consumer<OrderItemFacts> change) {
+        record(new Change(change, null, 0));
+    }
+
+    private void record(Change change) {
+        LocationFacts current = byLocation.computeIfAbsent(LocationContext.current(), location -> new LocationFacts());
+        AfterCommit.run(() -> current.apply(change));
+    }
+
+    // The version of each of the items, as seen by the current transaction (items it doesn't see are left out)
+    private Map<Long, Long> itemVersions(Collection<Long> itemIds) {
+        Map<Long, Long> versions = new HashMap<>();
+        List<Long> ids = new ArrayList<>(itemIds);
+        for (int from = 0; from < ids.size(); from += BatchLookup.CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BatchLookup.CHUNK_SIZE, ids.size()));
+            jdbcTemplate.query("SELECT id, version FROM order_items WHERE id IN ("
+                            + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                    rs -> { versions.put(rs.getLong(1), rs.getLong(2)); }, chunk.toArray());
+        }
+        return versions;
+    }
+
+    private Consumer<OrderItemFacts> lookUpOrder(Long orderId) {
+        return jdbcTemplate.query("SELECT customer_id, order_date FROM orders WHERE id = ?", rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            long customerId = rs.getLong(1);
+            int minute = minute(rs.getTimestamp(2));
+            return facts -> facts.order(orderId, customerId, minute);
+        }, orderId);
+    }
+
+    private Consumer<OrderItemFacts> lookUpProduct(Long productId) {
+        return jdbcTemplate.query("SELECT category_id, price_cents FROM products WHERE id = ?", rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            long categoryId = rs.getLong(1);
+            long priceCents = rs.getLong(2);
+            return facts -> facts.product(productId, categoryId, priceCents);
+        }, productId);
+    }
+
+    private void readProducts(OrderItemFacts into) {
+        jdbcTemplate.query("SELECT id, category_id, price_cents FROM products",
+                rs -> { into.product(rs.getLong(1), rs.getLong(2), rs.getLong(3)); });
+    }
+
+    // Orders and items are read in chunks by ID, so no statement returns the whole table
+    private void readOrders(OrderItemFacts into) {
+        long[] last = {Long.MIN_VALUE};
+        int read;
+        do {
+            int[] rows = {0};
+            jdbcTemplate.query("SELECT id, customer_id, order_date FROM orders WHERE id > ? ORDER BY id LIMIT ?", rs -> {
+                last[0] = rs.getLong(1);
+                into.order(last[0], rs.getLong(2), minute(rs.getTimestamp(3)));
+                rows[0]++;
+            }, last[0], LOAD_CHUNK);
+            read = rows[0];
+        } while (read == LOAD_CHUNK);
+    }
+
+    private void readItems(OrderItemFacts into) {
+        long[] last = {Long.MIN_VALUE};
+        int read;
+        do {
+            int[] rows = {0};
+            jdbcTemplate.query("SELECT id, order_id, product_id, quantity FROM order_items WHERE id > ? ORDER BY id LIMIT ?", rs -> {
+                last[0] = rs.getLong(1);
+                into.add(rs.getLong(2), rs.getLong(3), rs.getInt(4));
+                rows[0]++;
+            }, last[0], LOAD_CHUNK);
+            read = rows[0];
+        } while (read == LOAD_CHUNK);
+    }
+
+    private int minute(Timestamp orderDate) {
+        return orderDate != null ? zone.minute(orderDate) : OrderItemFacts.EXCLUDED;
+    }
+
+    private static List<OrderItemFacts.Dimension> dimensions(List<String> groupBy) {
+        List<OrderItemFacts.Dimension> dimensions = new ArrayList<>();
+        for (String name : groupBy != null ? groupBy : List.<String>of()) {
+            OrderItemFacts.Dimension dimension;
+            try {
+                dimension = OrderItemFacts.Dimension.valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown groupBy '" + name + "', use hour, day, product, category or customer");
+            }
+            if (dimensions.contains(dimension)) {
+                throw new IllegalArgumentException("groupBy lists '" + name + "' twice");
+            }
+            dimensions.add(dimension);
+        }
+        if (dimensions.size() > 2) {
+            throw new IllegalArgumentException("Group by at most 2 of hour, day, product, category and customer");
+        }
+        return dimensions;
+    }
+
+    private static String column(OrderItemFacts.Dimension dimension) {
+        return switch (dimension) {
+            case HOUR -> "hour";
+            case DAY -> "day";
+            case PRODUCT -> "productId";
+            case CATEGORY -> "categoryId";
+            case CUSTOMER -> "customerId";
+        };
+    }
+
+    // A change to the facts; item changes carry the item's ID and the version the write left it at
+    private record Change(Consumer<OrderItemFacts> apply, Long itemId, long itemVersion) {
+
+        // Whether a snapshot with these item versions already holds the change. An item it doesn't have was
+        // either created after it (the queue then holds its creation, at version 0) or deleted before it.
+        boolean heldBy(Map<Long, Long> snapshotVersions, Set<Long> createdLater) {
+            if (itemId == null) {
+                return false;
+            }
+            Long snapshotVersion = snapshotVersions.get(itemId);
+            return snapshotVersion != null ? itemVersion <= snapshotVersion : !createdLater.contains(itemId);
+        }
+    }
+
+    // A location's facts and the changes that arrived while they were loading
+    private static final class LocationFacts {
+
+        private final OrderItemFacts facts = new OrderItemFacts();
+        private final List<Change> queued = new ArrayList<>();
+        private boolean started;
+        private volatile boolean ready;
+
+        // True for the one caller that gets to load these facts
+        synchronized boolean start() {
+            boolean first = !started;
+            started = true;
+            return first;
+        }
+
+        synchronized boolean started() {
+            return started;
+        }
+
+        // A change reported before the load started was committed before its snapshot, so it is part of it;
+        // from the start on it waits for the load to finish. Other changes to products, orders, categories and
+        // customers set their current values and are replayed as they come.
+        synchronized void apply(Change change) {
+            if (ready) {
+                change.apply().accept(facts);
+            } else if (started) {
+                queued.add(change);
+            }
+        }
+
+        // Applies the queued changes the snapshot doesn't hold, given the item versions it has
+        synchronized void loaded(Function<Collection<Long>, Map<Long, Long>> snapshotVersions) {
+            Set<Long> itemIds = new HashSet<>();
+            for (Change change : queued) {
+                if (change.itemId() != null) {
+                    itemIds.add(change.itemId());
+                }
+            }
+            Map<Long, Long> versions = itemIds.isEmpty() ? Map.of() : snapshotVersions.apply(itemIds);
+            Set<Long> createdLater = new HashSet<>();
+            for (Change change : queued) {
+                if (change.itemId() != null && change.itemVersion() == 0 && !versions.containsKey(change.itemId())) {
+                    createdLater.add(change.itemId());
+                }
+            }
+            for (Change change : queued) {
+                if (!change.heldBy(versions, createdLater)) {
+                    change.apply().accept(facts);
+                }
+            }
+            queued.clear();
+            ready = true;
+        }
+    }
+
+    // Local minutes since 1970-01-01T00:00 in the server's time zone (as Timestamp.valueOf reads a LocalDateTime)
+    private static final class LocalMinutes {
+
+        private final ZoneId zone = ZoneId.systemDefault();
+
+        int minute(Date date) {
+            long localSeconds = date.toInstant().atZone(zone).toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+            return Math.toIntExact(Math.floorDiv(localSeconds, 60));
+        }
+
+        int minute(LocalDate day) {
+            return Math.toIntExact(day.toEpochDay() * 24 * 60);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.NotFound;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Multi-get helper (GET ...?ids=1,2,3).
+ * Looks many entities up by ID with IN queries of bounded size and returns them in request order,
+ * with a {@link NotFound} marker for every ID that matched nothing.
+ */
+final class BatchLookup {
+
+    // Upper bound for one request
+    static final int MAX_IDS = 500;
+    // IDs per IN clause, so a large request never becomes one huge statement
+    static final int CHUNK_SIZE = 100;
+
+    private BatchLookup() {
+    }
+
+    // Find the given IDs through the finder (one query per chunk); duplicates are looked up once
+    static <T> List<Object> findAll(List<Long> ids, Function<List<Long>, List<T>> finder, Function<T, Long> idOf) {
+        if (ids.isEmpty() || ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("'ids' must contain between 1 and " + MAX_IDS + " IDs");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("'ids' must not contain empty values");
+        }
+
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, T> found = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            for (T entity : finder.apply(distinct.subList(from, Math.min(from + CHUNK_SIZE, distinct.size())))) {
+                found.put(idOf.apply(entity), entity);
+            }
+        }
+
+        List<Object> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T entity = found.get(id);
+            results.add(entity != null ? entity : NotFound.of(id));
+        }
+        return results;
+    }
+}
@@ -2,23 +2,59 @@ package com.restaurante.gestionpedidos.services;
 
 import com.restaurante.gestionpedidos.models.Category;
 import com.restaurante.gestionpedidos.repositories.CategoryRepository;
+import com.restaurante.gestionpedidos.repositories.FieldSet;
+import com.restaurante.gestionpedidos.repositories.OrderItemRepository;
+import com.restaurante.gestionpedidos.repositories.ProductRepository;
+import com.restaurante.gestionpedidos.repositories.ProductStockShardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final ProductStockShardRepository shardRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderViewService orderViews;
+    // Concurrent reads of the same category share one query, keyed by location and ID
+    private final SingleFlight<SingleFlight.LocationKey, Optional<Category>> categoryLoads;
+    private final IdFilterService idFilter;
+    // Only present when the analytics are enabled (gestionpedidos.analytics.enabled)
+    private final AnalyticsService analytics;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository,
+                           ProductStockShardRepository shardRepository, OrderItemRepository orderItemRepository,
+                           PlatformTransactionManager transactionManager, OrderViewService orderViews,
+                           ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<IdFilterService> idFilter,
+                           ObjectProvider<AnalyticsService> analytics) {
         this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.shardRepository = shardRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderViews = orderViews;
+        this.categoryLoads = new SingleFlight<>("category", meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        this.idFilter = idFilter.getIfAvailable();
+        this.analytics = analytics.getIfAvailable();
     }
 
     // Get all categories
+    @Transactional(readOnly = true)
     public List<Category> getAllCategories(boolean includeProducts) {
         if (includeProducts) {
             return categoryRepository.findAllWithProducts();
@@ -26,18 +62,49 @@ public class CategoryService {
         return categoryRepository.findAll();
     }
 
-    // Get a category by ID
+    // Get a category by ID. Outside a transaction, concurrent calls for the same category share one query
+    // (the repository's own read-only transaction); inside one, the caller's persistence context is used.
     public Optional<Category> getCategoryById(Long id) {
-        return categoryRepository.findById(id);
+        if (!mightExist(id)) {
+            return Optional.empty();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return categoryRepository.findById(id);
+        }
+        return categoryLoads.load(SingleFlight.LocationKey.of(id), () -> categoryRepository.findById(id));
+    }
+
+    // Get all categories with only the requested fields (sparse fieldset, e.g. "id,name")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllCategories(String fields) {
+        return categoryRepository.findAllProjected(FieldSet.of(Category.class, fields));
+    }
+
+    // Get a category by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getCategoryById(Long id, String fields) {
+        if (!mightExist(id)) {
+            return Optional.empty();
+        }
+        return categoryRepository.findProjectedById(FieldSet.of(Category.class, fields), id);
     }
 
     // Create a new category
+    @Transactional
     public Category createCategory(Category category) {
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        if (idFilter != null) {
+            idFilter.added(IdFilterService.Table.CATEGORIES, saved.getId());
+        }
+        return saved;
     }
 
     // Update an existing category
+    @Transactional
     public Category updateCategory(Long id, Category categoryDetails) {
+        if (!mightExist(id)) {
+            return null;
+        }
         return categoryRepository.findById(id)
                 .map(category -> {
                     category.setName(categoryDetails.getName());
@@ -45,13 +112,48 @@ public class CategoryService {
                 }).orElse(null);
     }
 
-    // Delete a category
+    // Delete a category together with its products.
+    // Products are removed with set-based deletes in bounded chunks instead of loading them all into memory
+    // through the JPA cascade. A category whose products are on orders is kept, so no order history is lost
+    // (IllegalStateException).
     public boolean deleteCategory(Long id) {
-        if (categoryRepository.existsById(id)) {
-            categoryRepository.deleteById(id);
-            return true;
+        if (!mightExist(id)) {
+            return false;
+        }
+        if (orderItemRepository.existsByProductCategoryId(id)) {
+            throw new IllegalStateException("Category " + id + " has products on orders and cannot be deleted");
+        }
+        try {
+            ChunkedDelete.deleteAll(transactionTemplate,
+                    page -> productRepository.findIdsByCategoryId(id, page),
+                    productIds -> {
+                        shardRepository.deleteByProductIds(productIds);
+                        if (idFilter != null) {
+                            productIds.forEach(productId -> idFilter.removed(IdFilterService.Table.PRODUCTS, productId));
+                        }
+                        return productRepository.deleteByIds(productIds);
+                    });
+        } catch (DataIntegrityViolationException e) {
+            // A product was ordered after the check: the foreign key keeps it, and its category
+            throw new IllegalStateException("Category " + id + " has products on orders and cannot be deleted", e);
+        }
+        // The row delete reports whether the category existed, so no lookup is needed beforehand
+        Integer deleted = transactionTemplate.execute(status -> categoryRepository.deleteCategoryRow(id));
+        if (deleted == null || deleted == 0) {
+            return false;
         }
-        return false;
+        if (idFilter != null) {
+            idFilter.removed(IdFilterService.Table.CATEGORIES, id);
+        }
+        if (analytics != null) {
+            analytics.categoryDeleted(id);
+        }
+        return true;
+    }
+
+    // False when the ID filter knows there is no such category, so the database need not be asked
+    private boolean mightExist(Long id) {
+        return idFilter == null || idFilter.mightExist(IdFilterService.Table.CATEGORIES, id);
     }
 }
 
@@ -0,0 +1,44 @@
+package com.restaurante.gestionpedidos.services;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Deletes rows in bounded chunks, one short transaction per chunk.
+ *
+ * Used by the cascading deletes of categories and customers: instead of letting Hibernate
+ * load every dependent entity and remove it one by one inside a single long transaction,
+ * dependents are removed with set-based DELETE ... WHERE id IN (...) statements,
+ * so locks are held only for the duration of one chunk.
+ */
+final class ChunkedDelete {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private ChunkedDelete() {
+    }
+
+    // Repeatedly select the next chunk of IDs and delete them until none are left; returns the rows deleted
+    static long deleteAll(TransactionTemplate transactionTemplate,
+                          Function<Pageable, List<Long>> nextIds,
+                          ToIntFunction<List<Long>> delete) {
+        Pageable firstChunk = PageRequest.of(0, CHUNK_SIZE);
+        long deleted = 0;
+        while (true) {
+            // -1 marks that no IDs were left (a chunk may legitimately delete 0 rows if removed concurrently)
+            Integer count = transactionTemplate.execute(status -> {
+                List<Long> ids = nextIds.apply(firstChunk);
+                return ids.isEmpty() ? -1 : delete.applyAsInt(ids);
+            });
+            if (count == null || count < 0) {
+                return deleted;
+            }
+            deleted += count;
+        }
+    }
+}
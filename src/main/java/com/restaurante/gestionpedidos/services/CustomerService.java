@@ -1,55 +1,230 @@
 package com.restaurante.gestionpedidos.services;
 
+import com.restaurante.gestionpedidos.dto.CustomerDetail;
 import com.restaurante.gestionpedidos.models.Customer;
+import com.restaurante.gestionpedidos.models.Money;
+import com.restaurante.gestionpedidos.models.Order;
 import com.restaurante.gestionpedidos.repositories.CustomerRepository;
+import com.restaurante.gestionpedidos.repositories.FieldSet;
+import com.restaurante.gestionpedidos.repositories.OrderItemRepository;
+import com.restaurante.gestionpedidos.repositories.OrderRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class CustomerService {
 
+    // Upper bound for the recent orders of a customer detail and for a page of a customer's orders
+    static final int MAX_ORDERS_PER_PAGE = 100;
+
     private final CustomerRepository customerRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final StockService stockService;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderViewService orderViews;
+    private final IdFilterService idFilter;
+    // Only present when the write-ahead journal is enabled (gestionpedidos.journal.enabled)
+    private final OrderJournalService orderJournal;
+    // Only present when the analytics are enabled (gestionpedidos.analytics.enabled)
+    private final AnalyticsService analytics;
 
     @Autowired
-    public CustomerService(CustomerRepository customerRepository) {
+    public CustomerService(CustomerRepository customerRepository, OrderRepository orderRepository,
+                           OrderItemRepository orderItemRepository, StockService stockService,
+                           PlatformTransactionManager transactionManager,
+                           OrderViewService orderViews, ObjectProvider<IdFilterService> idFilter,
+                           ObjectProvider<OrderJournalService> orderJournal, ObjectProvider<AnalyticsService> analytics) {
         this.customerRepository = customerRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.stockService = stockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderViews = orderViews;
+        this.idFilter = idFilter.getIfAvailable();
+        this.orderJournal = orderJournal.getIfAvailable();
+        this.analytics = analytics.getIfAvailable();
     }
 
-    // Get all customers with orders
-    public List<Customer> getAllCustomers() {
-        return customerRepository.findAllWithOrders();
+    // Get all customers, each with their most recent orders, order count and lifetime spend (not the full history)
+    @Transactional(readOnly = true)
+    public List<CustomerDetail> getAllCustomers(int recentOrders) {
+        requirePageSize("recentOrders", recentOrders);
+        List<Customer> customers = customerRepository.findAll();
+        List<CustomerDetail> details = new ArrayList<>(customers.size());
+        for (int from = 0; from < customers.size(); from += BatchLookup.CHUNK_SIZE) {
+            details.addAll(details(customers.subList(from, Math.min(from + BatchLookup.CHUNK_SIZE, customers.size())), recentOrders));
+        }
+        return details;
+    }
+
+    // Get a customer by ID with their most recent orders, order count and lifetime spend (not the full history)
+    @Transactional(readOnly = true)
+    public Optional<CustomerDetail> getCustomerDetail(Long id, int recentOrders) {
+        requirePageSize("recentOrders", recentOrders);
+        if (!mightExist(id)) {
+            return Optional.empty();
+        }
+        return customerRepository.findById(id).map(customer -> CustomerDetail.of(customer,
+                orderRepository.countByCustomerId(id),
+                Money.toDecimal(orderRepository.sumCentsByCustomerId(id)),
+                orderRepository.findRecentByCustomerId(id, Limit.of(recentOrders))));
+    }
+
+    // Get one page of a customer's orders, newest first
+    @Transactional(readOnly = true)
+    public Optional<Page<Order>> getCustomerOrders(Long id, int page, int size) {
+        requirePageSize("size", size);
+        if (page < 0) {
+            throw new IllegalArgumentException("'page' must not be negative");
+        }
+        if (!mightExist(id) || !customerRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        return Optional.of(orderRepository.findPageByCustomerId(id, PageRequest.of(page, size)));
     }
 
-    // Get a customer by ID
-    public Optional<Customer> getCustomerById(Long id) {
-        return customerRepository.findByIdWithOrders(id);
+    // Get all customers with only the requested fields (sparse fieldset, e.g. "id,name")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllCustomers(String fields) {
+        return customerRepository.findAllProjected(FieldSet.of(Customer.class, fields));
+    }
+
+    // Get a customer by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getCustomerById(Long id, String fields) {
+        if (!mightExist(id)) {
+            return Optional.empty();
+        }
+        return customerRepository.findProjectedById(FieldSet.of(Customer.class, fields), id);
+    }
+
+    // Get many customers by ID, in request order, bounded like getAllCustomers (IDs that match nothing get a not-found marker)
+    @Transactional(readOnly = true)
+    public List<Object> getCustomersByIds(List<Long> ids, int recentOrders) {
+        requirePageSize("recentOrders", recentOrders);
+        return BatchLookup.findAll(ids, chunk -> details(customerRepository.findAllById(chunk), recentOrders), CustomerDetail::id);
+    }
+
+    // Get many customers by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public List<Object> getCustomersByIds(List<Long> ids, String fields) {
+        FieldSet fieldSet = FieldSet.of(Customer.class, fields);
+        return BatchLookup.findAll(ids, chunk -> customerRepository.findAllProjectedById(fieldSet, chunk),
+                row -> (Long) row.get("id"));
     }
 
     // Create a new customer
+    @Transactional
     public Customer createCustomer(Customer customer) {
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        if (idFilter != null) {
+            idFilter.added(IdFilterService.Table.CUSTOMERS, saved.getId());
+        }
+        return saved;
     }
 
     // Update an existing customer
+    @Transactional
     public Customer updateCustomer(Long id, Customer customerDetails) {
+        if (!mightExist(id)) {
+            return null;
+        }
         return customerRepository.findById(id)
                 .map(customer -> {
                     customer.setName(customerDetails.getName());
                     customer.setEmail(customerDetails.getEmail());
                     customer.setPhone(customerDetails.getPhone());
-                    return customerRepository.save(customer);
+                    Customer saved = customerRepository.save(customer);
+                    orderViews.evictCustomer(id);
+                    return saved;
                 }).orElse(null);
     }
 
-    // Delete a customer
+    // False when the ID filter knows there is no such customer, so the database need not be asked
+    private boolean mightExist(Long id) {
+        return idFilter == null || idFilter.mightExist(IdFilterService.Table.CUSTOMERS, id);
+    }
+
+    // The details of a chunk of customers: three queries, however long their order histories are
+    private List<CustomerDetail> details(List<Customer> customers, int recentOrders) {
+        if (customers.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = customers.stream().map(Customer::getId).toList();
+        Map<Long, Long> counts = byCustomer(orderRepository.countByCustomerIds(ids));
+        Map<Long, Long> spend = byCustomer(orderRepository.sumCentsByCustomerIds(ids));
+        Map<Long, List<Order>> recent = new HashMap<>();
+        for (Order order : orderRepository.findRecentByCustomerIds(ids, recentOrders)) {
+            recent.computeIfAbsent(order.getCustomer().getId(), id -> new ArrayList<>()).add(order);
+        }
+        return customers.stream().map(customer -> CustomerDetail.of(customer,
+                counts.getOrDefault(customer.getId(), 0L),
+                Money.toDecimal(spend.getOrDefault(customer.getId(), 0L)),
+                recent.getOrDefault(customer.getId(), List.of()))).toList();
+    }
+
+    private static Map<Long, Long> byCustomer(List<Object[]> rows) {
+        Map<Long, Long> values = new HashMap<>();
+        for (Object[] row : rows) {
+            values.put(((Number) row[0]).longValue(), row[1] != null ? ((Number) row[1]).longValue() : 0L);
+        }
+        return values;
+    }
+
+    private static void requirePageSize(String name, int size) {
+        if (size < 1 || size > MAX_ORDERS_PER_PAGE) {
+            throw new IllegalArgumentException("'" + name + "' must be between 1 and " + MAX_ORDERS_PER_PAGE);
+        }
+    }
+
+    // Delete a customer together with their orders and order items.
+    // Dependents are removed with set-based deletes in bounded chunks, children first,
+    // instead of loading the whole order history into memory through the JPA cascade.
+    // The units of the deleted items are given back to the product stock, in the transaction of each chunk.
+    // Orders of the customer still in the write-ahead journal are waited for, so they are deleted too instead of
+    // being rejected later; if they are not applied in time the delete is refused (IllegalStateException).
     public boolean deleteCustomer(Long id) {
-        if (customerRepository.existsById(id)) {
-            customerRepository.deleteById(id);
-            return true;
+        if (!mightExist(id)) {
+            return false;
+        }
+        if (orderJournal != null) {
+            orderJournal.awaitCustomer(id);
+        }
+        ChunkedDelete.deleteAll(transactionTemplate,
+                page -> orderItemRepository.findIdsByCustomerId(id, page),
+                ids -> {
+                    stockService.releaseAll(orderItemRepository.findAllForUpdate(ids));
+                    return orderItemRepository.deleteByIds(ids);
+                });
+        ChunkedDelete.deleteAll(transactionTemplate,
+                page -> orderRepository.findIdsByCustomerId(id, page),
+                orderRepository::deleteByIds);
+        // The row delete reports whether the customer existed, so no lookup is needed beforehand
+        Integer deleted = transactionTemplate.execute(status -> customerRepository.deleteCustomerRow(id));
+        if (deleted == null || deleted == 0) {
+            return false;
+        }
+        orderViews.evictCustomer(id);
+        if (idFilter != null) {
+            idFilter.removed(IdFilterService.Table.CUSTOMERS, id);
+        }
+        if (analytics != null) {
+            analytics.customerDeleted(id);
         }
-        return false;
+        return true;
     }
 }
@@ -0,0 +1,200 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory existence filter over the IDs of customers, products and categories (gestionpedidos.id-filter.enabled).
+ *
+ * Each table of each location keeps one bit per ID (the IDs are dense identity values, so a million rows cost
+ * about 128 KB). A lookup of an ID whose bit is clear is a definite miss and is answered without a query; a set
+ * bit only means the row may exist, and the database decides. The filter never reports an existing row as
+ * missing: creates set the bit right away, deletes clear it only once they have committed.
+ *
+ * Rows inserted by other instances or by bulk paths are picked up by a catch-up scan of the IDs above the last
+ * scanned one, started in the background by a lookup at most every gestionpedidos.id-filter.refresh-seconds (the
+ * lookup itself never waits for it); lookups above it go to the database. An ID below the highest one a scan saw
+ * that the scan did not return is a gap: a rolled-back insert, a deleted row, or a row whose inserting transaction
+ * was still open and may commit at any time. Gaps are kept as ranges, so a jump in the IDs costs one entry however
+ * wide it is, and are always looked up in the database: only IDs this instance has seen deleted are definite
+ * misses. Rows deleted by other instances keep their bit, which only costs a query.
+ */
+@Service
+@ConditionalOnProperty(name = "gestionpedidos.id-filter.enabled", havingValue = "true", matchIfMissing = true)
+public class IdFilterService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdFilterService.class);
+
+    // Tables with dense identity IDs
+    enum Table {
+        CUSTOMERS("customers"), PRODUCTS("products"), CATEGORIES("categories");
+
+        private final String scan;
+
+        Table(String name) {
+            this.scan = "SELECT id FROM " + name + " WHERE id > ? ORDER BY id";
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long refreshNanos;
+
+    private final Map<String, LocationFilter> locations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdFilterService(JdbcTemplate jdbcTemplate,
+                           @Value("${gestionpedidos.id-filter.refresh-seconds:30}") long refreshSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshNanos = TimeUnit.SECONDS.toNanos(refreshSeconds);
+    }
+
+    // False only if no row with this ID exists in the current location
+    boolean mightExist(Table table, Long id) {
+        if (id == null || id < 1) {
+            return true;
+        }
+        LocationFilter filter = filter();
+        filter.scanInBackgroundIfDue();
+        TableFilter ids = filter.tables.get(table);
+        return id > ids.settled || ids.bits.contains(id) || ids.inGap(id);
+    }
+
+    // A row was inserted (a rolled-back insert leaves its bit set, which only costs a query)
+    void added(Table table, Long id) {
+        if (id != null && id > 0) {
+            filter().tables.get(table).bits.add(id);
+        }
+    }
+
+    // A row was deleted: its bit is cleared once the current transaction (if any) has committed
+    void removed(Table table, Long id) {
+        if (id == null || id < 1) {
+            return;
+        }
+        IdBitSet bits = filter().tables.get(table).bits;
+        AfterCommit.run(() -> bits.remove(id));
+    }
+
+    // Run a catch-up scan of every table of the current location now, in the calling thread
+    void refresh() {
+        filter().scan();
+    }
+
+    private LocationFilter filter() {
+        return locations.computeIfAbsent(LocationContext.current(), LocationFilter::new);
+    }
+
+    private final class LocationFilter {
+
+        private final String location;
+        private final Map<Table, TableFilter> tables = new EnumMap<>(Table.class);
+        private final ReentrantLock scanning = new ReentrantLock();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long nextScan = System.nanoTime();
+
+        LocationFilter(String location) {
+            this.location = location;
+            for (Table table : Table.values()) {
+                tables.put(table, new TableFilter());
+            }
+        }
+
+        // Lookups only start the scan; they keep using the current bits while it runs
+        void scanInBackgroundIfDue() {
+            if (System.nanoTime() - nextScan < 0 || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            Thread.ofVirtual().name("id-filter-scan-" + location).start(() -> {
+                try {
+                    LocationContext.run(location, this::scan);
+                } catch (RuntimeException e) {
+                    log.error("ID filter scan for location '{}' failed, the next lookup retries", location, e);
+                } finally {
+                    scheduled.set(false);
+                }
+            });
+        }
+
+        // One scan at a time; the IDs arrive in order, so each jump between two of them is one gap
+        void scan() {
+            scanning.lock();
+            try {
+                for (Map.Entry<Table, TableFilter> entry : tables.entrySet()) {
+                    TableFilter ids = entry.getValue();
+                    long[] last = {ids.settled};
+                    jdbcTemplate.query(entry.getKey().scan, rs -> {
+                        long id = rs.getLong(1);
+                        ids.bits.add(id);
+                        if (id > last[0] + 1) {
+                            ids.gaps.put(last[0] + 1, id - 1);
+                        }
+                        last[0] = id;
+                    }, ids.settled);
+                    // Every ID up to the highest one seen is now either a row or a gap
+                    ids.settled = last[0];
+                }
+                nextScan = System.nanoTime() + refreshNanos;
+            } finally {
+                scanning.unlock();
+            }
+        }
+    }
+
+    private static final class TableFilter {
+
+        private final IdBitSet bits = new IdBitSet();
+        // Ranges of IDs a scan skipped over, first ID to last: they may still appear, so the database decides
+        private final ConcurrentSkipListMap<Long, Long> gaps = new ConcurrentSkipListMap<>();
+        // Highest ID the scans have seen; IDs up to here are answered from the bits and gaps
+        private volatile long settled;
+
+        boolean inGap(long id) {
+            Map.Entry<Long, Long> gap = gaps.floorEntry(id);
+            return gap != null && id <= gap.getValue();
+        }
+    }
+
+    // Lock-free bitset over positive IDs, allocated in pages of 65536 IDs (8 KB) as they are used
+    private static final class IdBitSet {
+
+        private static final int PAGE_BITS = 16;
+        private static final long PAGE_MASK = (1L << PAGE_BITS) - 1;
+
+        private final Map<Long, AtomicLongArray> pages = new ConcurrentHashMap<>();
+
+        boolean contains(long id) {
+            AtomicLongArray page = pages.get(id >>> PAGE_BITS);
+            int bit = (int) (id & PAGE_MASK);
+            return page != null && (page.get(bit >>> 6) & (1L << bit)) != 0;
+        }
+
+        void add(long id) {
+            AtomicLongArray page = pages.computeIfAbsent(id >>> PAGE_BITS, key -> new AtomicLongArray(1 << (PAGE_BITS - 6)));
+            int bit = (int) (id & PAGE_MASK);
+            page.getAndAccumulate(bit >>> 6, 1L << bit, (word, mask) -> word | mask);
+        }
+
+        void remove(long id) {
+            AtomicLongArray page = pages.get(id >>> PAGE_BITS);
+            if (page != null) {
+                int bit = (int) (id & PAGE_MASK);
+                page.getAndAccumulate(bit >>> 6, ~(1L << bit), (word, mask) -> word & mask);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.config.Locations;
+import com.restaurante.gestionpedidos.dto.LocationTotals;
+import com.restaurante.gestionpedidos.dto.OrderTotals;
+import com.restaurante.gestionpedidos.models.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Head-office reports across all restaurant locations.
+ * Every location's database is queried at the same time, each on its own virtual thread,
+ * so a report takes as long as the slowest location rather than the sum of all of them.
+ */
+@Service
+public class LocationReportService {
+
+    private final OrderService orderService;
+    private final Locations locations;
+
+    @Autowired
+    public LocationReportService(OrderService orderService, Locations locations) {
+        this.orderService = orderService;
+        this.locations = locations;
+    }
+
+    // Get the totals of the orders placed between two days (both inclusive) in every location, and their sum.
+    // Not transactional itself: each location is read in its own read-only transaction (OrderService.getOrderTotals).
+    public LocationTotals getOrderTotals(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+
+        Map<String, Future<OrderTotals>> pending = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String location : locations.names()) {
+                pending.put(location, executor.submit(() ->
+                        LocationContext.call(location, () -> orderService.getOrderTotals(from, to))));
+            }
+        }
+
+        Map<String, OrderTotals> byLocation = new LinkedHashMap<>();
+        long orders = 0;
+        long units = 0;
+        BigDecimal total = Money.toDecimal(0);
+        for (Map.Entry<String, Future<OrderTotals>> entry : pending.entrySet()) {
+            OrderTotals totals = result(entry.getKey(), entry.getValue());
+            byLocation.put(entry.getKey(), totals);
+            orders += totals.orders();
+            units += totals.units();
+            total = total.add(totals.total());
+        }
+        return new LocationTotals(from, to, orders, units, total, byLocation);
+    }
+
+    // The executor has already been closed, so every future is done
+    private static OrderTotals result(String location, Future<OrderTotals> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Location '" + location + "' could not be queried: " + e.getCause().getMessage(),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for location '" + location + "'", e);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.dto.ExportManifest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk export of the order history to files, for the data team's dumps.
+ *
+ * A period is split by order date into partitions of gestionpedidos.export.partition-days days, and up to
+ * gestionpedidos.export.workers partitions are exported at the same time. A partition is read in chunks of
+ * orders (keyset on order_date and id), each one read with its items in a short read-only transaction, so an
+ * export never runs one long statement or keeps a snapshot open on the primary.
+ *
+ * Every partition is written to two gzip-compressed CSV files (orders and order items) through a file channel,
+ * under temporary names that are moved into place once the data is on disk. The manifest then lists the partition
+ * with the size and SHA-256 of its files, and is replaced atomically. Running the same export again skips the
+ * partitions already listed (if their files are still there), so an interrupted run resumes partition by partition.
+ *
+ * Chunks are read in separate transactions: an order changed during the export is written as its chunk saw it.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+
+    static final String MANIFEST_FILE = "manifest.json";
+    // Orders read per statement (with their items in a second one)
+    private static final int CHUNK_SIZE = 1_000;
+    private static final String ORDERS_HEADER = "id,customer_id,order_date,location,version";
+    private static final String ITEMS_HEADER = "id,order_id,product_id,quantity,version";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int workers;
+    private final int partitionDays;
+
+    // Directories of the exports in progress
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public OrderExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                              @Value("${gestionpedidos.export.directory:exports}") String directory,
+                              @Value("${gestionpedidos.export.workers:2}") int workers,
+                              @Value("${gestionpedidos.export.partition-days:1}") int partitionDays) {
+        if (workers < 1 || partitionDays < 1) {
+            throw new IllegalArgumentException("gestionpedidos.export.workers and partition-days must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.workers = workers;
+        this.partitionDays = partitionDays;
+    }
+
+    // Start (or resume) the export of the orders placed between two days (both inclusive) of the current location,
+    // in the background. Returns the manifest as it stands.
+    public ExportManifest startExport(LocalDate from, LocalDate to) {
+        String location = LocationContext.current();
+        Path run = claim(location, from, to);
+        ExportManifest manifest;
+        try {
+            manifest = readManifest(run, location, from, to);
+        } catch (RuntimeException e) {
+            running.remove(run);
+            throw e;
+        }
+        Thread.ofVirtual().name("order-export-" + location).start(() -> {
+            try {
+                LocationContext.run(location, () -> export(run, location, from, to));
+            } catch (RuntimeException e) {
+                log.error("Export of {} to {} in location '{}' stopped, start it again to resume", from, to, location, e);
+            } finally {
+                running.remove(run);
+            }
+        });
+        return manifest;
+    }
+
+    // Export (or resume the export of) a period of the current location in the calling thread
+    public ExportManifest export(LocalDate from, LocalDate to) {
+        String location = LocationContext.current();
+        Path run = claim(location, from, to);
+        try {
+            return export(run, location, from, to);
+        } finally {
+            running.remove(run);
+        }
+    }
+
+    // The manifest of an export of the current location, if it was started
+    public Optional<ExportManifest> getManifest(LocalDate from, LocalDate to) {
+        validate(from, to);
+        Path run = runDirectory(LocationContext.current(), from, to);
+        if (!Files.exists(run.resolve(MANIFEST_FILE))) {
+            return Optional.empty();
+        }
+        return Optional.of(readManifest(run, LocationContext.current(), from, to));
+    }
+
+    private ExportManifest export(Path run, String location, LocalDate from, LocalDate to) {
+        try {
+            Files.createDirectories(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Export directory " + run + " could not be created", e);
+        }
+        ExportManifest previous = readManifest(run, location, from, to);
+        int days = previous.partitionDays();
+
+        // Partitions listed by an earlier run are kept if their files are still there
+        Progress progress = new Progress(run, previous);
+        for (ExportManifest.Partition partition : previous.partitions()) {
+            if (partition.files().stream().allMatch(file -> hasSize(run.resolve(file.name()), file.bytes()))) {
+                progress.done.put(partition.from(), partition);
+            }
+        }
+        List<LocalDate> pending = new ArrayList<>();
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(days)) {
+            progress.total++;
+            if (!progress.done.containsKey(start)) {
+                pending.add(start);
+            }
+        }
+        progress.write();
+
+        Map<LocalDate, Future<?>> exports = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers, Thread.ofVirtual().name("order-export-", 0).factory())) {
+            for (LocalDate start : pending) {
+                LocalDate end = min(start.plusDays(days - 1), to);
+                exports.put(start, executor.submit(() ->
+                        progress.finished(LocationContext.call(location, () -> exportPartition(run, start, end)))));
+            }
+        }
+
+        // The executor has been closed, so every partition has finished or failed
+        RuntimeException failure = null;
+        for (Map.Entry<LocalDate, Future<?>> entry : exports.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (ExecutionException e) {
+                RuntimeException partitionFailure = new RuntimeException(
+                        "Partition " + entry.getKey() + " could not be exported: " + e.getCause().getMessage(), e.getCause());
+                if (failure == null) {
+                    failure = partitionFailure;
+                } else {
+                    failure.addSuppressed(partitionFailure);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while exporting " + run, e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return progress.manifest();
+    }
+
+    // Write the orders placed in a partition's days, and their items, chunk by chunk
+    private ExportManifest.Partition exportPartition(Path run, LocalDate start, LocalDate end) {
+        String suffix = start.equals(end) ? start.toString() : start + "_" + end;
+        Timestamp until = Timestamp.valueOf(end.plusDays(1).atStartOfDay());
+        try (PartitionFile orders = new PartitionFile(run, "orders-" + suffix + ".csv.gz", ORDERS_HEADER);
+             PartitionFile items = new PartitionFile(run, "order-items-" + suffix + ".csv.gz", ITEMS_HEADER)) {
+            Timestamp[] lastDate = {Timestamp.valueOf(start.atStartOfDay())};
+            long[] lastId = {Long.MIN_VALUE};
+            int read;
+            do {
+                List<Object> ids = new ArrayList<>(CHUNK_SIZE);
+                chunkTransaction.executeWithoutResult(status -> {
+                    jdbcTemplate.query("SELECT id, customer_id, order_date, location, version FROM orders "
+                            + "WHERE order_date >= ? AND order_date < ? AND (order_date > ? OR (order_date = ? AND id > ?)) "
+                            + "ORDER BY order_date, id LIMIT ?", rs -> {
+                        lastDate[0] = rs.getTimestamp(3);
+                        lastId[0] = rs.getLong(1);
+                        ids.add(lastId[0]);
+                        orders.row(lastId[0], rs.getLong(2), DATE_TIME.format(lastDate[0].toLocalDateTime()),
+                                rs.getString(4), rs.getObject(5));
+                    }, lastDate[0], until, lastDate[0], lastDate[0], lastId[0], CHUNK_SIZE);
+                    if (!ids.isEmpty()) {
+                        jdbcTemplate.query("SELECT id, order_id, product_id, quantity, version FROM order_items WHERE order_id IN ("
+                                        + String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY order_id, id",
+                                rs -> { items.row(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4), rs.getObject(5)); },
+                                ids.toArray());
+                    }
+                });
+                read = ids.size();
+            } while (read == CHUNK_SIZE);
+            return new ExportManifest.Partition(start, end, List.of(orders.finish(), items.finish()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Partition " + suffix + " could not be written to " + run, e);
+        }
+    }
+
+    private Path claim(String location, LocalDate from, LocalDate to) {
+        validate(from, to);
+        Path run = runDirectory(location, from, to);
+        if (!running.add(run)) {
+            throw new IllegalStateException("An export of " + from + " to " + to + " is already running");
+        }
+        return run;
+    }
+
+    private Path runDirectory(String location, LocalDate from, LocalDate to) {
+        return directory.resolve(location).resolve("orders-" + from + "_" + to);
+    }
+
+    private ExportManifest readManifest(Path run, String location, LocalDate from, LocalDate to) {
+        Path file = run.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return new ExportManifest(location, from, to, partitionDays, false, List.of());
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), ExportManifest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Export manifest " + file + " could not be read", e);
+        }
+    }
+
+    private static void validate(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+    }
+
+    private static boolean hasSize(Path file, long bytes) {
+        try {
+            return Files.size(file) == bytes;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    // The finished partitions of a run; the manifest is rewritten every time one is added
+    private final class Progress {
+
+        private final Path run;
+        private final ExportManifest previous;
+        private final SortedMap<LocalDate, ExportManifest.Partition> done = new TreeMap<>();
+        private int total;
+
+        Progress(Path run, ExportManifest previous) {
+            this.run = run;
+            this.previous = previous;
+        }
+
+        synchronized void finished(ExportManifest.Partition partition) {
+            done.put(partition.from(), partition);
+            write();
+        }
+
+        synchronized ExportManifest manifest() {
+            return new ExportManifest(previous.location(), previous.from(), previous.to(), previous.partitionDays(),
+                    done.size() == total, List.copyOf(done.values()));
+        }
+
+        synchronized void write() {
+            Path file = run.resolve(MANIFEST_FILE);
+            Path temporary = run.resolve(MANIFEST_FILE + ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel.write(ByteBuffer.wrap(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest())));
+                    channel.force(true);
+                }
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Export manifest " + file + " could not be written", e);
+            }
+        }
+    }
+
+    // A gzip-compressed CSV file written through a file channel under a temporary name, hashed as it is written
+    private static final class PartitionFile implements Closeable {
+
+        private final Path target;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final MessageDigest sha256;
+        private final GZIPOutputStream gzip;
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder();
+        private long rows;
+        private boolean finished;
+
+        PartitionFile(Path run, String name, String header) throws IOException {
+            this.target = run.resolve(name);
+            this.temporary = run.resolve(name + ".tmp");
+            try {
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.gzip = new GZIPOutputStream(new DigestOutputStream(Channels.newOutputStream(channel), sha256), 64 * 1024);
+            this.out = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+            out.write(header);
+            out.write('\n');
+        }
+
+        // One CSV row; the values are numbers, dates and location keys, so nothing needs quoting. Null is empty.
+        void row(Object... values) {
+            line.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                if (values[i] != null) {
+                    line.append(values[i]);
+                }
+            }
+            line.append('\n');
+            try {
+                out.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+
+        // Force the file to disk and move it into place
+        ExportManifest.ExportFile finish() throws IOException {
+            out.flush();
+            gzip.finish();
+            channel.force(true);
+            long bytes = channel.size();
+            out.close();
+            finished = true;
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new ExportManifest.ExportFile(target.getFileName().toString(), rows, bytes, HexFormat.of().formatHex(sha256.digest()));
+        }
+
+        // Drop the temporary file of a partition that failed
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.restaurante.gestionpedidos.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Column store of order item facts for the analytics queries of one location (see {@link AnalyticsService}).
+ *
+ * Every fact is one row of three primitive columns (order, product, quantity), kept in segments of
+ * {@value #SEGMENT_SIZE} rows. Rows are only ever appended: a changed or removed item adds a row with the
+ * quantity difference, so the sums stay right without finding the item's earlier rows. The rest of a fact
+ * comes from two dimensions reached through the row's codes: the order's time and customer, and the
+ * product's category and current price. Changing an order, a price, or deleting an order is then a single
+ * write, and revenue is the value of the units at the current prices, as in the order totals.
+ *
+ * IDs are stored as dense int codes handed out in arrival order. Times are minutes since 1970-01-01T00:00
+ * in the server's time zone, so hours and days are the server's local ones.
+ *
+ * All writes hold the lock of this object. A query copies the array references under the lock and then scans
+ * without it, one fork/join task per segment; it sees every row appended before it started, and each
+ * dimension value either before or after a concurrent change.
+ */
+public final class OrderItemFacts {
+
+    static final int SEGMENT_BITS = 16;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    // Minute of orders that are deleted or have no date: never inside a period
+    public static final int EXCLUDED = Integer.MIN_VALUE;
+    // Category of products that are deleted
+    private static final int DELETED = -1;
+
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+
+    // What the groups of a query are made of
+    public enum Dimension {
+        HOUR, DAY, PRODUCT, CATEGORY, CUSTOMER
+    }
+
+    /**
+     * A filter and group-by query. A null ID means no filter on it.
+     *
+     * @param fromMinute First minute of the period (inclusive).
+     * @param toMinute   End of the period (exclusive).
+     * @param groupBy    At most two dimensions, in the order of the group keys.
+     */
+    public record Query(int fromMinute, int toMinute, Long productId, Long categoryId, Long customerId, List<Dimension> groupBy) {
+
+        public Query {
+            if (groupBy.size() > 2) {
+                throw new IllegalArgumentException("At most 2 group-by dimensions are supported");
+            }
+            if (fromMinute == EXCLUDED) {
+                fromMinute++;
+            }
+        }
+    }
+
+    /**
+     * One group of a query result.
+     *
+     * @param keys         The group's value of each group-by dimension: a LocalDateTime (hour), a LocalDate (day) or an ID.
+     * @param units        Units ordered.
+     * @param revenueCents Value of those units at the current prices, in cents.
+     */
+    public record Group(List<Object> keys, long units, long revenueCents) {
+    }
+
+    private Segment[] segments = new Segment[16];
+    private int size;
+
+    private final Codes orderCodes = new Codes();
+    private int[] orderMinutes = new int[1024];
+    private int[] orderCustomers = new int[1024];
+
+    private final Codes productCodes = new Codes();
+    private int[] productCategories = new int[256];
+    private long[] productPrices = new long[256];
+
+    private final Codes categoryCodes = new Codes();
+    private final Codes customerCodes = new Codes();
+
+    // Add or change an order
+    public synchronized void order(long orderId, long customerId, int minute) {
+        int order = orderCodes.code(orderId);
+        if (order == orderMinutes.length) {
+            orderMinutes = Arrays.copyOf(orderMinutes, order * 2);
+            orderCustomers = Arrays.copyOf(orderCustomers, order * 2);
+        }
+        orderMinutes[order] = minute;
+        orderCustomers[order] = customerCodes.code(customerId);
+    }
+
+    // Add a product or change its price
+    public synchronized void product(long productId, long categoryId, long priceCents) {
+        int product = productCodes.code(productId);
+        if (product == productCategories.length) {
+            productCategories = Arrays.copyOf(productCategories, product * 2);
+            productPrices = Arrays.copyOf(productPrices, product * 2);
+        }
+        productCategories[product] = categoryCodes.code(categoryId);
+        productPrices[product] = priceCents;
+    }
+
+    synchronized boolean hasOrder(long orderId) {
+        return orderCodes.find(orderId) >= 0;
+    }
+
+    synchronized boolean hasProduct(long productId) {
+        return productCodes.find(productId) >= 0;
+    }
+
+    // Leave a deleted order (and so its items) out of every query
+    synchronized void deleteOrder(long orderId) {
+        int order = orderCodes.find(orderId);
+        if (order >= 0) {
+            orderMinutes[order] = EXCLUDED;
+        }
+    }
+
+    // Leave the orders of a deleted customer out of every query
+    synchronized void deleteCustomer(long customerId) {
+        int customer = customerCodes.find(customerId);
+        for (int order = 0; customer >= 0 && order < orderCodes.size; order++) {
+            if (orderCustomers[order] == customer) {
+                orderMinutes[order] = EXCLUDED;
+            }
+        }
+    }
+
+    // Leave the products of a deleted category (and so their items) out of every query
+    synchronized void deleteCategory(long categoryId) {
+        int category = categoryCodes.find(categoryId);
+        for (int product = 0; category >= 0 && product < productCodes.size; product++) {
+            if (productCategories[product] == category) {
+                productCategories[product] = DELETED;
+            }
+        }
+    }
+
+    // Append a fact; the order and the product must have been added first
+    public synchronized void add(long orderId, long productId, int quantity) {
+        int order = orderCodes.find(orderId);
+        int product = productCodes.find(productId);
+        if (order < 0 || product < 0) {
+            throw new IllegalStateException("Unknown order " + orderId + " or product " + productId);
+        }
+        int index = size & (SEGMENT_SIZE - 1);
+        if (index == 0) {
+            int segment = size >>> SEGMENT_BITS;
+            if (segment == segments.length) {
+                segments = Arrays.copyOf(segments, segment * 2);
+            }
+            segments[segment] = new Segment();
+        }
+        Segment segment = segments[size >>> SEGMENT_BITS];
+        segment.orders[index] = order;
+        segment.products[index] = product;
+        segment.quantities[index] = quantity;
+        size++;
+    }
+
+    // Number of facts
+    public synchronized int size() {
+        return size;
+    }
+
+    // Run a query on the pool; groups are sorted by their keys
+    public List<Group> query(Query query, ForkJoinPool pool) {
+        Scan scan;
+        synchronized (this) {
+            int product = code(productCodes, query.productId());
+            int category = code(categoryCodes, query.categoryId());
+            int customer = code(customerCodes, query.customerId());
+            if (product == DELETED || category == DELETED || customer == DELETED) {
+                return List.of();  // Filtered on an ID that has no facts
+            }
+            scan = new Scan(query, segments, size, orderMinutes, orderCustomers, productCategories, productPrices,
+                    product, category, customer);
+        }
+        GroupTotals totals = pool.invoke(new ScanTask(scan, 0, (scan.size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS));
+
+        List<Group> groups = new ArrayList<>(totals.size);
+        synchronized (this) {
+            for (int slot = 0; slot < totals.keys.length; slot++) {
+                if (totals.used[slot]) {
+                    List<Object> keys = new ArrayList<>(query.groupBy().size());
+                    for (int i = 0; i < query.groupBy().size(); i++) {
+                        keys.add(decode(query.groupBy().get(i), keyPart(totals.keys[slot], i, query.groupBy().size())));
+                    }
+                    groups.add(new Group(keys, totals.units[slot], totals.revenue[slot]));
+                }
+            }
+        }
+        groups.sort(BY_KEYS);
+        return groups;
+    }
+
+    // Code of a filter ID: -2 for no filter, DELETED if the ID has no facts
+    private static int code(Codes codes, Long id) {
+        if (id == null) {
+            return -2;
+        }
+        int code = codes.find(id);
+        return code >= 0 ? code : DELETED;
+    }
+
+    private Object decode(Dimension dimension, int value) {
+        return switch (dimension) {
+            case HOUR -> LocalDateTime.ofEpochSecond(value * 3600L, 0, ZoneOffset.UTC);
+            case DAY -> LocalDate.ofEpochDay(value);
+            case PRODUCT -> productCodes.id(value);
+            case CATEGORY -> categoryCodes.id(value);
+            case CUSTOMER -> customerCodes.id(value);
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Group> BY_KEYS = (a, b) -> {
+        for (int i = 0; i < a.keys().size(); i++) {
+            int order = ((Comparable) a.keys().get(i)).compareTo(b.keys().get(i));
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    };
+
+    // Group key: one dimension value in the low 32 bits, two as high and low halves
+    private static long key(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    private static int keyPart(long key, int index, int parts) {
+        return parts == 2 && index == 0 ? (int) (key >>> 32) : (int) key;
+    }
+
+    private static final class Segment {
+
+        private final int[] orders = new int[SEGMENT_SIZE];
+        private final int[] products = new int[SEGMENT_SIZE];
+        private final int[] quantities = new int[SEGMENT_SIZE];
+    }
+
+    // Everything a scan reads, taken under the lock so it is consistent
+    private record Scan(Query query, Segment[] segments, int size, int[] orderMinutes, int[] orderCustomers,
+                        int[] productCategories, long[] productPrices, int product, int category, int customer) {
+    }
+
+    private static final class ScanTask extends RecursiveTask<GroupTotals> {
+
+        private final Scan scan;
+        private final int fromSegment;
+        private final int toSegment;
+
+        ScanTask(Scan scan, int fromSegment, int toSegment) {
+            this.scan = scan;
+            this.fromSegment = fromSegment;
+            this.toSegment = toSegment;
+        }
+
+        @Override
+        protected GroupTotals compute() {
+            if (toSegment - fromSegment > 1) {
+                int middle = (fromSegment + toSegment) >>> 1;
+                ScanTask right = new ScanTask(scan, middle, toSegment);
+                right.fork();
+                GroupTotals left = new ScanTask(scan, fromSegment, middle).compute();
+                return left.merge(right.join());
+            }
+            GroupTotals totals = new GroupTotals();
+            if (fromSegment < toSegment) {
+                scanSegment(fromSegment, totals);
+            }
+            return totals;
+        }
+
+        private void scanSegment(int index, GroupTotals totals) {
+            Segment segment = scan.segments[index];
+            int rows = Math.min(SEGMENT_SIZE, scan.size - (index << SEGMENT_BITS));
+            Query query = scan.query;
+            List<Dimension> groupBy = query.groupBy();
+            Dimension first = groupBy.isEmpty() ? null : groupBy.get(0);
+            Dimension second = groupBy.size() < 2 ? null : groupBy.get(1);
+            for (int i = 0; i < rows; i++) {
+                int order = segment.orders[i];
+                int minute = scan.orderMinutes[order];
+                if (minute < query.fromMinute() || minute >= query.toMinute()) {
+                    continue;
+                }
+                int product = segment.products[i];
+                int category = scan.productCategories[product];
+                int customer = scan.orderCustomers[order];
+                if (category == DELETED
+                        || scan.product >= 0 && product != scan.product
+                        || scan.category >= 0 && category != scan.category
+                        || scan.customer >= 0 && customer != scan.customer) {
+                    continue;
+                }
+                int quantity = segment.quantities[i];
+                long key = second == null
+                        ? key(0, value(first, minute, product, category, customer))
+                        : key(value(first, minute, product, category, customer), value(second, minute, product, category, customer));
+                totals.add(key, quantity, quantity * scan.productPrices[product]);
+            }
+        }
+
+        private static int value(Dimension dimension, int minute, int product, int category, int customer) {
+            if (dimension == null) {
+                return 0;
+            }
+            return switch (dimension) {
+                case HOUR -> Math.floorDiv(minute, MINUTES_PER_HOUR);
+                case DAY -> Math.floorDiv(minute, MINUTES_PER_DAY);
+                case PRODUCT -> product;
+                case CATEGORY -> category;
+                case CUSTOMER -> customer;
+            };
+        }
+    }
+
+    // Units and revenue per group key, in an open-addressing hash table of primitives
+    private static final class GroupTotals {
+
+        private long[] keys = new long[16];
+        private long[] units = new long[16];
+        private long[] revenue = new long[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        void add(long key, long addedUnits, long addedRevenue) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    units[slot] = addedUnits;
+                    revenue[slot] = addedRevenue;
+                    grow();
+                    return;
+                }
+            }
+            units[slot] += addedUnits;
+            revenue[slot] += addedRevenue;
+        }
+
+        GroupTotals merge(GroupTotals other) {
+            GroupTotals into = size >= other.size ? this : other;
+            GroupTotals from = into == this ? other : this;
+            for (int slot = 0; slot < from.keys.length; slot++) {
+                if (from.used[slot]) {
+                    into.add(from.keys[slot], from.units[slot], from.revenue[slot]);
+                }
+            }
+            return into;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldUnits = units;
+            long[] oldRevenue = revenue;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            units = new long[oldKeys.length * 2];
+            revenue = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot]) {
+                    add(oldKeys[slot], oldUnits[slot], oldRevenue[slot]);
+                }
+            }
+        }
+    }
+
+    // Dense int codes for long IDs, in arrival order, with an open-addressing index
+    private static final class Codes {
+
+        private long[] ids = new long[256];
+        private int[] index = new int[512];
+        private int size;
+
+        Codes() {
+            Arrays.fill(index, -1);
+        }
+
+        // The code of an ID, or -1
+        int find(long id) {
+            int mask = index.length - 1;
+            for (int slot = slot(id, mask); ; slot = (slot + 1) & mask) {
+                int code = index[slot];
+                if (code < 0 || ids[code] == id) {
+                    return code;
+                }
+            }
+        }
+
+        // The code of an ID, handing out the next one if the ID is new
+        int code(long id) {
+            int code = find(id);
+            if (code >= 0) {
+                return code;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            code = size++;
+            ids[code] = id;
+            if (size * 2 > index.length) {
+                index = new int[index.length * 2];
+                Arrays.fill(index, -1);
+                for (int i = 0; i < size; i++) {
+                    insert(i);
+                }
+            } else {
+                insert(code);
+            }
+            return code;
+        }
+
+        long id(int code) {
+            return ids[code];
+        }
+
+        private void insert(int code) {
+            int mask = index.length - 1;
+            int slot = slot(ids[code], mask);
+            while (index[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = code;
+        }
+
+        private static int slot(long id, int mask) {
+            return Long.hashCode(id * 0x9E3779B97F4A7C15L) & mask;
+        }
+    }
+}
@@ -1,64 +1,247 @@
 package com.restaurante.gestionpedidos.services;
 
+import com.restaurante.gestionpedidos.exceptions.ConcurrentUpdateException;
 import com.restaurante.gestionpedidos.models.OrderItem;
 import com.restaurante.gestionpedidos.models.Product;
+import com.restaurante.gestionpedidos.repositories.FieldSet;
 import com.restaurante.gestionpedidos.repositories.OrderItemRepository;
 import com.restaurante.gestionpedidos.repositories.ProductRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class OrderItemService {
 
+    // Attempts made by commutative updates (quantity increments) before reporting a conflict
+    static final int MAX_UPDATE_ATTEMPTS = 5;
+    private static final long RETRY_BACKOFF_MILLIS = 5;
+
     private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
+    private final StockService stockService;
+    private final TransactionTemplate transactionTemplate;
+    // Only present when the write-ahead journal is enabled (gestionpedidos.journal.enabled)
+    private final OrderJournalService orderJournal;
+    private final OrderViewService orderViews;
+    // Only present when the analytics are enabled (gestionpedidos.analytics.enabled)
+    private final AnalyticsService analytics;
 
     @Autowired
-    public OrderItemService(OrderItemRepository orderItemRepository, ProductRepository productRepository) {
+    public OrderItemService(OrderItemRepository orderItemRepository, ProductRepository productRepository,
+                            StockService stockService, PlatformTransactionManager transactionManager,
+                            ObjectProvider<OrderJournalService> orderJournal, OrderViewService orderViews,
+                            ObjectProvider<AnalyticsService> analytics) {
         this.orderItemRepository = orderItemRepository;
         this.productRepository = productRepository;
+        this.stockService = stockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderJournal = orderJournal.getIfAvailable();
+        this.orderViews = orderViews;
+        this.analytics = analytics.getIfAvailable();
     }
 
     // Get all order items
+    @Transactional(readOnly = true)
     public List<OrderItem> getAllOrderItems() {
-        return orderItemRepository.findAll();
+        return orderItemRepository.findAllWithOrderAndProduct();
     }
 
     // Get an order item by ID
+    @Transactional(readOnly = true)
     public Optional<OrderItem> getOrderItemById(Long id) {
-        return orderItemRepository.findById(id);
+        return orderItemRepository.findByIdWithOrderAndProduct(id);
+    }
+
+    // Get all order items with only the requested fields (sparse fieldset, e.g. "id,name")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllOrderItems(String fields) {
+        return orderItemRepository.findAllProjected(FieldSet.of(OrderItem.class, fields));
+    }
+
+    // Get an order item by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getOrderItemById(Long id, String fields) {
+        return orderItemRepository.findProjectedById(FieldSet.of(OrderItem.class, fields), id);
     }
 
-    // Create a new order item
+    // The writes below are deliberately not one transaction: the stock is reserved in its own committed step,
+    // and a version conflict must surface at save() for the retries and the stock compensation to work.
+
+    // Create a new order item, taking its units from the product stock first
     public OrderItem createOrderItem(OrderItem orderItem) {
-        return orderItemRepository.save(orderItem);
+        if (orderItem.getProduct() == null || orderItem.getProduct().getId() == null) {
+            throw new RuntimeException("Product is required");
+        }
+        requirePositive(orderItem.getQuantity());
+        // Items are written straight to the database; an order just acknowledged from the journal must be there first
+        if (orderJournal != null && orderItem.getOrder() != null) {
+            orderJournal.awaitApplied(orderItem.getOrder().getId());
+        }
+
+        Long productId = orderItem.getProduct().getId();
+        stockService.reserve(productId, orderItem.getQuantity());
+        OrderItem saved;
+        try {
+            saved = orderItemRepository.save(orderItem);
+        } catch (RuntimeException e) {
+            stockService.release(productId, orderItem.getQuantity());
+            throw e;
+        }
+        refreshView(saved);
+        recordUnits(saved, saved.getVersion(), productId, saved.getQuantity());
+        return saved;
     }
 
-    // Update an order item
+    // Update an order item (rejects the change if the item was modified since the client read it)
     public OrderItem updateOrderItem(Long id, OrderItem orderItemDetails) {
-        return orderItemRepository.findById(id).map(orderItem -> {
+        return orderItemRepository.findByIdWithOrderAndProduct(id).map(orderItem -> {
+            if (orderItemDetails.getVersion() != null && !orderItemDetails.getVersion().equals(orderItem.getVersion())) {
+                throw new ConcurrentUpdateException("OrderItem " + id + " was modified by another request (expected version "
+                        + orderItemDetails.getVersion() + ", current version " + orderItem.getVersion() + ").");
+            }
+            requirePositive(orderItemDetails.getQuantity());
+
+            Long previousProductId = orderItem.getProduct().getId();
+            int previousQuantity = orderItem.getQuantity();
             orderItem.setQuantity(orderItemDetails.getQuantity());
 
             if (orderItemDetails.getProduct() != null && orderItemDetails.getProduct().getId() != null) {
-                Product product = productRepository.findById(orderItemDetails.getProduct().getId())
+                Product product = productRepository.findByIdWithCategory(orderItemDetails.getProduct().getId())
                         .orElseThrow(() -> new RuntimeException("Product not found"));
                 orderItem.setProduct(product);
             }
 
-            return orderItemRepository.save(orderItem);
+            // Take the extra units before saving and give back the freed ones only once the change is stored
+            Long productId = orderItem.getProduct().getId();
+            boolean sameProduct = productId.equals(previousProductId);
+            int reserved = sameProduct ? Math.max(0, orderItem.getQuantity() - previousQuantity) : orderItem.getQuantity();
+            stockService.reserve(productId, reserved);
+
+            OrderItem saved;
+            try {
+                saved = orderItemRepository.save(orderItem);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                stockService.release(productId, reserved);
+                throw new ConcurrentUpdateException("OrderItem " + id + " was modified by another request, reload it and try again.");
+            } catch (RuntimeException e) {
+                stockService.release(productId, reserved);
+                throw e;
+            }
+
+            if (sameProduct) {
+                stockService.release(productId, Math.max(0, previousQuantity - saved.getQuantity()));
+                recordUnits(saved, saved.getVersion(), productId, saved.getQuantity() - previousQuantity);
+            } else {
+                stockService.release(previousProductId, previousQuantity);
+                recordUnits(saved, saved.getVersion(), previousProductId, -previousQuantity);
+                recordUnits(saved, saved.getVersion(), productId, saved.getQuantity());
+            }
+            refreshView(saved);
+            return loaded(orderItem, saved);
         }).orElseThrow(() -> new RuntimeException("OrderItem not found"));
     }
 
-    // Delete an order item
+    // Add (or remove, with a negative delta) units of an order item.
+    // Increments commute, so a version conflict is resolved by re-reading and re-applying the delta.
+    public OrderItem incrementQuantity(Long id, int delta) {
+        for (int attempt = 1; ; attempt++) {
+            OrderItem orderItem = orderItemRepository.findByIdWithOrderAndProduct(id)
+                    .orElseThrow(() -> new RuntimeException("OrderItem not found"));
+
+            int newQuantity = orderItem.getQuantity() + delta;
+            requirePositive(newQuantity);
+            orderItem.setQuantity(newQuantity);
+
+            Long productId = orderItem.getProduct().getId();
+            int reserved = Math.max(0, delta);
+            stockService.reserve(productId, reserved);
+            try {
+                OrderItem saved = orderItemRepository.save(orderItem);
+                stockService.release(productId, Math.max(0, -delta));
+                refreshView(saved);
+                recordUnits(saved, saved.getVersion(), productId, delta);
+                return loaded(orderItem, saved);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                stockService.release(productId, reserved);
+                if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                    throw new ConcurrentUpdateException("OrderItem " + id + " is being modified concurrently, gave up after "
+                            + attempt + " attempts.");
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Delete an order item, giving its units back to the product stock.
+    // The delete is version-checked: only the request whose DELETE removed the row releases the units it read,
+    // so concurrent deletes of the same item give them back once.
     public boolean deleteOrderItem(Long id) {
-        if (orderItemRepository.existsById(id)) {
-            orderItemRepository.deleteById(id);
-            return true;
+        for (int attempt = 1; ; attempt++) {
+            Optional<OrderItem> orderItem = orderItemRepository.findById(id);
+            if (orderItem.isEmpty()) {
+                return false;
+            }
+            OrderItem read = orderItem.get();
+            Integer deleted = transactionTemplate.execute(status -> orderItemRepository.deleteByIdAndVersion(id, read.getVersion()));
+            if (deleted != null && deleted == 1) {
+                stockService.release(read.getProduct().getId(), read.getQuantity());
+                refreshView(read);
+                recordUnits(read, read.getVersion() + 1, read.getProduct().getId(), -read.getQuantity());
+                return true;
+            }
+            // Changed or deleted since it was read: read it again
+            if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                throw new ConcurrentUpdateException("OrderItem " + id + " is being modified concurrently, gave up after "
+                        + attempt + " attempts.");
+            }
+            backOff(attempt);
+        }
+    }
+
+    // The item as read, carrying the version just stored. The merged copy returned by save() only holds
+    // uninitialized references to its order and product, which can't be serialized once the session is closed.
+    private static OrderItem loaded(OrderItem orderItem, OrderItem saved) {
+        orderItem.setVersion(saved.getVersion());
+        return orderItem;
+    }
+
+    // Report units added to or removed from the item's order to the analytics, with the version the write left the item at
+    private void recordUnits(OrderItem orderItem, long version, Long productId, int quantity) {
+        if (analytics != null && orderItem.getOrder() != null && orderItem.getOrder().getId() != null) {
+            analytics.itemChanged(orderItem.getId(), version, orderItem.getOrder().getId(), productId, quantity);
+        }
+    }
+
+    // Rebuild the read model of the item's order
+    private void refreshView(OrderItem orderItem) {
+        if (orderItem.getOrder() != null && orderItem.getOrder().getId() != null) {
+            orderViews.refresh(orderItem.getOrder().getId());
+        }
+    }
+
+    private static void requirePositive(Integer quantity) {
+        if (quantity == null || quantity < 1) {
+            throw new RuntimeException("Quantity must be at least 1");
         }
-        return false;
     }
-}
 
+    // Randomized, growing pause between retries so competing writers don't collide again in lockstep
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(RETRY_BACKOFF_MILLIS * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("Interrupted while retrying a conflicting update.");
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.restaurante.gestionpedidos.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped write-ahead log with a checkpoint of what has been applied.
+ *
+ * Record layout: length (int), CRC32C of epoch and payload (int), epoch (long), payload.
+ * A record counts once it has been forced to disk; concurrent writers share one force
+ * (group commit). The checkpoint file holds the offset of the first unapplied record and
+ * the epoch it was written in, and is replaced atomically.
+ *
+ * Epochs only grow: the log rewinds to the start with a new epoch once everything written has
+ * been applied, and every open starts a new epoch. On open, the records after the checkpoint are
+ * scanned up to the first one that is torn, fails its checksum or has an older epoch than the one
+ * before it, so leftovers of earlier epochs end the log instead of being taken for a continuation of it.
+ *
+ * A record is complete in the mapped pages as soon as it is written, before it is forced. The OS flushes
+ * those pages even if the JVM crashes, and a later writer's force covers them too, so a record whose append
+ * never returned (the process died, or its force failed) may still be replayed. Its outcome is unknown to the
+ * writer, as with any request whose answer was lost; only a crash of the machine itself can lose it.
+ */
+final class OrderJournal implements Closeable {
+
+    static final String LOG_FILE = "orders.journal";
+    static final String CHECKPOINT_FILE = "orders.checkpoint";
+    static final int HEADER_SIZE = 16;
+
+    private final Path checkpointFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    // Lock order: forceLock, then writeLock
+    private final Object writeLock = new Object();
+    private final Object forceLock = new Object();
+
+    private long epoch;
+    private int writeOffset;
+    private long writtenSeq;
+    private volatile int durableOffset;
+    private volatile long durableSeq;
+    // Only changed by the applier thread
+    private int appliedOffset;
+    private volatile long appliedSeq;
+
+    private OrderJournal(Path directory, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens (or creates) the journal of a directory and finds the records not applied yet.
+     *
+     * @param directory The directory of the log and checkpoint files.
+     * @param capacity  The size of the log file in bytes.
+     * @return The journal, positioned after its last valid record.
+     */
+    static OrderJournal open(Path directory, int capacity) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Never map less than an existing file, its tail could hold unapplied records
+        int size = (int) Math.max(capacity, channel.size());
+        OrderJournal journal = new OrderJournal(directory, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        long minEpoch = 1;
+        int offset = 0;
+        if (Files.exists(checkpointFile)) {
+            ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(checkpointFile));
+            minEpoch = checkpoint.getLong();
+            offset = checkpoint.getInt();
+        }
+        appliedOffset = offset;
+
+        long records = 0;
+        int end;
+        while ((end = recordEnd(offset, minEpoch)) > 0) {
+            minEpoch = buffer.getLong(offset + 8);
+            offset = end;
+            records++;
+        }
+        epoch = minEpoch + 1;
+        writeOffset = offset;
+        durableOffset = offset;
+        writtenSeq = records;
+        durableSeq = records;
+        appliedSeq = 0;
+    }
+
+    // End offset of the valid record at the offset, or -1 if there is none
+    private int recordEnd(int offset, long minEpoch) {
+        if (offset + HEADER_SIZE > capacity) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > capacity - offset - HEADER_SIZE || buffer.getLong(offset + 8) < minEpoch) {
+            return -1;
+        }
+        if (buffer.getInt(offset + 4) != checksum(offset + 8, length + 8)) {
+            return -1;
+        }
+        return offset + HEADER_SIZE + length;
+    }
+
+    private int checksum(int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Appends a record and waits until it is on disk.
+     *
+     * @param payload The record content.
+     * @return The sequence number of the record (counted since the journal was opened),
+     *         or -1 if the journal is full until the applier catches up.
+     */
+    long append(byte[] payload) {
+        long seq;
+        synchronized (writeLock) {
+            int end = writeOffset + HEADER_SIZE + payload.length;
+            if (payload.length == 0 || end > capacity || end < 0) {
+                return -1;
+            }
+            buffer.putLong(writeOffset + 8, epoch);
+            buffer.put(writeOffset + HEADER_SIZE, payload);
+            buffer.putInt(writeOffset + 4, checksum(writeOffset + 8, payload.length + 8));
+            // The length goes last: a record without it is not a record
+            buffer.putInt(writeOffset, payload.length);
+            writeOffset = end;
+            seq = ++writtenSeq;
+        }
+        synchronized (forceLock) {
+            // An earlier writer may already have forced this record along with its own
+            if (durableSeq < seq) {
+                int from;
+                int to;
+                long upTo;
+                synchronized (writeLock) {
+                    from = durableOffset;
+                    to = writeOffset;
+                    upTo = writtenSeq;
+                }
+                buffer.force(from, to - from);
+                durableOffset = to;
+                durableSeq = upTo;
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * Reads the next records on disk that have not been applied yet, without consuming them.
+     *
+     * @param max Maximum number of records.
+     * @return The records, in append order.
+     */
+    List<Entry> read(int max) {
+        List<Entry> entries = new ArrayList<>();
+        int offset = appliedOffset;
+        int limit = durableOffset;
+        long seq = appliedSeq;
+        while (entries.size() < max && offset < limit) {
+            int length = buffer.getInt(offset);
+            long recordEpoch = buffer.getLong(offset + 8);
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_SIZE, payload);
+            offset += HEADER_SIZE + length;
+            entries.add(new Entry(++seq, offset, recordEpoch, payload));
+        }
+        return entries;
+    }
+
+    /**
+     * Records that everything up to an entry has been applied, and rewinds the log if nothing else is pending.
+     *
+     * @param last The last applied entry, as returned by {@link #read}.
+     */
+    void markApplied(Entry last) throws IOException {
+        synchronized (forceLock) {
+            synchronized (writeLock) {
+                if (last.seq() == writtenSeq) {
+                    epoch++;
+                    appliedOffset = 0;
+                    writeOffset = 0;
+                    durableOffset = 0;
+                    writeCheckpoint(epoch, 0);
+                } else {
+                    appliedOffset = last.end();
+                    writeCheckpoint(last.epoch(), last.end());
+                }
+                appliedSeq = last.seq();
+            }
+        }
+    }
+
+    private void writeCheckpoint(long epoch, int offset) throws IOException {
+        Path temporary = checkpointFile.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            file.write(ByteBuffer.allocate(12).putLong(epoch).putInt(offset).flip());
+            file.force(true);
+        }
+        Files.move(temporary, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Gets the sequence number of the last applied record.
+     *
+     * @return The sequence number, 0 if nothing has been applied since the journal was opened.
+     */
+    long appliedSeq() {
+        return appliedSeq;
+    }
+
+    /**
+     * Checks whether records on disk are waiting to be applied.
+     *
+     * @return true if {@link #read} would return records.
+     */
+    boolean hasUnapplied() {
+        return appliedOffset < durableOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One record of the journal.
+     *
+     * @param seq     Sequence number, counted since the journal was opened.
+     * @param end     Offset right after the record.
+     * @param epoch   Epoch the record was written in.
+     * @param payload Record content.
+     */
+    record Entry(long seq, int end, long epoch, byte[] payload) {
+    }
+}
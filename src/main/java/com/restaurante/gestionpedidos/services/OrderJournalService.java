@@ -0,0 +1,291 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.models.TimeOrderedIds;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-ahead journal for new orders (gestionpedidos.journal.enabled=true).
+ *
+ * A new order is acknowledged as soon as it is on disk in the memory-mapped {@link OrderJournal},
+ * which costs one sequential write and a page flush shared with concurrent requests instead of a
+ * database round trip and commit. A background applier inserts the journaled orders into their
+ * location's database in batches. Orders still in the journal after a crash or restart are
+ * applied again on startup; rows that already exist are skipped, so replaying is safe.
+ *
+ * Reads and changes of an order that is still in the journal wait until it has been applied, and so do
+ * deletes of its customer. An acknowledged order the database rejects (e.g. its customer was deleted before
+ * the order was accepted and applied) is never dropped: it is appended to orders.rejected.csv in the journal
+ * directory, to be retried or handled by hand.
+ */
+@Service
+@ConditionalOnProperty(name = "gestionpedidos.journal.enabled", havingValue = "true")
+public class OrderJournalService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderJournalService.class);
+
+    private static final byte NEW_ORDER = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final long AWAIT_TIMEOUT_MILLIS = 5_000;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 5_000;
+
+    private static final String REJECTED_FILE = "orders.rejected.csv";
+
+    private final OrderJournal journal;
+    private final Path rejected;
+    private final TimeOrderedIds ids;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    // Orders in the journal but not in the database yet, with the sequence number of their record
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    // Sequence number of the last journaled order of each customer not in the database yet
+    private final Map<SingleFlight.LocationKey, Long> pendingCustomers = new ConcurrentHashMap<>();
+    private final Object applied = new Object();
+    private volatile boolean running;
+    private volatile Thread applier;
+
+    @Autowired
+    public OrderJournalService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               @Value("${gestionpedidos.journal.directory:journal}") String directory,
+                               @Value("${gestionpedidos.journal.size-mb:64}") int sizeMb,
+                               @Value("${gestionpedidos.journal.batch-size:500}") int batchSize,
+                               @Value("${spring.jpa.properties.gestionpedidos.id-node:0}") int node) throws IOException {
+        this.journal = OrderJournal.open(Path.of(directory), sizeMb * 1024 * 1024);
+        this.rejected = Path.of(directory).resolve(REJECTED_FILE);
+        this.ids = TimeOrderedIds.forNode(node);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        for (OrderJournal.Entry entry : journal.read(Integer.MAX_VALUE)) {
+            JournaledOrder order = decode(entry.payload());
+            pending.put(order.id(), entry.seq());
+            pendingCustomers.merge(order.customerKey(), entry.seq(), Math::max);
+        }
+        if (!pending.isEmpty()) {
+            log.info("Order journal has {} orders to apply from the previous run", pending.size());
+        }
+    }
+
+    // Starts the applier once the application (and its migrations) is up, replaying what the last run left behind
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (applier == null) {
+            running = true;
+            applier = Thread.ofPlatform().name("order-journal-applier").daemon().start(this::applyLoop);
+        }
+    }
+
+    // Journal a new order whose customer has been checked; false if the journal is full and the order must be saved directly
+    public boolean accept(Order order) {
+        order.setId(ids.next());
+        order.setLocation(LocationContext.current());
+        order.setVersion(0L);
+        long seq = journal.append(encode(order));
+        if (seq < 0) {
+            return false;
+        }
+        pending.put(order.getId(), seq);
+        pendingCustomers.merge(SingleFlight.LocationKey.of(order.getCustomer().getId()), seq, Math::max);
+        LockSupport.unpark(applier);
+        return true;
+    }
+
+    // Wait until an order accepted by the journal is in the database (returns at once for any other order)
+    public void awaitApplied(Long orderId) {
+        Long seq = orderId != null ? pending.get(orderId) : null;
+        if (seq != null) {
+            await(seq, "Order " + orderId);
+        }
+    }
+
+    // Wait until every order journaled for a customer of the current location is in the database (or set aside)
+    public void awaitCustomer(Long customerId) {
+        Long seq = customerId != null ? pendingCustomers.get(SingleFlight.LocationKey.of(customerId)) : null;
+        if (seq != null) {
+            await(seq, "An order of customer " + customerId);
+        }
+    }
+
+    private void await(long seq, String what) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AWAIT_TIMEOUT_MILLIS);
+        synchronized (applied) {
+            while (journal.appliedSeq() < seq) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new IllegalStateException(what + " has not been applied from the journal yet");
+                }
+                try {
+                    applied.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal", e);
+                }
+            }
+        }
+    }
+
+    // Stop the applier after it has applied what is on disk (or after a timeout, the rest is replayed on the next start)
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        if (applier != null) {
+            LockSupport.unpark(applier);
+            applier.join(AWAIT_TIMEOUT_MILLIS);
+        }
+        journal.close();
+    }
+
+    private void applyLoop() {
+        long backoff = 0;
+        while (running || (journal.hasUnapplied() && backoff == 0)) {
+            List<OrderJournal.Entry> batch = journal.read(batchSize);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                continue;
+            }
+            try {
+                apply(batch);
+                journal.markApplied(batch.get(batch.size() - 1));
+                backoff = 0;
+            } catch (Exception e) {
+                backoff = Math.min(Math.max(backoff * 2, 50), MAX_RETRY_BACKOFF_MILLIS);
+                log.warn("Could not apply {} journaled orders, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+                continue;
+            }
+            for (OrderJournal.Entry entry : batch) {
+                JournaledOrder order = decode(entry.payload());
+                pending.remove(order.id(), entry.seq());
+                pendingCustomers.remove(order.customerKey(), entry.seq());
+            }
+            synchronized (applied) {
+                applied.notifyAll();
+            }
+        }
+    }
+
+    // Inserts a batch into the database of each location it touches.
+    // Throws (and the batch is retried) if a rejected order could not be set aside.
+    private void apply(List<OrderJournal.Entry> batch) throws IOException {
+        Map<String, List<JournaledOrder>> byLocation = new LinkedHashMap<>();
+        for (OrderJournal.Entry entry : batch) {
+            JournaledOrder order = decode(entry.payload());
+            byLocation.computeIfAbsent(order.location(), location -> new ArrayList<>()).add(order);
+        }
+        List<String> rejectedRows = new ArrayList<>();
+        byLocation.forEach((location, orders) -> LocationContext.run(location, () -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertMissing(orders));
+            } catch (DataIntegrityViolationException e) {
+                // One bad order (e.g. its customer was deleted meanwhile) must not hold back the others
+                for (JournaledOrder order : orders) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> insertMissing(List.of(order)));
+                    } catch (DataIntegrityViolationException rejection) {
+                        String reason = rejection.getMostSpecificCause().getMessage();
+                        log.error("Journaled order {} of customer {} was rejected, setting it aside in {}: {}",
+                                order.id(), order.customerId(), rejected, reason);
+                        rejectedRows.add(order.csv(reason));
+                    }
+                }
+            }
+        }));
+        if (!rejectedRows.isEmpty()) {
+            setAside(rejectedRows);
+        }
+    }
+
+    // Appends rejected orders to the rejected file and forces them to disk before the batch counts as applied
+    private void setAside(List<String> rows) throws IOException {
+        boolean created = !Files.exists(rejected);
+        StringBuilder text = new StringBuilder();
+        if (created) {
+            text.append("id,customer_id,order_date,location,reason\n");
+        }
+        rows.forEach(row -> text.append(row).append('\n'));
+        Files.writeString(rejected, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                StandardOpenOption.SYNC);
+    }
+
+    // Inserts the orders that are not in the database yet (a replayed batch may have been applied before)
+    private void insertMissing(List<JournaledOrder> orders) {
+        Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE id IN (" + String.join(",", Collections.nCopies(orders.size(), "?")) + ")",
+                Long.class, orders.stream().map(JournaledOrder::id).toArray()));
+        List<Object[]> rows = new ArrayList<>(orders.size());
+        for (JournaledOrder order : orders) {
+            if (!existing.contains(order.id())) {
+                Timestamp orderDate = order.orderDate() != NO_DATE ? new Timestamp(order.orderDate()) : null;
+                rows.add(new Object[]{order.id(), order.customerId(), orderDate, order.location()});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, customer_id, order_date, location, version) VALUES (?, ?, ?, ?, 0)", rows);
+    }
+
+    private static byte[] encode(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(NEW_ORDER);
+            out.writeLong(order.getId());
+            out.writeLong(order.getCustomer().getId());
+            out.writeLong(order.getOrderDate() != null ? order.getOrderDate().getTime() : NO_DATE);
+            out.writeUTF(order.getLocation());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static JournaledOrder decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte type = in.readByte();
+            if (type != NEW_ORDER) {
+                throw new IllegalStateException("Unknown journal record type " + type);
+            }
+            return new JournaledOrder(in.readLong(), in.readLong(), in.readLong(), in.readUTF());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record JournaledOrder(long id, long customerId, long orderDate, String location) {
+
+        SingleFlight.LocationKey customerKey() {
+            return new SingleFlight.LocationKey(location, customerId);
+        }
+
+        // A row of the rejected file: the order's columns (order_date as ISO-8601 UTC) and why it was rejected
+        String csv(String reason) {
+            String date = orderDate != NO_DATE ? Instant.ofEpochMilli(orderDate).toString() : "";
+            String why = reason == null ? "" : reason.replace("\"", "\"\"").replaceAll("\\s+", " ");
+            return id + "," + customerId + "," + date + "," + location + ",\"" + why + "\"";
+        }
+    }
+}
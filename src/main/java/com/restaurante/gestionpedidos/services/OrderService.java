@@ -1,53 +1,192 @@
 package com.restaurante.gestionpedidos.services;
 
+import com.restaurante.gestionpedidos.dto.OrderItemTotals;
+import com.restaurante.gestionpedidos.dto.OrderTotals;
+import com.restaurante.gestionpedidos.dto.OrderView;
+import com.restaurante.gestionpedidos.exceptions.ConcurrentUpdateException;
 import com.restaurante.gestionpedidos.models.Customer;
+import com.restaurante.gestionpedidos.models.Money;
 import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.models.OrderItem;
 import com.restaurante.gestionpedidos.repositories.CustomerRepository;
+import com.restaurante.gestionpedidos.repositories.FieldSet;
+import com.restaurante.gestionpedidos.repositories.OrderItemRepository;
 import com.restaurante.gestionpedidos.repositories.OrderRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class OrderService {
 
+    // Order lines as (order id, quantity, unit price in cents); orders without items give one row of nulls
+    private static final String ORDER_LINES = "SELECT o.id, oi.quantity, p.price_cents FROM orders o " +
+            "LEFT JOIN order_items oi ON oi.order_id = o.id LEFT JOIN products p ON p.id = oi.product_id ";
+    // Items read per statement when listing the items of an order
+    static final int ITEMS_CHUNK = 500;
+
     private final OrderRepository orderRepository;
     private final CustomerRepository customerRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final StockService stockService;
+    private final JdbcTemplate jdbcTemplate;
+    // Only present when the write-ahead journal is enabled (gestionpedidos.journal.enabled)
+    private final OrderJournalService orderJournal;
+    private final OrderViewService orderViews;
+    // Only present when the analytics are enabled (gestionpedidos.analytics.enabled)
+    private final AnalyticsService analytics;
 
     @Autowired
-    public OrderService(OrderRepository orderRepository, CustomerRepository customerRepository) {
+    public OrderService(OrderRepository orderRepository, CustomerRepository customerRepository,
+                        OrderItemRepository orderItemRepository, StockService stockService, JdbcTemplate jdbcTemplate,
+                        ObjectProvider<OrderJournalService> orderJournal, OrderViewService orderViews,
+                        ObjectProvider<AnalyticsService> analytics) {
         this.orderRepository = orderRepository;
         this.customerRepository = customerRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.stockService = stockService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderJournal = orderJournal.getIfAvailable();
+        this.orderViews = orderViews;
+        this.analytics = analytics.getIfAvailable();
     }
 
     // Get all orders
+    @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
 
     // Get an order by ID
+    @Transactional(readOnly = true)
     public Optional<Order> getOrderById(Long id) {
+        awaitJournal(id);
         return orderRepository.findById(id);
     }
 
-    // Create a new order (ensure the customer exists)
+    // Get the denormalized view of an order (customer name, items, product names, prices and totals), from memory
+    @Transactional(readOnly = true)
+    public Optional<OrderView> getOrderView(Long id) {
+        awaitJournal(id);
+        return orderViews.getView(id);
+    }
+
+    // Get all orders with only the requested fields (sparse fieldset, e.g. "id,name")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllOrders(String fields) {
+        return orderRepository.findAllProjected(FieldSet.of(Order.class, fields));
+    }
+
+    // Get an order by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getOrderById(Long id, String fields) {
+        awaitJournal(id);
+        return orderRepository.findProjectedById(FieldSet.of(Order.class, fields), id);
+    }
+
+    // Get many orders by ID, in request order (IDs that match nothing get a not-found marker)
+    @Transactional(readOnly = true)
+    public List<Object> getOrdersByIds(List<Long> ids) {
+        return BatchLookup.findAll(ids, orderRepository::findAllWithCustomerById, Order::getId);
+    }
+
+    // Get many orders by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public List<Object> getOrdersByIds(List<Long> ids, String fields) {
+        FieldSet fieldSet = FieldSet.of(Order.class, fields);
+        return BatchLookup.findAll(ids, chunk -> orderRepository.findAllProjectedById(fieldSet, chunk),
+                row -> (Long) row.get("id"));
+    }
+
+    // Get the total of an order at the current product prices, exact to the cent
+    @Transactional(readOnly = true)
+    public Optional<BigDecimal> getOrderTotal(Long id) {
+        awaitJournal(id);
+        LineTotals totals = new LineTotals();
+        jdbcTemplate.query(ORDER_LINES + "WHERE o.id = ?", totals, id);
+        return totals.orders == 0 ? Optional.empty() : Optional.of(Money.toDecimal(totals.totalCents));
+    }
+
+    // Pass the items of an order to the consumer in ID order, with their line totals, and return the order totals.
+    // Not transactional: every chunk is read in its own short transaction, so a large order is never held in
+    // memory whole and no connection is kept while the consumer writes to a slow client.
+    public OrderItemTotals forEachOrderItem(Long orderId, Consumer<OrderView.Line> lines) {
+        awaitJournal(orderId);
+        long units = 0;
+        long totalCents = 0;
+        long lastId = Long.MIN_VALUE;
+        List<OrderItem> chunk;
+        do {
+            chunk = orderItemRepository.findByOrderIdAndIdGreaterThanOrderById(orderId, lastId, Limit.of(ITEMS_CHUNK));
+            for (OrderItem item : chunk) {
+                int quantity = item.getQuantity();
+                long priceCents = item.getProduct().getPriceCents();
+                long lineCents = Money.addLine(0, priceCents, quantity);
+                lines.accept(new OrderView.Line(item.getId(), item.getProduct().getId(), item.getProduct().getName(),
+                        quantity, Money.toDecimal(priceCents), Money.toDecimal(lineCents)));
+                units += quantity;
+                totalCents += lineCents;
+                lastId = item.getId();
+            }
+        } while (chunk.size() == ITEMS_CHUNK);
+        return new OrderItemTotals(orderId, units, Money.toDecimal(totalCents));
+    }
+
+    // Get the totals of the orders placed between two days (both inclusive)
+    @Transactional(readOnly = true)
+    public OrderTotals getOrderTotals(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        LineTotals totals = new LineTotals();
+        jdbcTemplate.query(ORDER_LINES + "WHERE o.order_date >= ? AND o.order_date < ? ORDER BY o.id", totals,
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        return new OrderTotals(from, to, totals.orders, totals.units, Money.toDecimal(totals.totalCents));
+    }
+
+    // Create a new order (ensure the customer exists); with the journal enabled it is acknowledged once journaled
+    @Transactional
     public Order createOrder(Order order) {
         Optional<Customer> customer = customerRepository.findById(order.getCustomer().getId());
 
         if (customer.isPresent()) {
             order.setCustomer(customer.get());  // Load full Customer object
-            return orderRepository.save(order);
+            Order saved = orderJournal != null && orderJournal.accept(order) ? order : orderRepository.save(order);
+            orderViews.created(saved);
+            if (analytics != null) {
+                analytics.orderSaved(saved);
+            }
+            return saved;
         } else {
             throw new RuntimeException("Customer with ID " + order.getCustomer().getId() + " not found.");
         }
     }
 
-    //Update an order
-
+    // Update an order (rejects the change if the order was modified since the client read it)
+    @Transactional
     public Order updateOrder(Long id, Order orderDetails) {
+        awaitJournal(id);
         return orderRepository.findById(id).map(order -> {
+            if (orderDetails.getVersion() != null && !orderDetails.getVersion().equals(order.getVersion())) {
+                throw new ConcurrentUpdateException("Order " + id + " was modified by another request (expected version "
+                        + orderDetails.getVersion() + ", current version " + order.getVersion() + ").");
+            }
+
             if (orderDetails.getOrderDate() != null) {
                 order.setOrderDate(orderDetails.getOrderDate());
             }
@@ -58,16 +197,64 @@ public class OrderService {
                 order.setCustomer(customer);
             }
 
-            return orderRepository.save(order);
+            try {
+                // Flushed here so a stale version is reported now, not when the transaction commits
+                Order saved = orderRepository.saveAndFlush(order);
+                orderViews.refresh(id);
+                if (analytics != null) {
+                    analytics.orderSaved(saved);
+                }
+                return saved;
+            } catch (ObjectOptimisticLockingFailureException e) {
+                throw new ConcurrentUpdateException("Order " + id + " was modified by another request, reload it and try again.");
+            }
         }).orElseThrow(() -> new RuntimeException("Order not found"));
     }
 
-    // Delete an order
+    // Delete an order and its items with one statement each, giving the items' units back to the product stock
+    @Transactional
     public boolean deleteOrder(Long id) {
-        if (orderRepository.existsById(id)) {
-            orderRepository.deleteById(id);
-            return true;
+        awaitJournal(id);
+        // Items first (foreign key), locked while their units are released; the order row delete reports whether the order existed
+        stockService.releaseAll(orderItemRepository.findByOrderIdForUpdate(id));
+        orderItemRepository.deleteByOrderId(id);
+        if (orderRepository.deleteOrderRow(id) == 0) {
+            return false;
+        }
+        orderViews.evict(id);
+        if (analytics != null) {
+            analytics.orderDeleted(id);
+        }
+        return true;
+    }
+
+    // Wait until an order acknowledged from the journal has reached the database
+    void awaitJournal(Long id) {
+        if (orderJournal != null) {
+            orderJournal.awaitApplied(id);
+        }
+    }
+
+    // Sums the order lines row by row into primitive counters, so a report of any size allocates nothing per row.
+    // Expects the rows of one order to be adjacent (ORDER BY the order id).
+    private static final class LineTotals implements RowCallbackHandler {
+
+        private long lastOrderId = Long.MIN_VALUE;
+        private long orders;
+        private long units;
+        private long totalCents;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long orderId = rs.getLong(1);
+            if (orderId != lastOrderId) {
+                lastOrderId = orderId;
+                orders++;
+            }
+            // getInt/getLong read SQL NULL (order without items) as 0
+            int quantity = rs.getInt(2);
+            units += quantity;
+            totalCents = Money.addLine(totalCents, rs.getLong(3), quantity);
         }
-        return false;
     }
-}
\ No newline at end of file
+}
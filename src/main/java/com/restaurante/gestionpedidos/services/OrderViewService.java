@@ -0,0 +1,255 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.dto.OrderView;
+import com.restaurante.gestionpedidos.models.Money;
+import com.restaurante.gestionpedidos.models.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory read model of the open orders ({@link OrderView}), served without touching the database.
+ *
+ * The order and item write paths rebuild the view of the order they changed, with one query over the
+ * order, its customer, its items and their products. Changes that affect many views at once (a product
+ * or customer edit, a bulk price change) drop the affected views instead; they are rebuilt on the next read.
+ * Inside a transaction this happens once it has committed. Views are built outside the map, so no map lock is
+ * held during the query; each build is stamped when it starts and only replaces a view from an earlier one, so
+ * of two concurrent writes to one order the later rebuild wins. A build that started before a view was dropped
+ * is returned but not kept. Concurrent reads of a missing or old view share one build.
+ *
+ * Writes made by other instances (or straight to the database) don't reach this memory, so a view older than
+ * gestionpedidos.order-view.max-age-seconds is rebuilt from the tables on its next read, however often it is
+ * read: that is how stale a view can get.
+ *
+ * An order counts as closed once nobody has written or read it for gestionpedidos.order-view.idle-minutes;
+ * closed orders are evicted, and so are the least recently used ones above gestionpedidos.order-view.max-orders.
+ */
+@Service
+public class OrderViewService {
+
+    private static final String ORDER_VIEW = "SELECT o.id, o.location, o.order_date, c.id, c.name, " +
+            "oi.id, oi.quantity, p.id, p.name, p.price_cents FROM orders o " +
+            "JOIN customers c ON c.id = o.customer_id " +
+            "LEFT JOIN order_items oi ON oi.order_id = o.id LEFT JOIN products p ON p.id = oi.product_id " +
+            "WHERE o.id = ? ORDER BY oi.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxOrders;
+    private final long idleNanos;
+    private final long maxAgeNanos;
+
+    private final Map<Key, Entry> views = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong lastDrop = new AtomicLong();
+    private final SingleFlight<Key, Optional<Entry>> readBuilds;
+
+    @Autowired
+    public OrderViewService(JdbcTemplate jdbcTemplate,
+                            @Value("${gestionpedidos.order-view.max-orders:10000}") int maxOrders,
+                            @Value("${gestionpedidos.order-view.idle-minutes:120}") long idleMinutes,
+                            @Value("${gestionpedidos.order-view.max-age-seconds:30}") long maxAgeSeconds,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxOrders = maxOrders;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+        this.readBuilds = new SingleFlight<>("order-view", meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    // Get the view of an order, built from the tables only if it is not in memory or too old
+    public Optional<OrderView> getView(Long orderId) {
+        Key key = key(orderId);
+        Entry entry = views.get(key);
+        if (entry == null || entry.expired(maxAgeNanos)) {
+            // Concurrent readers share one build
+            Optional<Entry> built = readBuilds.load(key, () -> build(key, orderId));
+            if (built.isEmpty()) {
+                return Optional.empty();
+            }
+            entry = built.get();
+        }
+        entry.touch();
+        evictClosed();
+        return Optional.of(entry.view);
+    }
+
+    // A new order has no items yet, so its view comes straight from the saved entity
+    void created(Order order) {
+        OrderView view = new OrderView(order.getId(), order.getLocation(), order.getOrderDate(),
+                order.getCustomer().getId(), order.getCustomer().getName(), List.of(), 0, Money.toDecimal(0));
+        Key key = key(order.getId());
+        AfterCommit.run(() -> {
+            long stamp = builds.incrementAndGet();
+            install(key, stamp, new Entry(view, stamp));
+            evictClosed();
+        });
+    }
+
+    // Rebuild the view of an order after it or one of its items changed (drops it if the order is gone)
+    void refresh(Long orderId) {
+        Key key = key(orderId);
+        // Not shared with a read in flight: that build may have started before the change committed
+        AfterCommit.run(() -> {
+            build(key, orderId);
+            evictClosed();
+        });
+    }
+
+    // Drop the view of a deleted order
+    void evict(Long orderId) {
+        Key key = key(orderId);
+        AfterCommit.run(() -> {
+            dropped();
+            views.remove(key);
+        });
+    }
+
+    // Drop the views showing a product whose name or price changed
+    void evictProduct(Long productId) {
+        String location = LocationContext.current();
+        AfterCommit.run(() -> {
+            dropped();
+            views.entrySet().removeIf(e -> e.getKey().location().equals(location)
+                    && e.getValue().view.items().stream().anyMatch(line -> line.productId() == productId));
+        });
+    }
+
+    // Drop the views of a customer's orders after the customer changed
+    void evictCustomer(Long customerId) {
+        String location = LocationContext.current();
+        AfterCommit.run(() -> {
+            dropped();
+            views.entrySet().removeIf(e -> e.getKey().location().equals(location)
+                    && e.getValue().view.customerId() == customerId);
+        });
+    }
+
+    // Drop every view of the current location (bulk price changes, category deletes)
+    void evictLocation() {
+        String location = LocationContext.current();
+        AfterCommit.run(() -> {
+            dropped();
+            views.keySet().removeIf(key -> key.location().equals(location));
+        });
+    }
+
+    // Build the view of an order from the tables and keep it, unless a later build or a drop got there first
+    private Optional<Entry> build(Key key, Long orderId) {
+        long stamp = builds.incrementAndGet();
+        Entry entry = load(orderId).map(view -> new Entry(view, stamp)).orElse(null);
+        install(key, stamp, entry);
+        return Optional.ofNullable(entry);
+    }
+
+    // Only swaps entries, the query has already run: a null entry removes the view of an order that is gone
+    private void install(Key key, long stamp, Entry entry) {
+        views.compute(key, (k, current) -> stamp <= lastDrop.get() || current != null && current.stamp > stamp
+                ? current : entry);
+    }
+
+    // Marks builds started until now as stale; taken before the views are removed, so a build finishing
+    // in between sees it
+    private void dropped() {
+        lastDrop.accumulateAndGet(builds.incrementAndGet(), Math::max);
+    }
+
+    // Build the view of an order from the tables
+    Optional<OrderView> load(Long orderId) {
+        return jdbcTemplate.query(ORDER_VIEW, (ResultSet rs) -> {
+            if (!rs.next()) {
+                return Optional.<OrderView>empty();
+            }
+            long id = rs.getLong(1);
+            String location = rs.getString(2);
+            Timestamp orderDate = rs.getTimestamp(3);
+            long customerId = rs.getLong(4);
+            String customerName = rs.getString(5);
+            List<OrderView.Line> items = new ArrayList<>();
+            long units = 0;
+            long totalCents = 0;
+            do {
+                long itemId = rs.getLong(6);
+                if (rs.wasNull()) {
+                    break;  // Order without items
+                }
+                int quantity = rs.getInt(7);
+                long priceCents = rs.getLong(10);
+                long lineCents = Money.addLine(0, priceCents, quantity);
+                items.add(new OrderView.Line(itemId, rs.getLong(8), rs.getString(9), quantity,
+                        Money.toDecimal(priceCents), Money.toDecimal(lineCents)));
+                units += quantity;
+                totalCents += lineCents;
+            } while (rs.next());
+            return Optional.of(new OrderView(id, location, orderDate != null ? new Date(orderDate.getTime()) : null,
+                    customerId, customerName, List.copyOf(items), units, Money.toDecimal(totalCents)));
+        }, orderId);
+    }
+
+    // Number of views in memory
+    int size() {
+        return views.size();
+    }
+
+    // Removes closed orders every so often, and the least recently used ones when there are too many
+    private void evictClosed() {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (now - last >= idleNanos / 10 && lastSweep.compareAndSet(last, now)) {
+            views.values().removeIf(entry -> now - entry.touched > idleNanos);
+        }
+        int excess = views.size() - maxOrders;
+        if (excess > 0) {
+            // Evict a tenth more than needed, so a full map is not sorted again on every write.
+            // The access times are copied first: they keep changing while the copy is sorted.
+            views.entrySet().stream()
+                    .map(e -> Map.entry(e.getKey(), e.getValue().touched))
+                    .sorted(Map.Entry.comparingByValue())
+                    .limit(excess + maxOrders / 10)
+                    .forEach(e -> views.remove(e.getKey()));
+        }
+    }
+
+    private static Key key(Long orderId) {
+        return new Key(LocationContext.current(), orderId);
+    }
+
+    // Order IDs are only unique within a location's database
+    private record Key(String location, long orderId) {
+    }
+
+    private static final class Entry {
+
+        private final OrderView view;
+        private final long stamp;
+        private final long built = System.nanoTime();
+        private volatile long touched = built;
+
+        Entry(OrderView view, long stamp) {
+            this.view = view;
+            this.stamp = stamp;
+        }
+
+        // Reads don't make a view younger, only rebuilding it does
+        boolean expired(long maxAgeNanos) {
+            return System.nanoTime() - built >= maxAgeNanos;
+        }
+
+        void touch() {
+            touched = System.nanoTime();
+        }
+    }
+}
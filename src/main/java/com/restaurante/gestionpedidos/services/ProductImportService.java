@@ -0,0 +1,272 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.dto.ImportReport;
+import com.restaurante.gestionpedidos.models.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Bulk import of products from a CSV file.
+ *
+ * The file is read as a stream, one record at a time, so its size is not limited by the heap.
+ * Valid rows are collected into chunks and each chunk is written with a single JDBC batch
+ * in its own transaction. Categories are resolved by name from an in-memory map and created
+ * when missing.
+ *
+ * Expected header (any column order, case-insensitive): name,price,description,category[,stock]
+ */
+@Service
+public class ProductImportService {
+
+    static final int CHUNK_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (name, price_cents, description, category_id, stock, location) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "price", "description", "category");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ProductImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Import the products of a CSV stream, reporting the rows that could not be imported
+    public ImportReport importProducts(InputStream csv) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+        Import run = new Import(loadCategories());
+
+        List<String> header = reader.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("The file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT).replace("\uFEFF", ""), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Missing column '" + column + "' in the header");
+            }
+        }
+
+        List<String> record;
+        while ((record = readRecord(reader, run)) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            run.rowsRead++;
+            try {
+                run.chunk.add(parseRow(reader.getRecordLine(), record, columns, run));
+            } catch (IllegalArgumentException e) {
+                run.fail(reader.getRecordLine(), e.getMessage());
+            }
+            if (run.chunk.size() >= CHUNK_SIZE) {
+                flush(run);
+            }
+        }
+        flush(run);
+
+        return new ImportReport(run.rowsRead, run.rowsImported, run.rowsFailed, run.categoriesCreated,
+                run.errors, run.rowsFailed > run.errors.size());
+    }
+
+    private static List<String> readRecord(CsvReader reader, Import run) throws IOException {
+        try {
+            return reader.readRecord();
+        } catch (IOException e) {
+            // A broken quote swallows the rest of the file, report it instead of failing the whole import
+            run.fail(reader.getRecordLine(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Row parseRow(long line, List<String> record, Map<String, Integer> columns, Import run) {
+        String name = column(record, columns, "name");
+        String description = column(record, columns, "description");
+        String category = column(record, columns, "category");
+        String price = column(record, columns, "price");
+        String stock = column(record, columns, "stock");
+
+        if (name == null) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (description == null) {
+            throw new IllegalArgumentException("Description is required");
+        }
+        if (category == null) {
+            throw new IllegalArgumentException("Category is required");
+        }
+        if (price == null) {
+            throw new IllegalArgumentException("Price is required");
+        }
+
+        long priceCents;
+        try {
+            priceCents = Money.toMinorUnits(new BigDecimal(price));
+        } catch (IllegalArgumentException e) {
+            // Not a number (NumberFormatException), or more than two decimals
+            throw new IllegalArgumentException("Invalid price '" + price + "'");
+        }
+        if (priceCents < 0) {
+            throw new IllegalArgumentException("Invalid price '" + price + "'");
+        }
+
+        Integer parsedStock = null;
+        if (stock != null) {
+            try {
+                parsedStock = Integer.parseInt(stock);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid stock '" + stock + "'");
+            }
+            if (parsedStock < 0) {
+                throw new IllegalArgumentException("Stock cannot be negative");
+            }
+        }
+
+        return new Row(line, name, priceCents, description, resolveCategory(category, run), parsedStock);
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Write the pending chunk as one batch; if the batch fails, retry row by row to find the bad rows
+    private void flush(Import run) {
+        if (run.chunk.isEmpty()) {
+            return;
+        }
+        List<Row> chunk = run.chunk;
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_PRODUCT, chunk, chunk.size(),
+                    (ps, row) -> bind(ps, row, run.location)));
+            run.rowsImported += chunk.size();
+        } catch (DataAccessException batchFailure) {
+            for (Row row : chunk) {
+                try {
+                    jdbcTemplate.update(INSERT_PRODUCT, ps -> bind(ps, row, run.location));
+                    run.rowsImported++;
+                } catch (DataAccessException e) {
+                    run.fail(row.line(), rootMessage(e));
+                }
+            }
+        }
+        run.chunk = new ArrayList<>(CHUNK_SIZE);
+    }
+
+    private static void bind(PreparedStatement ps, Row row, String location) throws SQLException {
+        ps.setString(1, row.name());
+        ps.setLong(2, row.priceCents());
+        ps.setString(3, row.description());
+        ps.setLong(4, row.categoryId());
+        if (row.stock() == null) {
+            ps.setNull(5, Types.INTEGER);
+        } else {
+            ps.setInt(5, row.stock());
+        }
+        ps.setString(6, location);
+    }
+
+    private Map<String, Long> loadCategories() {
+        Map<String, Long> categories = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM categories",
+                rs -> {
+            categories.put(categoryKey(rs.getString(2)), rs.getLong(1));
+        });
+        return categories;
+    }
+
+    private Long resolveCategory(String name, Import run) {
+        String key = categoryKey(name);
+        Long id = run.categories.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        try {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement("INSERT INTO categories (name, location) VALUES (?, ?)",
+                        Statement.RETURN_GENERATED_KEYS);
+                ps.setString(1, name);
+                ps.setString(2, run.location);
+                return ps;
+            }, keyHolder);
+            id = Objects.requireNonNull(keyHolder.getKey()).longValue();
+            run.categoriesCreated++;
+        } catch (DuplicateKeyException e) {
+            // Created by a concurrent import (or differs only in case)
+            id = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = ?", Long.class, name);
+        }
+        run.categories.put(key, id);
+        return id;
+    }
+
+    // MySQL compares names case-insensitively, so the in-memory lookup does too
+    private static String categoryKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    private record Row(long line, String name, long priceCents, String description, long categoryId, Integer stock) {
+    }
+
+    // Mutable state of one import run
+    private static final class Import {
+        // The location the rows are written for (the JDBC inserts bypass the entities' @PrePersist)
+        private final String location = LocationContext.current();
+        private final Map<String, Long> categories;
+        private List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsFailed;
+        private int categoriesCreated;
+
+        private Import(Map<String, Long> categories) {
+            this.categories = categories;
+        }
+
+        private void fail(long line, String message) {
+            rowsFailed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(line, message));
+            }
+        }
+    }
+}
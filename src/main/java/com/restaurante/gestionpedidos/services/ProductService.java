@@ -1,56 +1,213 @@
 package com.restaurante.gestionpedidos.services;
 
+import com.restaurante.gestionpedidos.dto.PriceAdjustment;
+import com.restaurante.gestionpedidos.models.Money;
 import com.restaurante.gestionpedidos.models.Product;
+import com.restaurante.gestionpedidos.repositories.FieldSet;
 import com.restaurante.gestionpedidos.repositories.ProductRepository;
+import com.restaurante.gestionpedidos.repositories.ProductStockShardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ProductService {
 
+    // Upper bound for explicit ID lists, keeps the IN clause of a bulk update reasonable
+    static final int MAX_PRICE_ADJUSTMENT_IDS = 1000;
+
     private final ProductRepository productRepository;
+    private final StockService stockService;
+    private final OrderViewService orderViews;
+    // Concurrent reads of the same product share one query, keyed by location and ID
+    private final SingleFlight<SingleFlight.LocationKey, Optional<Product>> productLoads;
+    private final ProductStockShardRepository shardRepository;
+    private final IdFilterService idFilter;
+    // Only present when the analytics are enabled (gestionpedidos.analytics.enabled)
+    private final AnalyticsService analytics;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, StockService stockService, OrderViewService orderViews,
+                          ObjectProvider<MeterRegistry> meterRegistry, ProductStockShardRepository shardRepository,
+                          ObjectProvider<IdFilterService> idFilter, ObjectProvider<AnalyticsService> analytics) {
         this.productRepository = productRepository;
+        this.stockService = stockService;
+        this.orderViews = orderViews;
+        this.productLoads = new SingleFlight<>("product", meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        this.shardRepository = shardRepository;
+        this.idFilter = idFilter.getIfAvailable();
+        this.analytics = analytics.getIfAvailable();
     }
 
     // Get all products
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
             return productRepository.findAllWithCategory();
     }
 
-    // Get a product by ID
+    // Get a product by ID. Outside a transaction, concurrent calls for the same product share one query
+    // (the repository's own read-only transaction); inside one, the caller's persistence context is used.
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        if (!mightExist(id)) {
+            return Optional.empty();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return productRepository.findByIdWithCategory(id);
+        }
+        return productLoads.load(SingleFlight.LocationKey.of(id), () -> productRepository.findByIdWithCategory(id));
+    }
+
+    // Get all products with only the requested fields (sparse fieldset, e.g. "id,name")
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllProducts(String fields) {
+        return productRepository.findAllProjected(FieldSet.of(Product.class, fields));
     }
 
-    // Create a new product
+    // Get a product by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getProductById(Long id, String fields) {
+        if (!mightExist(id)) {
+            return Optional.empty();
+        }
+        return productRepository.findProjectedById(FieldSet.of(Product.class, fields), id);
+    }
+
+    // Get many products by ID, in request order (IDs that match nothing get a not-found marker)
+    @Transactional(readOnly = true)
+    public List<Object> getProductsByIds(List<Long> ids) {
+        return BatchLookup.findAll(ids, productRepository::findAllWithCategoryById, Product::getId);
+    }
+
+    // Get many products by ID with only the requested fields
+    @Transactional(readOnly = true)
+    public List<Object> getProductsByIds(List<Long> ids, String fields) {
+        FieldSet fieldSet = FieldSet.of(Product.class, fields);
+        return BatchLookup.findAll(ids, chunk -> productRepository.findAllProjectedById(fieldSet, chunk),
+                row -> (Long) row.get("id"));
+    }
+
+    // Create a new product (a sharded initial stock is spread over its shard rows)
+    @Transactional
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Integer shards = product.getStockShards();
+        if (shards == null || shards <= 1 || product.getStock() == null) {
+            product.setStockShards(null);
+            return added(productRepository.save(product));
+        }
+
+        Integer stock = product.getStock();
+        product.setStock(null);
+        product.setStockShards(null);
+        Product saved = productRepository.saveAndFlush(product);
+        stockService.setStock(saved.getId(), stock, shards);
+        saved.setStockShards(shards);
+        return added(saved);
     }
 
     // Update an existing product
+    @Transactional
     public Product updateProduct(Long id, Product productDetails) {
-        return productRepository.findById(id)
+        if (!mightExist(id)) {
+            return null;
+        }
+        return productRepository.findByIdWithCategory(id)
                 .map(product -> {
                     product.setName(productDetails.getName());
-                    product.setPrice(productDetails.getPrice());
+                    product.setPriceCents(productDetails.getPriceCents());
                     product.setDescription(productDetails.getDescription());
-                    return productRepository.save(product);
+                    Product saved = productRepository.save(product);
+                    orderViews.evictProduct(id);
+                    if (analytics != null) {
+                        analytics.productSaved(saved);
+                    }
+                    return saved;
                 }).orElse(null);
     }
 
-    // Delete a product
+    // Change the price of a whole category (or of a list of products) with a single UPDATE
+    @Transactional
+    public int adjustPrices(PriceAdjustment adjustment) {
+        boolean byPercentage = adjustment.percentage() != null;
+        boolean byCategory = adjustment.categoryId() != null;
+        if (byPercentage == (adjustment.amount() != null)) {
+            throw new IllegalArgumentException("Give exactly one of 'percentage' and 'amount'");
+        }
+        if (byCategory == (adjustment.productIds() != null)) {
+            throw new IllegalArgumentException("Give exactly one of 'categoryId' and 'productIds'");
+        }
+        if (byPercentage && adjustment.percentage().compareTo(BigDecimal.valueOf(-100)) <= 0) {
+            throw new IllegalArgumentException("Percentage must be greater than -100");
+        }
+
+        Set<Long> ids = byCategory ? Set.of() : new HashSet<>(adjustment.productIds());
+        if (!byCategory && (ids.isEmpty() || ids.size() > MAX_PRICE_ADJUSTMENT_IDS)) {
+            throw new IllegalArgumentException("'productIds' must contain between 1 and " + MAX_PRICE_ADJUSTMENT_IDS + " IDs");
+        }
+
+        orderViews.evictLocation();
+        if (byPercentage) {
+            BigDecimal factor = BigDecimal.ONE.add(adjustment.percentage().movePointLeft(2));
+            if (factor.stripTrailingZeros().scale() > 10) {
+                // The UPDATE carries the factor as DECIMAL(19, 10)
+                throw new IllegalArgumentException("Percentage must have at most 8 decimals");
+            }
+            return pricesChanged(byCategory
+                    ? productRepository.scalePricesByCategory(adjustment.categoryId(), factor)
+                    : productRepository.scalePricesByIds(ids, factor));
+        }
+        long amountCents = Money.toMinorUnits(adjustment.amount());
+        return pricesChanged(byCategory
+                ? productRepository.shiftPricesByCategory(adjustment.categoryId(), amountCents)
+                : productRepository.shiftPricesByIds(ids, amountCents));
+    }
+
+    // Hand the new prices to the analytics, which value the items at the current prices
+    private int pricesChanged(int updated) {
+        if (analytics != null && updated > 0) {
+            analytics.pricesChanged();
+        }
+        return updated;
+    }
+
+    // Delete a product and its stock shards. The row delete reports whether the product existed,
+    // so there is no lookup beforehand.
+    @Transactional
     public boolean deleteProduct(Long id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
-            return true;
+        if (!mightExist(id) || productRepository.deleteProductRow(id) == 0) {
+            return false;
+        }
+        shardRepository.deleteByProductId(id);
+        orderViews.evictProduct(id);
+        if (idFilter != null) {
+            idFilter.removed(IdFilterService.Table.PRODUCTS, id);
+        }
+        return true;
+    }
+
+    // False when the ID filter knows there is no such product, so the database need not be asked
+    private boolean mightExist(Long id) {
+        return idFilter == null || idFilter.mightExist(IdFilterService.Table.PRODUCTS, id);
+    }
+
+    private Product added(Product product) {
+        if (idFilter != null) {
+            idFilter.added(IdFilterService.Table.PRODUCTS, product.getId());
+        }
+        if (analytics != null) {
+            analytics.productSaved(product);
         }
-        return false;
+        return product;
     }
 }
 
@@ -0,0 +1,54 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.models.Category;
+import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.models.Product;
+import com.restaurante.gestionpedidos.repositories.ReactiveReadRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-only catalog and order queries that never block a request thread.
+ */
+@Service
+public class ReactiveReadService {
+
+    private final ReactiveReadRepository reactiveReadRepository;
+
+    @Autowired
+    public ReactiveReadService(ReactiveReadRepository reactiveReadRepository) {
+        this.reactiveReadRepository = reactiveReadRepository;
+    }
+
+    // Stream all products, optionally of one category
+    public Flux<Product> getAllProducts(Long categoryId) {
+        return reactiveReadRepository.findAllProducts(categoryId);
+    }
+
+    // Get a product by ID (empty if not found)
+    public Mono<Product> getProductById(Long id) {
+        return reactiveReadRepository.findProductById(id);
+    }
+
+    // Stream all categories
+    public Flux<Category> getAllCategories() {
+        return reactiveReadRepository.findAllCategories();
+    }
+
+    // Get a category by ID (empty if not found)
+    public Mono<Category> getCategoryById(Long id) {
+        return reactiveReadRepository.findCategoryById(id);
+    }
+
+    // Stream all orders, optionally of one customer
+    public Flux<Order> getAllOrders(Long customerId) {
+        return reactiveReadRepository.findAllOrders(customerId);
+    }
+
+    // Get an order by ID (empty if not found)
+    public Mono<Order> getOrderById(Long id) {
+        return reactiveReadRepository.findOrderById(id);
+    }
+}
@@ -0,0 +1,79 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Request coalescing: concurrent loads of the same key share one call to the loader and its result.
+ *
+ * The first caller for a key (the leader) runs the load; callers arriving while it is in flight wait for
+ * it and get the same result, or the same exception. Nothing is cached: once the load finishes, the next
+ * caller starts a new one, so results are never older than the burst that asked for them.
+ *
+ * Counted in {@value #METRIC} with the tags name and outcome (leader or coalesced);
+ * coalesced / (leader + coalesced) is the share of loads saved.
+ */
+final class SingleFlight<K, V> {
+
+    static final String METRIC = "gestionpedidos.singleflight.calls";
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter coalesced;
+
+    SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.leaders = meterRegistry.counter(METRIC, "name", name, "outcome", "leader");
+        this.coalesced = meterRegistry.counter(METRIC, "name", name, "outcome", "coalesced");
+    }
+
+    // Load a key, joining the load already in flight for it if there is one
+    V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return join(running);
+        }
+
+        leaders.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // Rethrows the leader's exception as it was thrown
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Key for lookups by ID: the same ID names different rows in different locations
+    record LocationKey(String location, Long id) {
+        static LocationKey of(Long id) {
+            return new LocationKey(LocationContext.current(), id);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.exceptions.OutOfStockException;
+import com.restaurante.gestionpedidos.models.OrderItem;
+import com.restaurante.gestionpedidos.models.ProductStockShard;
+import com.restaurante.gestionpedidos.repositories.ProductRepository;
+import com.restaurante.gestionpedidos.repositories.ProductStockShardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps track of the units available for each product.
+ *
+ * Every change is a conditional single-statement UPDATE, so the database decides atomically
+ * whether enough units are left and two orders can never take the same unit.
+ * Products with a number of stock shards keep their units spread over several rows;
+ * a reservation starts at a random shard so concurrent orders rarely contend for the same row.
+ *
+ * Reservations commit in their own short transaction, so the row lock is released right away
+ * instead of being held while the order item is written. Callers must therefore invoke them
+ * outside of a transaction and release the units again if writing the order item fails.
+ */
+@Service
+public class StockService {
+
+    // Attempts made by the sharded slow path when it loses a lock wait or deadlock
+    private static final int MAX_LOCK_ATTEMPTS = 5;
+
+    private final ProductRepository productRepository;
+    private final ProductStockShardRepository shardRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public StockService(ProductRepository productRepository, ProductStockShardRepository shardRepository,
+                        PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.shardRepository = shardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Take units of a product, failing with OutOfStockException if not enough are left
+    public void reserve(Long productId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        int shards = stockShardsOf(productId);
+        if (shards <= 1) {
+            Integer updated = transactionTemplate.execute(status -> productRepository.reserveStock(productId, quantity));
+            if (updated == null || updated == 0) {
+                if (!productRepository.existsById(productId)) {
+                    throw new RuntimeException("Product not found");
+                }
+                throw new OutOfStockException("Product " + productId + " does not have " + quantity + " units in stock.");
+            }
+            return;
+        }
+
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            Integer updated = transactionTemplate.execute(status -> shardRepository.reserve(productId, shard, quantity));
+            if (updated != null && updated == 1) {
+                return;
+            }
+        }
+        reserveAcrossShards(productId, quantity);
+    }
+
+    // Give units back to a product (order item deleted or quantity decreased)
+    @Transactional
+    public void release(Long productId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        int shards = stockShardsOf(productId);
+        if (shards <= 1) {
+            productRepository.releaseStock(productId, quantity);
+        } else {
+            shardRepository.release(productId, ThreadLocalRandom.current().nextInt(shards), quantity);
+        }
+    }
+
+    // Give back the units of order items deleted in bulk, one release per product.
+    // Runs in the caller's transaction, which must hold the items locked until they are deleted.
+    @Transactional
+    public void releaseAll(Collection<OrderItem> items) {
+        Map<Long, Integer> units = new TreeMap<>();
+        for (OrderItem item : items) {
+            units.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        units.forEach(this::release);
+    }
+
+    // Get the units currently available for a product (null if stock is not tracked)
+    @Transactional(readOnly = true)
+    public Integer getAvailableStock(Long productId) {
+        return productRepository.findById(productId)
+                .map(product -> product.getStockShards() != null && product.getStockShards() > 1
+                        ? (int) shardRepository.sumQuantity(productId)
+                        : product.getStock())
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+    }
+
+    // Replace the stock of a product, spreading it over the given number of shards when greater than 1
+    @Transactional
+    public void setStock(Long productId, Integer quantity, Integer shards) {
+        if (quantity != null && quantity < 0) {
+            throw new RuntimeException("Stock cannot be negative");
+        }
+        shardRepository.deleteByProductId(productId);
+
+        if (quantity == null || shards == null || shards <= 1) {
+            if (productRepository.updateStock(productId, quantity, null) == 0) {
+                throw new RuntimeException("Product not found");
+            }
+            return;
+        }
+
+        if (productRepository.updateStock(productId, null, shards) == 0) {
+            throw new RuntimeException("Product not found");
+        }
+        List<ProductStockShard> rows = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            // Remainder units go to the first shards
+            rows.add(new ProductStockShard(productId, shard, quantity / shards + (shard < quantity % shards ? 1 : 0)));
+        }
+        shardRepository.saveAll(rows);
+    }
+
+    private int stockShardsOf(Long productId) {
+        return productRepository.findStockShardsById(productId).orElse(0);
+    }
+
+    // Slow path: no single shard holds enough units, so lock all of them and take from several
+    private void reserveAcrossShards(Long productId, int quantity) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> takeAcrossShards(productId, quantity));
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= MAX_LOCK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void takeAcrossShards(Long productId, int quantity) {
+        List<ProductStockShard> rows = shardRepository.findAllForUpdate(productId);
+        long available = 0;
+        for (ProductStockShard row : rows) {
+            available += row.getQuantity();
+        }
+        if (available < quantity) {
+            throw new OutOfStockException("Product " + productId + " does not have " + quantity + " units in stock.");
+        }
+
+        int remaining = quantity;
+        for (ProductStockShard row : rows) {
+            int taken = Math.min(remaining, row.getQuantity());
+            row.setQuantity(row.getQuantity() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+    }
+}
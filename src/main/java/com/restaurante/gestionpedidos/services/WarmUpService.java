@@ -0,0 +1,181 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.config.Locations;
+import com.restaurante.gestionpedidos.models.*;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Startup warm-up (gestionpedidos.warm-up.enabled), so the first requests after a deploy don't pay for cold
+ * connection pools, cold database caches and interpreted code.
+ *
+ * It runs as an ApplicationRunner, and Spring Boot only switches the readiness state to ACCEPTING_TRAFFIC
+ * (/actuator/health/readiness) once every runner has returned. For every location it opens all the
+ * connections of the pool and reads the whole product and category catalog (which also builds the ID
+ * filters). Then it runs gestionpedidos.warm-up.iterations rounds of the product and order write and read
+ * paths through the services, each in a transaction that is rolled back, writing the results as JSON the way
+ * the controllers do. In-memory state only follows committed changes (see AfterCommit), so nothing is left
+ * behind. With the order journal enabled orders are journaled outside the transaction, so the order writes
+ * are left out.
+ *
+ * A failing warm-up is logged and doesn't stop the application.
+ */
+@Service
+@ConditionalOnProperty(name = "gestionpedidos.warm-up.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmUpService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmUpService.class);
+
+    private final DataSource dataSource;
+    private final TransactionTemplate rollbackTransaction;
+    private final Locations locations;
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final CustomerService customerService;
+    private final OrderService orderService;
+    private final OrderItemService orderItemService;
+    private final ObjectMapper objectMapper;
+    // Only present when the filter is enabled (gestionpedidos.id-filter.enabled)
+    private final IdFilterService idFilter;
+    // Only present when the write-ahead journal is enabled (gestionpedidos.journal.enabled)
+    private final OrderJournalService orderJournal;
+    private final int iterations;
+
+    @Autowired
+    public WarmUpService(DataSource dataSource, PlatformTransactionManager transactionManager, Locations locations,
+                         ProductService productService, CategoryService categoryService, CustomerService customerService,
+                         OrderService orderService, OrderItemService orderItemService, ObjectMapper objectMapper,
+                         ObjectProvider<IdFilterService> idFilter, ObjectProvider<OrderJournalService> orderJournal,
+                         @Value("${gestionpedidos.warm-up.iterations:200}") int iterations) {
+        this.dataSource = dataSource;
+        this.rollbackTransaction = new TransactionTemplate(transactionManager);
+        this.locations = locations;
+        this.productService = productService;
+        this.categoryService = categoryService;
+        this.customerService = customerService;
+        this.orderService = orderService;
+        this.orderItemService = orderItemService;
+        this.objectMapper = objectMapper;
+        this.idFilter = idFilter.getIfAvailable();
+        this.orderJournal = orderJournal.getIfAvailable();
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            for (String location : locations.names()) {
+                LocationContext.run(location, () -> {
+                    int connections = openPool();
+                    int products = loadCatalog();
+                    log.info("Warm-up of location '{}': {} connections opened, {} products loaded", location, connections, products);
+                });
+            }
+            for (int i = 0; i < iterations; i++) {
+                rollbackTransaction.executeWithoutResult(status -> {
+                    status.setRollbackOnly();
+                    workload(status);
+                });
+            }
+            log.info("Warm-up done in {} ms ({} rounds of the service workload)", (System.nanoTime() - start) / 1_000_000, iterations);
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed after {} ms, starting anyway", (System.nanoTime() - start) / 1_000_000, e);
+        }
+    }
+
+    // Takes every connection of the current location's pool at once, so none is left to be opened by a request
+    private int openPool() {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            // Reaches the location's own pool through the slow-query log, lazy connection and routing wrappers
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return 0;
+            }
+            HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+            for (int i = 0; i < pool.getMaximumPoolSize(); i++) {
+                connections.add(pool.getConnection());
+            }
+            return connections.size();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not open the connection pool of location '" + LocationContext.current() + "'", e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Could not close a warm-up connection", e);
+                }
+            }
+        }
+    }
+
+    // Reads the catalog as GET /products and GET /categories do
+    private int loadCatalog() {
+        List<Product> products = productService.getAllProducts();
+        write(products);
+        write(categoryService.getAllCategories(false));
+        if (idFilter != null) {
+            for (IdFilterService.Table table : IdFilterService.Table.values()) {
+                idFilter.mightExist(table, 1L);
+            }
+        }
+        return products.size();
+    }
+
+    // One round of the product and order paths, on rows of its own
+    private void workload(TransactionStatus status) {
+        String key = UUID.randomUUID().toString();
+        Category category = categoryService.createCategory(new Category("warm-up " + key));
+        Product product = productService.createProduct(new Product("Warm-up", new BigDecimal("1.00"), "Warm-up", category));
+        write(productService.getProductById(product.getId()).orElseThrow());
+        write(productService.updateProduct(product.getId(), new Product("Warm-up", new BigDecimal("2.00"), "Warm-up", null)));
+        write(productService.getProductsByIds(List.of(product.getId())));
+        write(productService.getProductById(product.getId(), "id,name,price,category.name").orElseThrow());
+
+        if (orderJournal != null) {
+            return;
+        }
+        Customer customer = customerService.createCustomer(new Customer("Warm-up", "warm-up-" + key + "@example.com", "000000000"));
+        Order order = orderService.createOrder(new Order(customer));
+        write(order);
+        write(orderItemService.createOrderItem(new OrderItem(order, product, 2)));
+        // Requests read committed rows; here the pending inserts must reach the database for the JDBC reads to see them
+        status.flush();
+        write(orderService.getOrderById(order.getId()).orElseThrow());
+        write(orderService.getOrderTotal(order.getId()).orElseThrow());
+        write(orderService.getOrdersByIds(List.of(order.getId())));
+    }
+
+    private void write(Object response) {
+        try {
+            objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- Control de concurrencia optimista: cada cambio de un pedido o de una línea incrementa su versión,
+-- y una modificación hecha sobre una versión antigua se rechaza (409) en lugar de pisar la otra.
+
+ALTER TABLE orders ADD COLUMN version BIGINT NULL;
+ALTER TABLE order_items ADD COLUMN version BIGINT NULL;
+
+-- Las filas existentes empiezan en la versión 0
+UPDATE orders SET version = 0;
+UPDATE order_items SET version = 0;
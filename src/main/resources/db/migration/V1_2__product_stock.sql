@@ -0,0 +1,15 @@
+-- Stock de los productos (NULL = sin control de stock). Los productos muy demandados pueden repartir
+-- sus unidades en varias filas de product_stock_shards (stock_shards > 1) para repartir los bloqueos.
+
+ALTER TABLE products
+    ADD COLUMN stock INT NULL AFTER description,
+    ADD COLUMN stock_shards INT NULL AFTER stock;
+
+CREATE TABLE product_stock_shards (
+    id         BIGINT NOT NULL AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    shard      INT    NOT NULL,
+    quantity   INT    NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_product_stock_shards_product_shard UNIQUE (product_id, shard)
+) ENGINE = InnoDB;
@@ -0,0 +1,47 @@
+-- Esquema inicial, equivalente al que generaba Hibernate con ddl-auto=update antes de las migraciones
+-- (sin control de versiones ni stock, que añaden V1.1 y V1.2).
+-- En bases existentes Flyway lo marca como aplicado (baseline) sin ejecutarlo.
+
+CREATE TABLE categories (
+    id   BIGINT       NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_categories_name UNIQUE (name)
+) ENGINE = InnoDB;
+
+CREATE TABLE customers (
+    id    BIGINT       NOT NULL AUTO_INCREMENT,
+    name  VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    phone VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_customers_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE products (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    name        VARCHAR(255) NOT NULL,
+    price       DOUBLE       NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    category_id BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_products_category FOREIGN KEY (category_id) REFERENCES categories (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE orders (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    customer_id BIGINT      NOT NULL,
+    order_date  DATETIME(6) NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_orders_customer FOREIGN KEY (customer_id) REFERENCES customers (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE order_items (
+    id         BIGINT NOT NULL AUTO_INCREMENT,
+    order_id   BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity   INT    NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders (id),
+    CONSTRAINT fk_order_items_product FOREIGN KEY (product_id) REFERENCES products (id)
+) ENGINE = InnoDB;
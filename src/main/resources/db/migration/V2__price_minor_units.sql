@@ -0,0 +1,10 @@
+-- Los precios pasan de DOUBLE a un número entero de céntimos, para que precios y totales sean exactos.
+-- Los precios existentes se redondean al céntimo (mitad hacia arriba, en aritmética decimal).
+
+ALTER TABLE products ADD COLUMN price_cents BIGINT NULL AFTER name;
+
+UPDATE products SET price_cents = ROUND(CAST(price AS DECIMAL(20, 4)) * 100);
+
+ALTER TABLE products
+    MODIFY COLUMN price_cents BIGINT NOT NULL,
+    DROP COLUMN price;
@@ -0,0 +1,13 @@
+-- Cada sede del restaurante tiene su propia base de datos; las filas guardan además la clave de su sede.
+-- Los datos existentes pertenecen a la sede principal ("main", la de spring.datasource).
+
+ALTER TABLE categories ADD COLUMN location VARCHAR(32) NOT NULL DEFAULT 'main' AFTER name;
+ALTER TABLE customers ADD COLUMN location VARCHAR(32) NOT NULL DEFAULT 'main' AFTER phone;
+ALTER TABLE products ADD COLUMN location VARCHAR(32) NOT NULL DEFAULT 'main' AFTER stock_shards;
+ALTER TABLE orders ADD COLUMN location VARCHAR(32) NOT NULL DEFAULT 'main' AFTER order_date;
+
+-- La aplicación siempre indica la sede: sin valor por defecto, un INSERT que la olvide falla
+ALTER TABLE categories ALTER COLUMN location DROP DEFAULT;
+ALTER TABLE customers ALTER COLUMN location DROP DEFAULT;
+ALTER TABLE products ALTER COLUMN location DROP DEFAULT;
+ALTER TABLE orders ALTER COLUMN location DROP DEFAULT;
@@ -0,0 +1,10 @@
+-- Los IDs de pedidos y líneas de pedido los genera la aplicación (ordenados por tiempo, ver TimeOrderedIds),
+-- así Hibernate puede agrupar los INSERT en lotes. Los IDs nuevos son siempre mayores que los existentes.
+-- MySQL no permite cambiar AUTO_INCREMENT en columnas referenciadas por claves foráneas sin desactivar la comprobación.
+
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE orders MODIFY COLUMN id BIGINT NOT NULL;
+ALTER TABLE order_items MODIFY COLUMN id BIGINT NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,2 @@
+-- Pedidos recientes e historial paginado de un cliente (ORDER BY order_date DESC) sin ordenar en memoria.
+CREATE INDEX idx_orders_customer_date ON orders (customer_id, order_date);
@@ -0,0 +1,2 @@
+-- Exportación del histórico por rangos de días: recorre order_date (y el id, incluido en el índice) sin ordenar en memoria.
+CREATE INDEX idx_orders_order_date ON orders (order_date);
@@ -0,0 +1,3 @@
+-- Listado de las líneas de un pedido (GET /orders/{id}/items): recorre order_id por tramos en orden de id
+-- (incluido en el índice), sin ordenar en memoria. En MySQL sustituye al índice creado para la clave foránea.
+CREATE INDEX idx_order_items_order ON order_items (order_id);
@@ -0,0 +1,89 @@
+package com.restaurante.gestionpedidos;
+
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The Flyway migrations, run from scratch on MySQL, must produce the schema the entities expect:
+ * the context only starts if Hibernate validates it (ddl-auto=validate, as in every profile).
+ * The migrations are MySQL SQL, so this runs on a MySQL container and is skipped without Docker.
+ */
+@DataJpaTest(properties = {"spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class SchemaMigrationTest {
+
+    @Container
+    @ServiceConnection
+    static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Test
+    void migrationsProduceTheSchemaTheEntitiesValidateAgainst() {
+        assertEquals("7", flyway.info().current().getVersion().getVersion());
+        assertEquals(0, flyway.info().pending().length);
+
+        Category drinks = categoryRepository.save(new Category("Drinks"));
+        Product soda = productRepository.save(new Product("Soda", new BigDecimal("1.50"), "Can", drinks));
+        Order order = orderRepository.save(new Order(customerRepository.save(new Customer("Regular", "regular@example.com", "123456789"))));
+        OrderItem item = orderItemRepository.saveAndFlush(new OrderItem(order, soda, 2));
+
+        assertEquals(0L, item.getVersion());
+        assertEquals(150L, productRepository.findById(soda.getId()).orElseThrow().getPriceCents());
+    }
+
+    // The bulk price UPDATE on MySQL's decimal arithmetic, with the cases PriceAdjustmentTest checks on H2
+    @Test
+    void bulkPriceChangesRoundHalfUpToTheCent() {
+        Category food = categoryRepository.save(new Category("Food"));
+        Product threeCents = productRepository.save(new Product("Mint", new BigDecimal("0.03"), "Box", food));
+        Product pizza = productRepository.save(new Product("Pizza", new BigDecimal("1.45"), "Slice", food));
+        Product wine = productRepository.save(new Product("Wine", new BigDecimal("1000.00"), "Bottle", food));
+
+        assertEquals(3, productRepository.scalePricesByCategory(food.getId(), new BigDecimal("1.5")));
+        assertEquals(List.of(5L, 218L, 150000L), cents(threeCents, pizza, wine));
+        productRepository.scalePricesByIds(List.of(pizza.getId()), new BigDecimal("0.9"));
+        productRepository.scalePricesByIds(List.of(wine.getId()), new BigDecimal("0.7489711927"));
+        assertEquals(List.of(5L, 196L, 112346L), cents(threeCents, pizza, wine));
+        productRepository.shiftPricesByCategory(food.getId(), -200);
+        assertEquals(List.of(0L, 0L, 112146L), cents(threeCents, pizza, wine));
+    }
+
+    private List<Long> cents(Product... products) {
+        return Arrays.stream(products)
+                .map(product -> productRepository.findById(product.getId()).orElseThrow().getPriceCents())
+                .toList();
+    }
+}
@@ -0,0 +1,244 @@
+package com.restaurante.gestionpedidos.benchmarks;
+
+import com.restaurante.gestionpedidos.models.*;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The entities as the build enhances them against plain copies mapped the way they were before.
+ *
+ * {@code *Flush} loads every product, changes the price of one and commits. The plain copies are compared
+ * field by field with their snapshots at flush; the enhanced ones record their own changes (in-line dirty
+ * tracking), so the flush only looks at the one that was modified.
+ *
+ * {@code *Load} reads every order item. The plain copies load their order, product, customer and category
+ * eagerly, with one more select per distinct row referenced; the lazy associations of the enhanced ones
+ * are only read when a query fetches them.
+ *
+ * Run with: mvn -Pbenchmarks -DskipTests verify -Djmh.include=EntityEnhancementBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityEnhancementBenchmark {
+
+    private static final int CATEGORIES = 10;
+    private static final int CUSTOMERS = 200;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+    private int round;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:entity-enhancement-benchmark;DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(Category.class)
+                .addAnnotatedClass(Product.class)
+                .addAnnotatedClass(Customer.class)
+                .addAnnotatedClass(Order.class)
+                .addAnnotatedClass(OrderItem.class)
+                .addAnnotatedClass(PlainCategory.class)
+                .addAnnotatedClass(PlainProduct.class)
+                .addAnnotatedClass(PlainCustomer.class)
+                .addAnnotatedClass(PlainOrder.class)
+                .addAnnotatedClass(PlainOrderItem.class)
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        sessionFactory = configuration.buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            Category[] categories = new Category[CATEGORIES];
+            PlainCategory[] plainCategories = new PlainCategory[CATEGORIES];
+            for (int i = 0; i < CATEGORIES; i++) {
+                categories[i] = new Category("Category " + i);
+                plainCategories[i] = new PlainCategory("Category " + i);
+                session.persist(categories[i]);
+                session.persist(plainCategories[i]);
+            }
+            Product[] products = new Product[rows];
+            PlainProduct[] plainProducts = new PlainProduct[rows];
+            for (int i = 0; i < rows; i++) {
+                products[i] = new Product("Product " + i, new BigDecimal("2.50"), "Description of product " + i, categories[i % CATEGORIES]);
+                plainProducts[i] = new PlainProduct("Product " + i, 250L, "Description of product " + i, plainCategories[i % CATEGORIES]);
+                session.persist(products[i]);
+                session.persist(plainProducts[i]);
+            }
+            Customer[] customers = new Customer[CUSTOMERS];
+            PlainCustomer[] plainCustomers = new PlainCustomer[CUSTOMERS];
+            for (int i = 0; i < CUSTOMERS; i++) {
+                customers[i] = new Customer("Customer " + i, "customer" + i + "@example.com", "123456789");
+                plainCustomers[i] = new PlainCustomer("Customer " + i, "customer" + i + "@example.com", "123456789");
+                session.persist(customers[i]);
+                session.persist(plainCustomers[i]);
+            }
+            Order order = null;
+            PlainOrder plainOrder = null;
+            for (int i = 0; i < rows; i++) {
+                if (i % ITEMS_PER_ORDER == 0) {
+                    order = new Order(customers[i % CUSTOMERS]);
+                    plainOrder = new PlainOrder(plainCustomers[i % CUSTOMERS]);
+                    session.persist(order);
+                    session.persist(plainOrder);
+                }
+                session.persist(new OrderItem(order, products[(i * 7) % rows], 1 + i % 4));
+                session.persist(new PlainOrderItem(plainOrder, plainProducts[(i * 7) % rows], 1 + i % 4));
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int plainFlush() {
+        return sessionFactory.fromTransaction(session -> {
+            List<PlainProduct> products = session.createSelectionQuery("from PlainProduct", PlainProduct.class).getResultList();
+            products.get(round++ % products.size()).priceCents += 1;
+            return products.size();
+        });
+    }
+
+    @Benchmark
+    public int enhancedFlush() {
+        return sessionFactory.fromTransaction(session -> {
+            List<Product> products = session.createSelectionQuery("from Product", Product.class).getResultList();
+            Product product = products.get(round++ % products.size());
+            product.setPriceCents(product.getPriceCents() + 1);
+            return products.size();
+        });
+    }
+
+    @Benchmark
+    public List<PlainOrderItem> plainLoad() {
+        return sessionFactory.fromTransaction(session ->
+                session.createSelectionQuery("from PlainOrderItem", PlainOrderItem.class).getResultList());
+    }
+
+    @Benchmark
+    public List<OrderItem> enhancedLoad() {
+        return sessionFactory.fromTransaction(session ->
+                session.createSelectionQuery("from OrderItem", OrderItem.class).getResultList());
+    }
+
+    @Entity(name = "PlainCategory")
+    @Table(name = "plain_categories")
+    public static class PlainCategory {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String name;
+
+        PlainCategory() {
+        }
+
+        PlainCategory(String name) {
+            this.name = name;
+        }
+    }
+
+    @Entity(name = "PlainProduct")
+    @Table(name = "plain_products")
+    public static class PlainProduct {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String name;
+        Long priceCents;
+        String description;
+        Integer stock;
+        @ManyToOne
+        PlainCategory category;
+
+        PlainProduct() {
+        }
+
+        PlainProduct(String name, long priceCents, String description, PlainCategory category) {
+            this.name = name;
+            this.priceCents = priceCents;
+            this.description = description;
+            this.category = category;
+        }
+    }
+
+    @Entity(name = "PlainCustomer")
+    @Table(name = "plain_customers")
+    public static class PlainCustomer {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String name;
+        String email;
+        String phone;
+
+        PlainCustomer() {
+        }
+
+        PlainCustomer(String name, String email, String phone) {
+            this.name = name;
+            this.email = email;
+            this.phone = phone;
+        }
+    }
+
+    @Entity(name = "PlainOrder")
+    @Table(name = "plain_orders")
+    public static class PlainOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        @ManyToOne
+        PlainCustomer customer;
+        Date orderDate = new Date();
+
+        PlainOrder() {
+        }
+
+        PlainOrder(PlainCustomer customer) {
+            this.customer = customer;
+        }
+    }
+
+    @Entity(name = "PlainOrderItem")
+    @Table(name = "plain_order_items")
+    public static class PlainOrderItem {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        @ManyToOne
+        PlainOrder order;
+        @ManyToOne
+        PlainProduct product;
+        Integer quantity;
+
+        PlainOrderItem() {
+        }
+
+        PlainOrderItem(PlainOrder order, PlainProduct product, int quantity) {
+            this.order = order;
+            this.product = product;
+            this.quantity = quantity;
+        }
+    }
+}
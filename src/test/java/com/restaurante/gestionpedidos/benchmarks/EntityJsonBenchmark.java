@@ -0,0 +1,112 @@
+package com.restaurante.gestionpedidos.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.restaurante.gestionpedidos.config.EntityJsonModule;
+import com.restaurante.gestionpedidos.models.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The product and customer listings written as JSON by Jackson's bean serializers ({@code reflective*})
+ * and by the {@link EntityJsonModule} serializers ({@code precompiled*}), into a reused buffer standing in
+ * for the response stream. Both mappers are built as Spring Boot builds the application's one.
+ *
+ * Run with: mvn -Pbenchmarks -DskipTests verify -Djmh.include=EntityJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityJsonBenchmark {
+
+    private static final int CATEGORIES = 20;
+    private static final int ORDERS_PER_CUSTOMER = 5;
+
+    @Param({"1000"})
+    private int rows;
+
+    private ObjectMapper reflective;
+    private ObjectMapper precompiled;
+    private List<Product> products;
+    private List<Customer> customers;
+    private ByteArrayOutputStream response;
+
+    @Setup
+    public void setUp() {
+        reflective = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        precompiled = reflective.copy().registerModule(new EntityJsonModule());
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            Category category = new Category("Category " + i);
+            category.setId((long) i + 1);
+            category.setLocation("main");
+            categories.add(category);
+        }
+        products = new ArrayList<>();
+        customers = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Product product = new Product("Product " + i, BigDecimal.valueOf(100 + i, 2), "Description of product " + i,
+                    categories.get(i % CATEGORIES));
+            product.setId((long) i + 1);
+            product.setStock(i % 50);
+            product.setLocation("main");
+            products.add(product);
+
+            Customer customer = new Customer("Customer " + i, "customer" + i + "@example.com", "123456789");
+            customer.setId((long) i + 1);
+            customer.setLocation("main");
+            List<Order> orders = new ArrayList<>();
+            for (int j = 0; j < ORDERS_PER_CUSTOMER; j++) {
+                Order order = new Order(customer);
+                order.setId((long) i * ORDERS_PER_CUSTOMER + j + 1);
+                order.setOrderDate(new Date(1_740_830_400_000L + order.getId() * 60_000));
+                order.setLocation("main");
+                order.setVersion(0L);
+                orders.add(order);
+            }
+            customer.setOrders(orders);
+            customers.add(customer);
+        }
+        response = new ByteArrayOutputStream(1 << 20);
+    }
+
+    @Benchmark
+    public int reflectiveProducts() throws IOException {
+        return write(reflective, products);
+    }
+
+    @Benchmark
+    public int precompiledProducts() throws IOException {
+        return write(precompiled, products);
+    }
+
+    @Benchmark
+    public int reflectiveCustomers() throws IOException {
+        return write(reflective, customers);
+    }
+
+    @Benchmark
+    public int precompiledCustomers() throws IOException {
+        return write(precompiled, customers);
+    }
+
+    private int write(ObjectMapper mapper, Object value) throws IOException {
+        response.reset();
+        mapper.writeValue(response, value);
+        return response.size();
+    }
+}
@@ -0,0 +1,145 @@
+package com.restaurante.gestionpedidos.benchmarks;
+
+import com.restaurante.gestionpedidos.models.TimeOrderedId;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of an order with its lines, with database-generated IDs against time-ordered ones.
+ *
+ * {@code identity} mirrors the previous mapping: with {@code GenerationType.IDENTITY} Hibernate must run
+ * every INSERT on its own to read the key back, so the JDBC batch size is ignored. {@code timeOrdered}
+ * uses {@link TimeOrderedId}, as {@code Order} and {@code OrderItem} do now, and the lines go out in one batch.
+ * Both run on the same embedded H2 database, where a statement costs no network round trip; against
+ * MySQL the gap grows with the latency of each statement.
+ *
+ * Run with: mvn -Pbenchmarks -DskipTests verify -Djmh.include=OrderInsertBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 15, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderInsertBenchmark {
+
+    private static final int LINES = 20;
+
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:order-insert-benchmark;DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(IdentityOrder.class)
+                .addAnnotatedClass(IdentityLine.class)
+                .addAnnotatedClass(TimeOrderedOrder.class)
+                .addAnnotatedClass(TimeOrderedLine.class)
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    // Keeps the tables small, so every iteration inserts into the same amount of data
+    @TearDown(Level.Iteration)
+    public void clear() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("delete from IdentityLine").executeUpdate();
+            session.createMutationQuery("delete from IdentityOrder").executeUpdate();
+            session.createMutationQuery("delete from TimeOrderedLine").executeUpdate();
+            session.createMutationQuery("delete from TimeOrderedOrder").executeUpdate();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void identity() {
+        sessionFactory.inTransaction(session -> {
+            IdentityOrder order = new IdentityOrder();
+            session.persist(order);
+            for (int i = 0; i < LINES; i++) {
+                session.persist(new IdentityLine(order, i + 1));
+            }
+        });
+    }
+
+    @Benchmark
+    public void timeOrdered() {
+        sessionFactory.inTransaction(session -> {
+            TimeOrderedOrder order = new TimeOrderedOrder();
+            session.persist(order);
+            for (int i = 0; i < LINES; i++) {
+                session.persist(new TimeOrderedLine(order, i + 1));
+            }
+        });
+    }
+
+    @Entity(name = "IdentityOrder")
+    @Table(name = "identity_orders")
+    public static class IdentityOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+    }
+
+    @Entity(name = "IdentityLine")
+    @Table(name = "identity_lines")
+    public static class IdentityLine {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        @ManyToOne
+        IdentityOrder order;
+        int quantity;
+
+        IdentityLine() {
+        }
+
+        IdentityLine(IdentityOrder order, int quantity) {
+            this.order = order;
+            this.quantity = quantity;
+        }
+    }
+
+    @Entity(name = "TimeOrderedOrder")
+    @Table(name = "time_ordered_orders")
+    public static class TimeOrderedOrder {
+        @Id
+        @TimeOrderedId
+        Long id;
+    }
+
+    @Entity(name = "TimeOrderedLine")
+    @Table(name = "time_ordered_lines")
+    public static class TimeOrderedLine {
+        @Id
+        @TimeOrderedId
+        Long id;
+        @ManyToOne
+        TimeOrderedOrder order;
+        int quantity;
+
+        TimeOrderedLine() {
+        }
+
+        TimeOrderedLine(TimeOrderedOrder order, int quantity) {
+            this.order = order;
+            this.quantity = quantity;
+        }
+    }
+}
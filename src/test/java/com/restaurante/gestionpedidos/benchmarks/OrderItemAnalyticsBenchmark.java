@@ -0,0 +1,76 @@
+package com.restaurante.gestionpedidos.benchmarks;
+
+import com.restaurante.gestionpedidos.services.OrderItemFacts;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revenue by category and hour over 90 days of order items, as served by GET /analytics/order-items.
+ *
+ * The facts are built directly (three orders' worth of items per order, 500 products in 20 categories,
+ * 100000 customers), without a database. {@code parallel} scans the segments on the common fork/join pool,
+ * as the service does; {@code singleThread} runs the same tasks on a pool of one thread, which is the
+ * baseline the parallel scan should divide by the number of cores.
+ *
+ * Run with: mvn -Pbenchmarks -DskipTests verify -Djmh.include=OrderItemAnalyticsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class OrderItemAnalyticsBenchmark {
+
+    private static final int DAYS = 90;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int PRODUCTS = 500;
+    private static final int CATEGORIES = 20;
+    private static final int CUSTOMERS = 100_000;
+
+    @Param({"10000000", "30000000"})
+    private int items;
+
+    private OrderItemFacts facts;
+    private OrderItemFacts.Query query;
+    private ForkJoinPool singleThreadPool;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int firstMinute = 29_000_000;
+        facts = new OrderItemFacts();
+        for (int product = 1; product <= PRODUCTS; product++) {
+            facts.product(product, 1 + product % CATEGORIES, 100 + random.nextInt(2000));
+        }
+        int orders = items / ITEMS_PER_ORDER;
+        for (int order = 1; order <= orders; order++) {
+            facts.order(order, 1 + random.nextInt(CUSTOMERS), firstMinute + (int) ((long) order * DAYS * 24 * 60 / orders));
+            for (int item = 0; item < ITEMS_PER_ORDER; item++) {
+                facts.add(order, 1 + random.nextInt(PRODUCTS), 1 + random.nextInt(4));
+            }
+        }
+        query = new OrderItemFacts.Query(firstMinute, firstMinute + DAYS * 24 * 60, null, null, null,
+                List.of(OrderItemFacts.Dimension.CATEGORY, OrderItemFacts.Dimension.HOUR));
+        singleThreadPool = new ForkJoinPool(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        singleThreadPool.shutdown();
+    }
+
+    @Benchmark
+    public List<OrderItemFacts.Group> parallel() {
+        return facts.query(query, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public List<OrderItemFacts.Group> singleThread() {
+        return facts.query(query, singleThreadPool);
+    }
+}
@@ -0,0 +1,77 @@
+package com.restaurante.gestionpedidos.benchmarks;
+
+import com.restaurante.gestionpedidos.models.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order total computation: the previous boxed {@code Double} path against the fixed-point one.
+ *
+ * {@code boxedDouble} mirrors the old entity-based sum ({@code Double} price times {@code Integer}
+ * quantity into a {@code Double} total); {@code fixedPoint} sums long cents with {@link Money#addLine},
+ * as the order and report totals do. {@code bigDecimal} shows the cost of exact arithmetic without fixed point.
+ *
+ * Run with: mvn -Pbenchmarks -DskipTests verify
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderTotalBenchmark {
+
+    @Param({"10", "10000"})
+    private int lines;
+
+    private long[] unitPrices;
+    private int[] quantities;
+    private List<Double> boxedPrices;
+    private List<Integer> boxedQuantities;
+    private List<BigDecimal> decimalPrices;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        unitPrices = new long[lines];
+        quantities = new int[lines];
+        boxedPrices = new ArrayList<>(lines);
+        boxedQuantities = new ArrayList<>(lines);
+        decimalPrices = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            unitPrices[i] = 50 + random.nextInt(5000);
+            quantities[i] = 1 + random.nextInt(5);
+            boxedPrices.add(unitPrices[i] / 100.0);
+            boxedQuantities.add(quantities[i]);
+            decimalPrices.add(Money.toDecimal(unitPrices[i]));
+        }
+    }
+
+    @Benchmark
+    public Double boxedDouble() {
+        Double total = 0.0;
+        for (int i = 0; i < boxedPrices.size(); i++) {
+            total += boxedPrices.get(i) * boxedQuantities.get(i);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < decimalPrices.size(); i++) {
+            total = total.add(decimalPrices.get(i).multiply(BigDecimal.valueOf(boxedQuantities.get(i))));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        return Money.total(unitPrices, quantities, lines);
+    }
+}
@@ -0,0 +1,110 @@
+package com.restaurante.gestionpedidos.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.restaurante.gestionpedidos.models.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The hand-written serializers must write exactly the bytes Jackson's bean serializers write for the same
+ * entities, on the ObjectMapper as Spring Boot configures it.
+ */
+@JsonTest
+class EntityJsonModuleTest {
+
+    // As auto-configured, without the module (EntityJsonConfig is not part of the test slice)
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void writesTheSameBytesAsTheBeanSerializers() throws Exception {
+        ObjectMapper precompiled = objectMapper.copy().registerModule(new EntityJsonModule());
+        assertInstanceOf(EntityJsonModule.ProductSerializer.class,
+                precompiled.getSerializerProviderInstance().findValueSerializer(Product.class));
+
+        Category drinks = category(1L, "Drinks \"cold\" & <fizzy>");
+        Category empty = new Category();
+        Product soda = product(10L, "Soda", new BigDecimal("1.50"), "Can, 33 cl – ñandú 🥤", drinks);
+        soda.setStock(24);
+        soda.setStockShards(4);
+        Product pizza = product(11L, "Pizza", new BigDecimal("1234567.05"), "Slice\nwith \\ cheese", empty);
+        Product bare = new Product();
+        List<Product> prices = new ArrayList<>();
+        for (long cents : new long[]{0, 5, -5, 100, -1999, 10_000_000_001L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            Product priced = product(12L, "Priced", null, "Any", drinks);
+            priced.setPriceCents(cents);
+            prices.add(priced);
+        }
+
+        Customer customer = new Customer("Ana", "ana@example.com", "123456789");
+        customer.setId(5L);
+        customer.setLocation("north");
+        Order first = order(100L, customer, new Timestamp(1_740_830_400_123L));
+        first.setVersion(3L);
+        Order second = order(101L, customer, new Date(0));
+        Order undated = order(102L, customer, null);
+        Order beforeEpoch = order(103L, customer, new Date(-1));
+        Order farFuture = order(104L, customer, new Date(253_402_300_800_000L));
+        Order farPast = order(105L, customer, new Date(-62_198_755_200_001L));
+        customer.setOrders(new ArrayList<>(Arrays.asList(first, second, undated, null, beforeEpoch, farFuture, farPast)));
+        Customer noOrders = new Customer();
+        Customer emptyOrders = new Customer("Luis", "luis@example.com", "987654321");
+        emptyOrders.setOrders(List.of());
+
+        OrderItem item = new OrderItem(first, soda, 2);
+        item.setId(1000L);
+
+        for (Object value : List.of(drinks, empty, soda, pizza, bare, customer, noOrders, emptyOrders, first, undated,
+                new Order(), item, new OrderItem(), List.of(soda, pizza, bare), prices, List.of(customer, emptyOrders),
+                Map.of("order", first, "product", soda))) {
+            String expected = objectMapper.writeValueAsString(value);
+            assertEquals(expected, precompiled.writeValueAsString(value));
+            assertArrayEquals(objectMapper.writeValueAsBytes(value), precompiled.writeValueAsBytes(value), expected);
+        }
+        assertEquals(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(customer),
+                precompiled.writerWithDefaultPrettyPrinter().writeValueAsString(customer));
+
+        // Other date settings are left to Jackson
+        ObjectMapper madrid = objectMapper.copy().setTimeZone(TimeZone.getTimeZone("Europe/Madrid"));
+        assertEquals(madrid.writeValueAsString(customer),
+                madrid.copy().registerModule(new EntityJsonModule()).writeValueAsString(customer));
+        ObjectMapper timestamps = objectMapper.copy().enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        assertEquals(timestamps.writeValueAsString(customer),
+                timestamps.copy().registerModule(new EntityJsonModule()).writeValueAsString(customer));
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name);
+        category.setId(id);
+        category.setLocation("main");
+        return category;
+    }
+
+    private static Product product(Long id, String name, BigDecimal price, String description, Category category) {
+        Product product = new Product(name, price, description, category);
+        product.setId(id);
+        product.setLocation("main");
+        return product;
+    }
+
+    private static Order order(Long id, Customer customer, Date orderDate) {
+        Order order = new Order(customer);
+        order.setId(id);
+        order.setOrderDate(orderDate);
+        order.setLocation("north");
+        return order;
+    }
+}
@@ -0,0 +1,204 @@
+package com.restaurante.gestionpedidos.config;
+
+import com.restaurante.gestionpedidos.services.ProductImportService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements run through the wrapper on H2 must reach the log exactly once, with their bind values,
+ * row count and origin, however their result sets are closed.
+ */
+class SlowQueryDataSourceTest {
+
+    private final List<CapturedLog> logs = new ArrayList<>();
+
+    @AfterEach
+    void stopWriters() {
+        logs.forEach(SlowQueryLog::destroy);
+    }
+
+    @Test
+    void slowStatementsAreAlwaysRecordedAndFastOnesSampled() {
+        CapturedLog never = log(100, 0);
+        never.record("SELECT 1", new Object[0], 1, TimeUnit.MILLISECONDS.toNanos(99));
+        never.record("SELECT 2", new Object[0], 1, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(List.of("SELECT 2"), never.entries.stream().map(SlowQueryLog.Entry::sql).toList());
+        assertTrue(never.entries.get(0).slow());
+
+        CapturedLog always = log(100, 1);
+        always.record("SELECT 1", new Object[0], 1, 0);
+        assertEquals(1, always.entries.size());
+        assertFalse(always.entries.get(0).slow());
+
+        CapturedLog half = log(100, 0.5);
+        for (int i = 0; i < 10_000; i++) {
+            half.record("SELECT 1", new Object[0], 1, 0);
+        }
+        assertTrue(half.entries.size() > 4000 && half.entries.size() < 6000, half.entries.size() + " sampled");
+
+        JdbcTemplate quiet = new JdbcTemplate(dataSource("sampling", log(60_000, 0)));
+        quiet.queryForObject("SELECT 1", Integer.class);
+        assertEquals(0, logs.get(logs.size() - 1).entries.size());
+    }
+
+    @Test
+    void bindsAndRowCountsOfQueriesUpdatesAndBatches() {
+        CapturedLog log = log(0, 0);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource("counts", log));
+        jdbcTemplate.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(20))");
+        assertEquals(0, log.last().rows());
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            rows.add(new Object[]{i, "item " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO items VALUES (?, ?)", rows);
+        SlowQueryLog.Entry batch = log.last();
+        assertEquals(12, batch.rows());
+        assertEquals(12, batch.binds().length);
+        assertArrayEquals(new Object[]{12, "item 12"}, (Object[]) batch.binds()[11]);
+        assertTrue(log.message(batch).endsWith("binds=[[1, 'item 1'], [2, 'item 2'], [3, 'item 3'], [4, 'item 4'], "
+                + "[5, 'item 5'], [6, 'item 6'], [7, 'item 7'], [8, 'item 8'], [9, 'item 9'], [10, 'item 10'], ... 2 more rows]"),
+                log.message(batch));
+
+        assertEquals(8, jdbcTemplate.update("UPDATE items SET name = ? WHERE id > ?", "renamed", 4));
+        assertEquals(8, log.last().rows());
+        assertArrayEquals(new Object[]{"renamed", 4}, log.last().binds());
+
+        jdbcTemplate.update("DELETE FROM items WHERE id = ?", (Object) null);
+        assertEquals(0, log.last().rows());
+        assertTrue(log.message(log.last()).endsWith("binds=[NULL]"));
+
+        assertEquals(5, jdbcTemplate.queryForList("SELECT id FROM items WHERE id <= ?", Integer.class, 5).size());
+        assertEquals("SELECT id FROM items WHERE id <= ?", log.last().sql());
+        assertEquals(5, log.last().rows());
+        assertArrayEquals(new Object[]{5}, log.last().binds());
+
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE items SET name = 'a' WHERE id = 1", "DELETE FROM items WHERE id > 10");
+        assertArrayEquals(new int[]{1, 2}, counts);
+        assertEquals("UPDATE items SET name = 'a' WHERE id = 1; DELETE FROM items WHERE id > 10", log.last().sql());
+        assertEquals(3, log.last().rows());
+    }
+
+    @Test
+    void queriesAreRecordedOnceHoweverTheirResultSetIsClosed() throws Exception {
+        CapturedLog log = log(0, 0);
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:closing;DB_CLOSE_DELAY=-1");
+        SlowQueryDataSource dataSource = new SlowQueryDataSource(target, log);
+        new JdbcTemplate(target).execute("CREATE TABLE numbers AS SELECT X AS n FROM SYSTEM_RANGE(1, 10)");
+
+        try (Connection connection = dataSource.getConnection()) {
+            // Closed by its statement
+            Statement statement = connection.createStatement();
+            ResultSet numbers = statement.executeQuery("SELECT n FROM numbers");
+            numbers.next();
+            numbers.next();
+            statement.close();
+            numbers.close();
+            assertEquals(1, log.entries.size());
+            assertEquals(2, log.last().rows());
+
+            // Read through execute() and getResultSet()
+            try (Statement executed = connection.createStatement()) {
+                assertTrue(executed.execute("SELECT n FROM numbers WHERE n > 3"));
+                try (ResultSet rows = executed.getResultSet()) {
+                    while (rows.next()) {
+                        // Read every row
+                    }
+                }
+            }
+            assertEquals(2, log.entries.size());
+            assertEquals(7, log.last().rows());
+
+            // Closed by executing the statement again
+            try (PreparedStatement prepared = connection.prepareStatement("SELECT n FROM numbers WHERE n <= ?")) {
+                prepared.setInt(1, 4);
+                ResultSet first = prepared.executeQuery();
+                first.next();
+                prepared.setInt(1, 6);
+                prepared.executeQuery().close();
+                assertEquals(4, log.entries.size());
+                assertArrayEquals(new Object[]{4}, log.entries.get(2).binds());
+                assertEquals(1, log.entries.get(2).rows());
+                assertArrayEquals(new Object[]{6}, log.last().binds());
+                assertEquals(0, log.last().rows());
+            }
+
+            // Closed by the connection
+            connection.createStatement().executeQuery("SELECT n FROM numbers").next();
+        }
+        assertEquals(5, log.entries.size());
+        assertEquals(1, log.last().rows());
+    }
+
+    @Test
+    void originIsTheServiceMethodThatIssuedTheStatement() throws Exception {
+        CapturedLog log = log(0, 0);
+        SlowQueryDataSource dataSource = dataSource("origin", log);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE categories (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), location VARCHAR(32))");
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), price_cents BIGINT, "
+                + "description VARCHAR(255), category_id BIGINT, stock INT, location VARCHAR(32))");
+        assertEquals("[" + Thread.currentThread().getName() + "]", log.last().origin());
+
+        ProductImportService importService = new ProductImportService(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        importService.importProducts(new ByteArrayInputStream(
+                "name,price,description,category\nSoda,1.50,Can,Drinks\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("ProductImportService.importProducts > ProductImportService.loadCategories",
+                log.entries.stream().filter(entry -> entry.sql().startsWith("SELECT id, name FROM categories"))
+                        .findFirst().orElseThrow().origin());
+        SlowQueryLog.Entry insert = log.entries.stream().filter(entry -> entry.sql().startsWith("INSERT INTO products"))
+                .findFirst().orElseThrow();
+        assertTrue(insert.origin().startsWith("ProductImportService.importProducts > ProductImportService.flush"), insert.origin());
+        assertEquals(1, insert.rows());
+    }
+
+    private CapturedLog log(long thresholdMillis, double sampleRate) {
+        CapturedLog log = new CapturedLog(thresholdMillis, sampleRate);
+        logs.add(log);
+        return log;
+    }
+
+    private static SlowQueryDataSource dataSource(String name, SlowQueryLog log) {
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return new SlowQueryDataSource(target, log);
+    }
+
+    // Keeps the entries instead of handing them to the writer thread
+    private static final class CapturedLog extends SlowQueryLog {
+
+        private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+        private CapturedLog(long thresholdMillis, double sampleRate) {
+            super(thresholdMillis, sampleRate, 100);
+        }
+
+        @Override
+        void enqueue(Entry entry) {
+            entries.add(entry);
+        }
+
+        private Entry last() {
+            return entries.get(entries.size() - 1);
+        }
+    }
+}
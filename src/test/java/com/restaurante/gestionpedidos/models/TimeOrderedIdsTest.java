@@ -0,0 +1,59 @@
+package com.restaurante.gestionpedidos.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdsTest {
+
+    private static final long NOW = Instant.parse("2026-03-01T12:00:00Z").toEpochMilli();
+
+    @Test
+    void idsFollowTheClockAndCarryTheNode() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIds node3 = new TimeOrderedIds(3, clock::get);
+        TimeOrderedIds node4 = new TimeOrderedIds(4, clock::get);
+
+        long first = node3.next();
+        long second = node3.next();
+        long otherNode = node4.next();
+        clock.addAndGet(1);
+        long later = node3.next();
+
+        assertTrue(first < second && second < later);
+        assertNotEquals(first, otherNode);
+        assertEquals(Instant.ofEpochMilli(NOW), TimeOrderedIds.timestampOf(first));
+        assertEquals(Instant.ofEpochMilli(NOW + 1), TimeOrderedIds.timestampOf(later));
+        assertEquals(3, (first >>> TimeOrderedIds.SEQUENCE_BITS) & TimeOrderedIds.MAX_NODE);
+        // Exact as a JavaScript number
+        assertTrue(later < 1L << 53);
+    }
+
+    @Test
+    void neverGoesBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIds ids = new TimeOrderedIds(0, clock::get);
+
+        long previous = ids.next();
+        // A burst larger than the sequence borrows the next milliseconds
+        for (int i = 0; i < 1000; i++) {
+            long next = ids.next();
+            assertTrue(next > previous);
+            previous = next;
+        }
+        assertTrue(TimeOrderedIds.timestampOf(previous).isAfter(Instant.ofEpochMilli(NOW)));
+
+        // The clock moving back (e.g. an NTP correction) does not reuse IDs either
+        clock.addAndGet(-60_000);
+        assertTrue(ids.next() > previous);
+    }
+
+    @Test
+    void rejectsNodesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIds(-1));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIds(TimeOrderedIds.MAX_NODE + 1));
+    }
+}
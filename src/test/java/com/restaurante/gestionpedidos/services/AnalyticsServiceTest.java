@@ -0,0 +1,238 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.config.Locations;
+import com.restaurante.gestionpedidos.dto.OrderTotals;
+import com.restaurante.gestionpedidos.dto.PriceAdjustment;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-memory totals must match the ones summed by the database, both for the rows present at load
+ * time and after writes through the services. Runs without the test-managed transaction, so the
+ * changes reach the analytics on commit as they do in production.
+ */
+@DataJpaTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "gestionpedidos.analytics.enabled=true"})
+@Import({OrderService.class, OrderItemService.class, ProductService.class, CustomerService.class,
+        CategoryService.class, StockService.class, OrderViewService.class, AnalyticsService.class,
+        AnalyticsServiceTest.NoStartupLoad.class, AnalyticsServiceTest.LoadHooks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AnalyticsServiceTest {
+
+    // No location is loaded at startup; each test loads "main" once its rows are in place
+    @TestConfiguration
+    static class NoStartupLoad {
+
+        @Bean
+        Locations locations() {
+            return new Locations(Set.of());
+        }
+    }
+
+    // Runs writes from another thread at chosen points of a load: before its snapshot is taken, and before its items are read
+    @TestConfiguration
+    static class LoadHooks {
+
+        static volatile Runnable beforeSnapshot;
+        static volatile Runnable beforeItems;
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource) {
+                @Override
+                public <T> T queryForObject(String sql, Class<T> requiredType) {
+                    if (sql.equals("SELECT COUNT(*) FROM categories")) {
+                        runOnce(beforeSnapshot);
+                        beforeSnapshot = null;
+                    }
+                    return super.queryForObject(sql, requiredType);
+                }
+
+                @Override
+                public void query(String sql, RowCallbackHandler rch, Object... args) {
+                    if (sql.startsWith("SELECT id, order_id, product_id, quantity FROM order_items")) {
+                        runOnce(beforeItems);
+                        beforeItems = null;
+                    }
+                    super.query(sql, rch, args);
+                }
+            };
+        }
+
+        private static void runOnce(Runnable writes) {
+            if (writes != null) {
+                CompletableFuture.runAsync(writes).join();
+            }
+        }
+    }
+
+    @Autowired
+    private AnalyticsService analytics;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate today = LocalDate.now();
+
+    @AfterEach
+    void cleanUp() {
+        for (String table : new String[]{"order_items", "orders", "product_stock_shards", "products", "categories", "customers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void totalsFollowTheWritesAfterTheLoad() {
+        // Present before the load
+        Category food = categoryRepository.save(new Category("Food"));
+        Category drinks = categoryRepository.save(new Category("Drinks"));
+        Product pizza = productRepository.save(new Product("Pizza", new BigDecimal("2.50"), "Slice", food));
+        Product soda = productRepository.save(new Product("Soda", new BigDecimal("1.00"), "Can", drinks));
+        Customer regular = customerRepository.save(new Customer("Regular", "regular@example.com", "123456789"));
+        Order first = orderRepository.save(new Order(regular));
+        orderItemRepository.save(new OrderItem(first, pizza, 2));
+        orderItemRepository.save(new OrderItem(first, soda, 1));
+
+        analytics.load(LocationContext.MAIN);
+        assertMatchesTheDatabase();
+        assertEquals(List.of(), analytics.getOrderItemTotals(today.plusDays(1), null, List.of("hour"), null, null, null));
+
+        // Written through the services afterwards
+        Customer walkIn = customerService.createCustomer(new Customer("Walk-in", "walkin@example.com", "123456789"));
+        Product salad = productService.createProduct(new Product("Salad", new BigDecimal("4.00"), "Green", food));
+        Order second = orderService.createOrder(new Order(walkIn));
+        OrderItem salads = orderItemService.createOrderItem(new OrderItem(second, salad, 1));
+        orderItemService.incrementQuantity(salads.getId(), 2);
+        OrderItem sodas = orderItemService.createOrderItem(new OrderItem(second, soda, 3));
+        orderItemService.updateOrderItem(sodas.getId(), new OrderItem(second, pizza, 1));
+        productService.adjustPrices(new PriceAdjustment(new BigDecimal("10"), null, food.getId(), null));
+        assertMatchesTheDatabase();
+
+        List<Map<String, Object>> byCategory = analytics.getOrderItemTotals(today, today, List.of("category"), null, null, null);
+        assertEquals(2, byCategory.size());
+        assertEquals(food.getId(), byCategory.get(0).get("categoryId"));
+        assertEquals(6L, byCategory.get(0).get("units"));
+        assertEquals(new BigDecimal("21.45"), byCategory.get(0).get("revenue"));
+        assertEquals(1L, byCategory.get(1).get("units"));
+
+        Map<String, Object> walkInTotals = analytics.getOrderItemTotals(null, null, List.of(), null, null, walkIn.getId()).get(0);
+        assertEquals(4L, walkInTotals.get("units"));
+        assertEquals(new BigDecimal("15.95"), walkInTotals.get("revenue"));
+
+        List<Map<String, Object>> byDay = analytics.getOrderItemTotals(today, today, List.of("day", "product"), null, food.getId(), null);
+        assertEquals(List.of(today, pizza.getId()), List.of(byDay.get(0).get("day"), byDay.get(0).get("productId")));
+        assertEquals(3L, byDay.get(0).get("units"));
+
+        // Deletes take the dependent items along
+        orderItemService.deleteOrderItem(salads.getId());
+        assertTrue(orderService.deleteOrder(first.getId()));
+        assertMatchesTheDatabase();
+        // Order history is never deleted: a category whose products are on orders stays
+        assertThrows(IllegalStateException.class, () -> categoryService.deleteCategory(food.getId()));
+        assertTrue(productRepository.existsById(salad.getId()));
+        assertMatchesTheDatabase();
+        assertTrue(categoryService.deleteCategory(drinks.getId()));
+        assertMatchesTheDatabase();
+        assertEquals(0L, analytics.getOrderItemTotals(null, null, null, null, null, regular.getId()).get(0).get("units"));
+    }
+
+    // Loads "main" with other rows than the other tests expect, so they get a fresh context
+    @Test
+    @DirtiesContext
+    void changesAroundTheSnapshotAreAppliedExactlyOnce() {
+        Category food = categoryRepository.save(new Category("Food"));
+        Product pizza = productRepository.save(new Product("Pizza", new BigDecimal("2.50"), "Slice", food));
+        Customer regular = customerRepository.save(new Customer("Regular", "regular@example.com", "123456789"));
+        Order order = orderRepository.save(new Order(regular));
+        OrderItem early = orderItemRepository.save(new OrderItem(order, pizza, 2));
+
+        LoadHooks.beforeSnapshot = () -> {
+            // Committed before the load, reported late: the snapshot holds it
+            analytics.itemChanged(early.getId(), early.getVersion(), order.getId(), pizza.getId(), 2);
+            // Committed and reported after the load started, before its snapshot: the snapshot holds these too
+            orderItemService.incrementQuantity(early.getId(), 1);
+            OrderItem dropped = orderItemService.createOrderItem(new OrderItem(order, pizza, 7));
+            orderItemService.deleteOrderItem(dropped.getId());
+            orderItemService.createOrderItem(new OrderItem(order, pizza, 4));
+        };
+        LoadHooks.beforeItems = () -> {
+            // Committed after the snapshot: only the queue has these
+            orderItemService.incrementQuantity(early.getId(), 5);
+            orderItemService.createOrderItem(new OrderItem(order, pizza, 1));
+        };
+        analytics.load(LocationContext.MAIN);
+
+        assertMatchesTheDatabase();
+        assertEquals(13L, analytics.getOrderItemTotals(null, null, null, null, null, regular.getId()).get(0).get("units"));
+    }
+
+    @Test
+    void invalidQueriesAreRejectedBeforeReachingTheFacts() {
+        assertThrows(IllegalArgumentException.class,
+                () -> analytics.getOrderItemTotals(today, today, List.of("week"), null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> analytics.getOrderItemTotals(today, today, List.of("day", "product", "customer"), null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> analytics.getOrderItemTotals(today, today.minusDays(1), null, null, null, null));
+    }
+
+    private void assertMatchesTheDatabase() {
+        OrderTotals expected = orderService.getOrderTotals(today, today);
+        Map<String, Object> actual = analytics.getOrderItemTotals(today, today, null, null, null, null).get(0);
+        assertEquals(expected.units(), actual.get("units"));
+        assertEquals(expected.total(), actual.get("revenue"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Customer and category deletes remove their dependents in chunks of {@link ChunkedDelete#CHUNK_SIZE}, children
+ * first: the foreign keys (items to orders to customers, products to categories) reject any other order. Rows
+ * are inserted with JDBC so each parent has more dependents than one chunk. Runs without the test-managed
+ * transaction, so every chunk commits on its own as it does in production.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({CustomerService.class, CategoryService.class, StockService.class, OrderViewService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChunkedDeleteTest {
+
+    private static final int ROWS = ChunkedDelete.CHUNK_SIZE * 2 + 300;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        for (String table : new String[]{"order_items", "orders", "product_stock_shards", "products", "categories", "customers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void customerIsDeletedWithAllOfItsOrdersAndItems() {
+        Category food = categoryRepository.save(new Category("Food"));
+        Product pizza = productRepository.save(new Product("Pizza", new BigDecimal("2.50"), "Slice", food));
+        Customer regular = customerRepository.save(new Customer("Regular", "regular@example.com", "123456789"));
+        Customer other = customerRepository.save(new Customer("Other", "other@example.com", "987654321"));
+        insertOrders(regular, pizza, 1, ROWS);
+        insertOrders(other, pizza, ROWS + 1, 3);
+
+        assertTrue(customerService.deleteCustomer(regular.getId()));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM customers WHERE id = ?", regular.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM orders WHERE customer_id = ?", regular.getId()));
+        assertEquals(3, count("SELECT COUNT(*) FROM orders"));
+        assertEquals(3, count("SELECT COUNT(*) FROM order_items"));
+        assertEquals(1, count("SELECT COUNT(*) FROM products"));
+
+        // The parent is gone: nothing is left to delete, and the other customer's rows stay
+        assertFalse(customerService.deleteCustomer(regular.getId()));
+        assertFalse(customerService.deleteCustomer(-1L));
+        assertEquals(3, count("SELECT COUNT(*) FROM order_items"));
+    }
+
+    @Test
+    void categoryIsDeletedWithAllOfItsProductsAndStockShards() {
+        Category food = categoryRepository.save(new Category("Food"));
+        Category drinks = categoryRepository.save(new Category("Drinks"));
+        Product soda = productRepository.save(new Product("Soda", new BigDecimal("1.00"), "Can", drinks));
+        jdbcTemplate.update("INSERT INTO product_stock_shards (product_id, shard, quantity) VALUES (?, 0, 5)", soda.getId());
+
+        List<Object[]> products = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            products.add(new Object[]{"Dish " + i, 250L, "Plate", food.getId(), 2, "main"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (name, price_cents, description, category_id, stock_shards, location) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", products);
+        jdbcTemplate.update("INSERT INTO product_stock_shards (product_id, shard, quantity) "
+                + "SELECT id, 0, 10 FROM products WHERE category_id = ? UNION ALL "
+                + "SELECT id, 1, 10 FROM products WHERE category_id = ?", food.getId(), food.getId());
+        assertEquals(ROWS * 2 + 1, count("SELECT COUNT(*) FROM product_stock_shards"));
+
+        assertTrue(categoryService.deleteCategory(food.getId()));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM categories WHERE id = ?", food.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM products WHERE category_id = ?", food.getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM products"));
+        assertEquals(1, count("SELECT COUNT(*) FROM product_stock_shards"));
+        assertEquals(1, count("SELECT COUNT(*) FROM product_stock_shards WHERE product_id = ?", soda.getId()));
+
+        assertFalse(categoryService.deleteCategory(food.getId()));
+        assertFalse(categoryService.deleteCategory(-1L));
+        assertEquals(1, count("SELECT COUNT(*) FROM products"));
+    }
+
+    // Orders with one item each, with IDs from the given one on
+    private void insertOrders(Customer customer, Product product, long firstId, int count) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (long id = firstId; id < firstId + count; id++) {
+            orders.add(new Object[]{id, customer.getId(), now, "main", 0L});
+            items.add(new Object[]{id, id, product.getId(), 1, 0L});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, customer_id, order_date, location, version) VALUES (?, ?, ?, ?, ?)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO order_items (id, order_id, product_id, quantity, version) VALUES (?, ?, ?, ?, ?)", items);
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+}
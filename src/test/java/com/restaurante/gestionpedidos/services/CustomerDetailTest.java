@@ -0,0 +1,122 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.CustomerDetail;
+import com.restaurante.gestionpedidos.dto.NotFound;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({CustomerService.class, OrderViewService.class, StockService.class})
+class CustomerDetailTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Test
+    void detailHasTheRecentOrdersAndTheHistoryIsPaged() {
+        Category category = categoryRepository.save(new Category("Coffee"));
+        Product espresso = productRepository.save(new Product("Espresso", new BigDecimal("1.20"), "Single shot", category));
+        Customer regular = customerRepository.save(new Customer("Regular", "regular@example.com", "123456789"));
+        Customer other = customerRepository.save(new Customer("Other", "other@example.com", "987654321"));
+        orderRepository.save(new Order(other));
+
+        // Placed on consecutive days, oldest first
+        List<Order> orders = new ArrayList<>();
+        long day = 24L * 60 * 60 * 1000;
+        for (int i = 0; i < 15; i++) {
+            Order order = new Order(regular);
+            order.setOrderDate(new Date(1_700_000_000_000L + i * day));
+            orders.add(orderRepository.save(order));
+            orderItemRepository.save(new OrderItem(order, espresso, 2));
+        }
+
+        CustomerDetail detail = customerService.getCustomerDetail(regular.getId(), 3).orElseThrow();
+        assertEquals("Regular", detail.name());
+        assertEquals(15, detail.orderCount());
+        assertEquals(new BigDecimal("36.00"), detail.lifetimeSpend());
+        assertEquals(List.of(orders.get(14).getId(), orders.get(13).getId(), orders.get(12).getId()),
+                detail.recentOrders().stream().map(Order::getId).toList());
+
+        Page<Order> page = customerService.getCustomerOrders(regular.getId(), 1, 4).orElseThrow();
+        assertEquals(15, page.getTotalElements());
+        assertEquals(4, page.getTotalPages());
+        assertEquals(List.of(orders.get(10).getId(), orders.get(9).getId(), orders.get(8).getId(), orders.get(7).getId()),
+                page.getContent().stream().map(Order::getId).toList());
+
+        CustomerDetail newcomer = customerService.getCustomerDetail(
+                customerRepository.save(new Customer("New", "new@example.com", "111111111")).getId(), 10).orElseThrow();
+        assertEquals(0, newcomer.orderCount());
+        assertEquals(new BigDecimal("0.00"), newcomer.lifetimeSpend());
+        assertEquals(List.of(), newcomer.recentOrders());
+
+        assertTrue(customerService.getCustomerDetail(-1L, 10).isEmpty());
+        assertTrue(customerService.getCustomerOrders(-1L, 0, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> customerService.getCustomerDetail(regular.getId(), 0));
+        assertThrows(IllegalArgumentException.class, () -> customerService.getCustomerOrders(regular.getId(), 0, 101));
+    }
+
+    @Test
+    void listAndMultiGetAreBoundedLikeTheDetail() {
+        Category category = categoryRepository.save(new Category("Tea"));
+        Product greenTea = productRepository.save(new Product("Green tea", new BigDecimal("2.50"), "Pot", category));
+        Customer busy = customerRepository.save(new Customer("Busy", "busy@example.com", "222222222"));
+        Customer quiet = customerRepository.save(new Customer("Quiet", "quiet@example.com", "333333333"));
+
+        List<Order> orders = new ArrayList<>();
+        long day = 24L * 60 * 60 * 1000;
+        for (int i = 0; i < 8; i++) {
+            Order order = new Order(busy);
+            order.setOrderDate(new Date(1_700_000_000_000L + i * day));
+            orders.add(orderRepository.save(order));
+            orderItemRepository.save(new OrderItem(order, greenTea, 1));
+        }
+        Order single = orderRepository.save(new Order(quiet));
+        orderItemRepository.save(new OrderItem(single, greenTea, 4));
+
+        List<Object> found = customerService.getCustomersByIds(List.of(quiet.getId(), -1L, busy.getId()), 2);
+        CustomerDetail first = (CustomerDetail) found.get(0);
+        assertEquals(1, first.orderCount());
+        assertEquals(new BigDecimal("10.00"), first.lifetimeSpend());
+        assertEquals(List.of(single.getId()), first.recentOrders().stream().map(Order::getId).toList());
+        assertInstanceOf(NotFound.class, found.get(1));
+        CustomerDetail third = (CustomerDetail) found.get(2);
+        assertEquals(8, third.orderCount());
+        assertEquals(new BigDecimal("20.00"), third.lifetimeSpend());
+        assertEquals(List.of(orders.get(7).getId(), orders.get(6).getId()),
+                third.recentOrders().stream().map(Order::getId).toList());
+
+        CustomerDetail listed = customerService.getAllCustomers(3).stream()
+                .filter(detail -> detail.id().equals(busy.getId())).findFirst().orElseThrow();
+        assertEquals(8, listed.orderCount());
+        assertEquals(3, listed.recentOrders().size());
+        assertThrows(IllegalArgumentException.class, () -> customerService.getAllCustomers(0));
+        assertThrows(IllegalArgumentException.class, () -> customerService.getCustomersByIds(List.of(busy.getId()), 101));
+    }
+}
@@ -0,0 +1,125 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The entities are enhanced at build time and their to-one associations are lazy. Whatever the services
+ * return is serialized after their transaction has ended (open-in-view is off), so it must carry every
+ * association its JSON shows. Runs without the test-managed transaction, as the controllers do.
+ */
+@DataJpaTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import({OrderService.class, OrderItemService.class, ProductService.class, CustomerService.class,
+        StockService.class, OrderViewService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityEnhancementTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (String table : new String[]{"order_items", "orders", "product_stock_shards", "products", "categories", "customers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void returnedEntitiesSerializeAfterTheirTransaction() throws Exception {
+        Category category = categoryRepository.save(new Category("Enhanced"));
+        Product pizza = productService.createProduct(new Product("Pizza", new BigDecimal("2.50"), "Slice", category));
+        Product soda = productService.createProduct(new Product("Soda", new BigDecimal("1.00"), "Can", category));
+        Customer customer = customerService.createCustomer(new Customer("Table 1", "table1@example.com", "123456789"));
+        Order order = orderService.createOrder(new Order(customer));
+        OrderItem item = orderItemService.createOrderItem(new OrderItem(order, pizza, 1));
+
+        Product loaded = productService.getProductById(pizza.getId()).orElseThrow();
+        assertInstanceOf(SelfDirtinessTracker.class, loaded);
+        assertTrue(json(loaded).contains("\"name\":\"Enhanced\""));
+        assertTrue(json(productService.getAllProducts()).contains("\"name\":\"Enhanced\""));
+        assertTrue(json(productService.updateProduct(pizza.getId(), new Product("Pizza", new BigDecimal("2.75"), "Slice", null)))
+                .contains("\"name\":\"Enhanced\""));
+
+        assertTrue(json(orderItemService.getOrderItemById(item.getId()).orElseThrow()).contains("\"name\":\"Enhanced\""));
+        assertTrue(json(orderItemService.incrementQuantity(item.getId(), 1)).contains("\"name\":\"Pizza\""));
+        OrderItem change = new OrderItem(order, soda, 2);
+        assertTrue(json(orderItemService.updateOrderItem(item.getId(), change)).contains("\"name\":\"Soda\""));
+        assertTrue(json(orderItemService.getAllOrderItems()).contains("\"quantity\":2"));
+        json(orderService.updateOrder(order.getId(), new Order(customer)));
+        json(customerService.getAllCustomers(10));
+    }
+
+    @Test
+    void listingsRunOneStatement() throws Exception {
+        Category category = categoryRepository.save(new Category("Listings"));
+        Product pizza = productService.createProduct(new Product("Pizza", new BigDecimal("2.50"), "Slice", category));
+        for (int i = 0; i < 5; i++) {
+            Customer customer = customerService.createCustomer(new Customer("Table " + i, "table" + i + "@example.com", "123456789"));
+            Order order = orderService.createOrder(new Order(customer));
+            orderItemService.createOrderItem(new OrderItem(order, pizza, 1));
+        }
+
+        // The customers of the orders were read one by one when the association was eager
+        statistics.clear();
+        json(orderService.getAllOrders());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        json(orderItemService.getAllOrderItems());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private String json(Object value) throws Exception {
+        return objectMapper.writeValueAsString(value);
+    }
+}
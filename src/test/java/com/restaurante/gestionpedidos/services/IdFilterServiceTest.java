@@ -0,0 +1,186 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements are counted with the Hibernate statistics; the filter's own scans (JDBC) are only run
+ * when the test asks for them. Runs without the test-managed transaction, so deletes really commit.
+ */
+@DataJpaTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "gestionpedidos.id-filter.refresh-seconds=3600"})
+@Import({CustomerService.class, ProductService.class, OrderService.class, StockService.class,
+        OrderViewService.class, IdFilterService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdFilterServiceTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private IdFilterService idFilter;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (String table : new String[]{"order_items", "orders", "product_stock_shards", "products", "categories", "customers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void knownMissesDoNotReachTheDatabase() {
+        Customer kept = customerService.createCustomer(new Customer("Kept", "kept@example.com", "123456789"));
+        Customer gone = customerService.createCustomer(new Customer("Gone", "gone@example.com", "123456789"));
+        // Inserted behind the services' back, as another instance would
+        jdbcTemplate.update("INSERT INTO customers (name, email, phone, location) VALUES ('Other', 'other@example.com', '1', 'main')");
+        Long other = jdbcTemplate.queryForObject("SELECT id FROM customers WHERE name = 'Other'", Long.class);
+
+        idFilter.refresh();
+        assertTrue(customerService.deleteCustomer(gone.getId()));
+
+        statistics.clear();
+        assertTrue(customerService.getCustomerDetail(gone.getId(), 10).isEmpty());
+        assertTrue(customerService.getCustomerById(gone.getId(), "id,name").isEmpty());
+        assertNull(customerService.updateCustomer(gone.getId(), new Customer("Back", "back@example.com", "1")));
+        assertFalse(customerService.deleteCustomer(gone.getId()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        assertEquals("Kept", customerService.getCustomerDetail(kept.getId(), 10).orElseThrow().name());
+        assertEquals("Other", customerService.getCustomerDetail(other, 10).orElseThrow().name());
+
+        // Above the settled IDs the database still decides
+        statistics.clear();
+        assertTrue(customerService.getCustomerDetail(other + 1000, 10).isEmpty());
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+        Customer newer = customerService.createCustomer(new Customer("Newer", "newer@example.com", "123456789"));
+        assertTrue(customerService.getCustomerDetail(newer.getId(), 10).isPresent());
+    }
+
+    @Test
+    void rowsCommittedBelowTheScannedIdsAreNotMissed() {
+        // IDs 10 and 12 are committed; 11 belongs to an insert still open while the scans run
+        for (long id : new long[]{10, 12}) {
+            jdbcTemplate.update("INSERT INTO customers (id, name, email, phone, location) VALUES (?, 'Early', ?, '1', 'main')",
+                    id, "early" + id + "@example.com");
+        }
+        idFilter.refresh();
+        idFilter.refresh();
+        jdbcTemplate.update("INSERT INTO customers (id, name, email, phone, location) VALUES (11, 'Late', 'late@example.com', '1', 'main')");
+
+        assertEquals("Late", customerService.getCustomerDetail(11L, 10).orElseThrow().name());
+        // Gaps that stay empty still cost a query, but never a wrong 404
+        statistics.clear();
+        assertTrue(customerService.getCustomerDetail(5L, 10).isEmpty());
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+    }
+
+    @Test
+    void aJumpInTheIdsIsOneGap() {
+        long far = 1L << 50;
+        for (long id : new long[]{10, far}) {
+            jdbcTemplate.update("INSERT INTO customers (id, name, email, phone, location) VALUES (?, 'Jump', ?, '1', 'main')",
+                    id, "jump" + id + "@example.com");
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> idFilter.refresh());
+
+        statistics.clear();
+        assertTrue(customerService.getCustomerDetail(far / 2, 10).isEmpty());
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+        assertEquals("Jump", customerService.getCustomerDetail(far, 10).orElseThrow().name());
+
+        assertTrue(customerService.deleteCustomer(far));
+        statistics.clear();
+        assertTrue(customerService.getCustomerDetail(far, 10).isEmpty());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void lookupsLeaveTheScanToABackgroundThread() throws Exception {
+        for (long id : new long[]{10, 12}) {
+            jdbcTemplate.update("INSERT INTO customers (id, name, email, phone, location) VALUES (?, 'Scanned', ?, '1', 'main')",
+                    id, "scanned" + id + "@example.com");
+        }
+        IdFilterService fresh = new IdFilterService(jdbcTemplate, 3600);
+
+        // Nothing is scanned yet, so the lookup answers "might exist" and only starts the scan
+        assertTrue(fresh.mightExist(IdFilterService.Table.CUSTOMERS, 12L));
+        // A removed bit sticks (and becomes a definite miss) once the scan has settled ID 12
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        do {
+            assertTrue(System.nanoTime() < deadline, "the background scan never settled ID 12");
+            Thread.sleep(10);
+            fresh.removed(IdFilterService.Table.CUSTOMERS, 12L);
+        } while (fresh.mightExist(IdFilterService.Table.CUSTOMERS, 12L));
+        assertTrue(fresh.mightExist(IdFilterService.Table.CUSTOMERS, 10L));
+        assertTrue(fresh.mightExist(IdFilterService.Table.CUSTOMERS, 11L));
+        assertTrue(fresh.mightExist(IdFilterService.Table.CUSTOMERS, 13L));
+    }
+
+    @Test
+    void deletesAreSingleStatementsThatTakeTheDependentRowsAlong() {
+        Category category = categoryRepository.save(new Category("Deletes"));
+        Product sharded = new Product("Hot dog", new BigDecimal("3.00"), "Classic", category);
+        sharded.setStock(40);
+        sharded.setStockShards(4);
+        sharded = productService.createProduct(sharded);
+        Customer customer = customerService.createCustomer(new Customer("Table 9", "table9@example.com", "123456789"));
+        Product soda = productService.createProduct(new Product("Soda", new BigDecimal("1.00"), "Can", category));
+        Order order = orderService.createOrder(new Order(customer));
+        orderItemRepository.save(new OrderItem(order, soda, 2));
+        orderItemRepository.save(new OrderItem(order, soda, 1));
+
+        assertTrue(productService.deleteProduct(sharded.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_stock_shards", Integer.class));
+        assertTrue(orderService.deleteOrder(order.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items", Integer.class));
+
+        // Not known to the filter yet: the delete itself reports the miss
+        statistics.clear();
+        assertFalse(productService.deleteProduct(soda.getId() + 1000));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertFalse(orderService.deleteOrder(order.getId()));
+    }
+}
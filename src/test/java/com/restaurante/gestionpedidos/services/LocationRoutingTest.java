@@ -0,0 +1,135 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.config.LocationDataSourceConfig;
+import com.restaurante.gestionpedidos.dto.LocationTotals;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three locations, each on its own embedded database: writes stay in the location of the caller,
+ * and the head-office report adds up all of them.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:location-main;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "gestionpedidos.locations.north.url=jdbc:h2:mem:location-north;DB_CLOSE_DELAY=-1",
+        "gestionpedidos.locations.north.username=sa",
+        "gestionpedidos.locations.south.url=jdbc:h2:mem:location-south;DB_CLOSE_DELAY=-1",
+        "gestionpedidos.locations.south.username=sa"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({LocationDataSourceConfig.class, OrderService.class, OrderViewService.class, StockService.class, LocationReportService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LocationRoutingTest {
+
+    private static final List<String> OTHER_LOCATIONS = List.of("north", "south");
+
+    @Autowired
+    private LocationReportService locationReportService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    // The application migrates every location with Flyway; on H2 the tests run without it and ddl-auto only
+    // creates the schema of the main location
+    @BeforeEach
+    void createSchemas() {
+        OTHER_LOCATIONS.forEach(location -> LocationContext.run(location,
+                () -> entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(true)));
+    }
+
+    @AfterEach
+    void dropSchemas() {
+        OTHER_LOCATIONS.forEach(location -> LocationContext.run(location,
+                () -> entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().dropMappedObjects(true)));
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void eachLocationUsesItsOwnDatabase() {
+        placeOrders("main", 1, 1);
+        Customer north = placeOrders("north", 2, 3);
+        placeOrders("south", 0, 0);
+
+        assertEquals("north", north.getLocation());
+        // The same e-mail is unique per location, not across locations
+        for (String location : List.of("main", "north", "south")) {
+            assertEquals(1L, LocationContext.<Long>call(location, customerRepository::count));
+        }
+        assertEquals(2L, LocationContext.<Long>call("north", orderRepository::count));
+        assertEquals(List.of("north"), LocationContext.call("north",
+                () -> orderRepository.findAll().stream().map(Order::getLocation).distinct().toList()));
+
+        LocalDate today = LocalDate.now();
+        LocationTotals totals = locationReportService.getOrderTotals(today, today);
+        assertEquals(List.of("main", "north", "south"), List.copyOf(totals.locations().keySet()));
+        assertEquals(3, totals.orders());
+        assertEquals(7, totals.units());
+        assertEquals(new BigDecimal("17.50"), totals.total());
+        assertEquals(new BigDecimal("15.00"), totals.locations().get("north").total());
+        assertEquals(0, totals.locations().get("south").orders());
+
+        assertThrows(RuntimeException.class, () -> LocationContext.call("west", customerRepository::count));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status ->
+                LocationContext.call("north", customerRepository::count)));
+    }
+
+    // One customer in the location, with the given number of orders of "units" products at 2.50 each
+    private Customer placeOrders(String location, int orders, int units) {
+        return LocationContext.call(location, () -> {
+            Category category = categoryRepository.save(new Category("Pizzas"));
+            Product product = productRepository.save(new Product("Margherita", new BigDecimal("2.50"), "Tomato", category));
+            Customer customer = customerRepository.save(new Customer("Branch", "branch@example.com", "123456789"));
+            for (int i = 0; i < orders; i++) {
+                Order order = orderRepository.save(new Order(customer));
+                orderItemRepository.save(new OrderItem(order, product, units));
+            }
+            return customer;
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.NotFound;
+import com.restaurante.gestionpedidos.models.Category;
+import com.restaurante.gestionpedidos.models.Product;
+import com.restaurante.gestionpedidos.repositories.CategoryRepository;
+import com.restaurante.gestionpedidos.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({ProductService.class, StockService.class, OrderViewService.class})
+class MultiGetTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void returnsProductsInRequestOrderWithNotFoundMarkers() {
+        Category category = categoryRepository.save(new Category("Drinks"));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < BatchLookup.CHUNK_SIZE * 2 + 5; i++) {
+            ids.add(productRepository.save(new Product("Drink " + i, new BigDecimal("1.00"), "Cold", category)).getId());
+        }
+        Collections.reverse(ids);
+        ids.add(1, -1L);
+        ids.add(ids.get(0));
+
+        List<Object> products = productService.getProductsByIds(ids);
+        assertEquals(ids.size(), products.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == -1L) {
+                assertEquals(NotFound.of(-1L), products.get(i));
+            } else {
+                assertEquals(ids.get(i), ((Product) products.get(i)).getId());
+            }
+        }
+
+        List<Object> names = productService.getProductsByIds(List.of(ids.get(0), -2L), "name");
+        assertEquals(Map.of("id", ids.get(0), "name", ((Product) products.get(0)).getName()), names.get(0));
+        assertEquals(NotFound.of(-2L), names.get(1));
+
+        List<Long> tooMany = Collections.nCopies(BatchLookup.MAX_IDS + 1, ids.get(0));
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsByIds(tooMany));
+    }
+}
@@ -0,0 +1,159 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.ExportManifest;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exports run on their own transactions, so the test data is committed (no test transaction) and removed afterwards.
+ */
+@DataJpaTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "gestionpedidos.export.workers=2", "gestionpedidos.export.partition-days=1"})
+@Import(OrderExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExportServiceTest {
+
+    @TempDir
+    static Path exportDirectory;
+
+    @DynamicPropertySource
+    static void exportProperties(DynamicPropertyRegistry registry) {
+        registry.add("gestionpedidos.export.directory", exportDirectory::toString);
+    }
+
+    @Autowired
+    private OrderExportService exportService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        for (String table : new String[]{"order_items", "orders", "products", "categories", "customers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void partitionsAreWrittenWithTheirChecksumsAndResumed() throws Exception {
+        Category category = categoryRepository.save(new Category("Export"));
+        Product soda = productRepository.save(new Product("Soda", new BigDecimal("1.00"), "Can", category));
+        Customer customer = customerRepository.save(new Customer("Export", "export@example.com", "123456789"));
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        // More orders than a chunk, all at the same instant: past the first chunk the keyset goes on the ID alone
+        Timestamp noon = Timestamp.valueOf(day.atTime(12, 0));
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (long id = 1; id <= 1205; id++) {
+            orders.add(new Object[]{id, customer.getId(), noon});
+            items.add(new Object[]{id, id, soda.getId(), 1});
+        }
+        orders.add(new Object[]{2000L, customer.getId(), Timestamp.valueOf(day.plusDays(1).atTime(23, 59, 59, 999_999_000))});
+        items.add(new Object[]{2000L, 2000L, soda.getId(), 2});
+        items.add(new Object[]{2001L, 2000L, soda.getId(), 3});
+        orders.add(new Object[]{2001L, customer.getId(), Timestamp.valueOf(day.plusDays(2).atStartOfDay())});
+        orders.add(new Object[]{2002L, customer.getId(), Timestamp.valueOf(day.plusDays(3).atStartOfDay())});
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, customer_id, order_date, location, version) VALUES (?, ?, ?, 'main', 0)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO order_items (id, order_id, product_id, quantity, version) VALUES (?, ?, ?, ?, 0)", items);
+
+        ExportManifest manifest = exportService.export(day, day.plusDays(2));
+        assertTrue(manifest.complete());
+        assertEquals(List.of(day, day.plusDays(1), day.plusDays(2)),
+                manifest.partitions().stream().map(ExportManifest.Partition::from).toList());
+        assertEquals(List.of(1205L, 1205L, 1L, 2L, 1L, 0L), manifest.partitions().stream()
+                .flatMap(partition -> partition.files().stream()).map(ExportManifest.ExportFile::rows).toList());
+
+        Path run = exportDirectory.resolve("main").resolve("orders-2025-03-01_2025-03-03");
+        for (ExportManifest.Partition partition : manifest.partitions()) {
+            for (ExportManifest.ExportFile file : partition.files()) {
+                byte[] bytes = Files.readAllBytes(run.resolve(file.name()));
+                assertEquals(file.bytes(), bytes.length);
+                assertEquals(file.sha256(), HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)));
+                assertEquals(file.rows() + 1, lines(run.resolve(file.name())).size());
+            }
+        }
+        assertEquals(List.of("id,customer_id,order_date,location,version",
+                        "2000," + customer.getId() + ",2025-03-02 23:59:59.999999,main,0"),
+                lines(run.resolve("orders-2025-03-02.csv.gz")));
+
+        // A run that lost the files of the last two partitions only writes those again
+        Path first = run.resolve("orders-2025-03-01.csv.gz");
+        FileTime firstWritten = Files.getLastModifiedTime(first);
+        Files.delete(run.resolve("order-items-2025-03-02.csv.gz"));
+        Files.delete(run.resolve("orders-2025-03-03.csv.gz"));
+        assertEquals(manifest, exportService.export(day, day.plusDays(2)));
+        assertEquals(firstWritten, Files.getLastModifiedTime(first));
+        assertTrue(Files.exists(run.resolve("order-items-2025-03-02.csv.gz")));
+        assertEquals(manifest, exportService.getManifest(day, day.plusDays(2)).orElseThrow());
+        assertTrue(exportService.getManifest(day, day).isEmpty());
+    }
+
+    @Test
+    void chunksFollowTheDateWhenTheIdsRunTheOtherWay() throws Exception {
+        Customer customer = customerRepository.save(new Customer("Export", "export@example.com", "123456789"));
+        LocalDate day = LocalDate.of(2025, 4, 1);
+
+        // Later orders with smaller IDs (dates edited after creation): over two chunk boundaries
+        List<Object[]> orders = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            orders.add(new Object[]{10_000L - i, customer.getId(), Timestamp.valueOf(day.atStartOfDay().plusSeconds(i))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, customer_id, order_date, location, version) VALUES (?, ?, ?, 'main', 0)", orders);
+
+        ExportManifest manifest = exportService.export(day, day);
+        assertEquals(2500L, manifest.partitions().get(0).files().get(0).rows());
+        List<String> ids = lines(exportDirectory.resolve("main").resolve("orders-2025-04-01_2025-04-01")
+                .resolve("orders-2025-04-01.csv.gz")).stream().skip(1).map(line -> line.substring(0, line.indexOf(','))).toList();
+        assertEquals(2500, ids.stream().distinct().count());
+        assertEquals("10000", ids.get(0));
+        assertEquals("7501", ids.get(ids.size() - 1));
+    }
+
+    private static List<String> lines(Path file) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}
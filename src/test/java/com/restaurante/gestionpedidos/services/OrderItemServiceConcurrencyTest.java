@@ -0,0 +1,106 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.exceptions.ConcurrentUpdateException;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test for the optimistic locking of order items.
+ * Runs without the test-managed transaction so that every thread commits on its own.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({OrderItemService.class, StockService.class, OrderViewService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderItemServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int INCREMENTS_PER_THREAD = 25;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Test
+    void concurrentIncrementsAreNeverLost() throws Exception {
+        OrderItem item = createOrderItem("stress");
+
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                    try {
+                        orderItemService.incrementQuantity(item.getId(), 1);
+                        applied.incrementAndGet();
+                    } catch (ConcurrentUpdateException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        OrderItem reloaded = orderItemRepository.findById(item.getId()).orElseThrow();
+        assertEquals(THREADS * INCREMENTS_PER_THREAD, applied.get() + conflicts.get());
+        assertTrue(applied.get() > 0);
+        assertEquals(1 + applied.get(), reloaded.getQuantity());
+    }
+
+    @Test
+    void updateWithStaleVersionIsRejected() {
+        OrderItem item = createOrderItem("stale");
+        orderItemService.incrementQuantity(item.getId(), 1);
+
+        OrderItem stale = new OrderItem();
+        stale.setQuantity(10);
+        stale.setVersion(item.getVersion());
+
+        assertThrows(ConcurrentUpdateException.class, () -> orderItemService.updateOrderItem(item.getId(), stale));
+        assertEquals(2, orderItemRepository.findById(item.getId()).orElseThrow().getQuantity());
+    }
+
+    private OrderItem createOrderItem(String name) {
+        Category category = categoryRepository.save(new Category("Category " + name));
+        Product product = productRepository.save(new Product("Product " + name, new BigDecimal("10.00"), "Test product", category));
+        Customer customer = customerRepository.save(new Customer("Customer " + name, name + "@example.com", "123456789"));
+        Order order = orderRepository.save(new Order(customer));
+        return orderItemRepository.save(new OrderItem(order, product, 1));
+    }
+}
@@ -0,0 +1,136 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.models.Customer;
+import com.restaurante.gestionpedidos.models.Order;
+import com.restaurante.gestionpedidos.repositories.CustomerRepository;
+import com.restaurante.gestionpedidos.repositories.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The applier runs on its own thread and transactions, so the test data is committed
+ * (no test transaction) and removed afterwards.
+ */
+@DataJpaTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "gestionpedidos.journal.enabled=true"})
+@Import({OrderService.class, OrderJournalService.class, OrderViewService.class, StockService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderJournalServiceTest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @TempDir
+    Path restartDirectory;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("gestionpedidos.journal.directory", journalDirectory::toString);
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void journaledOrdersReachTheDatabase() {
+        Customer customer = customerRepository.save(new Customer("Journal", "journal@example.com", "123456789"));
+
+        Order order = orderService.createOrder(new Order(customer));
+        assertNotNull(order.getId());
+        assertEquals(0L, order.getVersion());
+
+        // Reads of a journaled order wait for the applier
+        Order stored = orderService.getOrderById(order.getId()).orElseThrow();
+        assertEquals(customer.getId(), stored.getCustomer().getId());
+        assertEquals("main", stored.getLocation());
+        assertEquals(order.getOrderDate().getTime(), stored.getOrderDate().getTime());
+    }
+
+    @Test
+    void replaysTheJournalAfterARestartWithoutDuplicates() throws Exception {
+        Customer customer = customerRepository.save(new Customer("Replay", "replay@example.com", "123456789"));
+
+        // Acknowledged, but the process stops before the applier has recorded it as applied
+        OrderJournalService crashed = newJournalService();
+        Order applied = new Order(customer);
+        Order unapplied = new Order(customer);
+        assertTrue(crashed.accept(applied));
+        assertTrue(crashed.accept(unapplied));
+        crashed.stop();
+        jdbcTemplate.update("INSERT INTO orders (id, customer_id, order_date, location, version) VALUES (?, ?, ?, 'main', 0)",
+                applied.getId(), customer.getId(), new Timestamp(applied.getOrderDate().getTime()));
+
+        OrderJournalService restarted = newJournalService();
+        restarted.start();
+        restarted.awaitApplied(unapplied.getId());
+        restarted.stop();
+
+        assertEquals(2, orderRepository.count());
+        assertTrue(orderRepository.existsById(unapplied.getId()));
+    }
+
+    @Test
+    void rejectedOrdersAreSetAsideInsteadOfDropped() throws Exception {
+        Customer kept = customerRepository.save(new Customer("Kept", "kept@example.com", "123456789"));
+        Customer deleted = customerRepository.save(new Customer("Deleted", "deleted@example.com", "123456789"));
+
+        OrderJournalService journal = newJournalService();
+        Order accepted = new Order(kept);
+        Order orphan = new Order(deleted);
+        assertTrue(journal.accept(accepted));
+        assertTrue(journal.accept(orphan));
+        // The customer disappears after the order was acknowledged but before it is applied
+        jdbcTemplate.update("DELETE FROM customers WHERE id = ?", deleted.getId());
+        journal.start();
+        // Deletes of a customer wait for the customer's journaled orders
+        journal.awaitCustomer(kept.getId());
+        assertTrue(orderRepository.existsById(accepted.getId()));
+        journal.awaitCustomer(deleted.getId());
+        journal.stop();
+
+        assertFalse(orderRepository.existsById(orphan.getId()));
+        List<String> rejected = Files.readAllLines(restartDirectory.resolve("orders.rejected.csv"));
+        assertEquals("id,customer_id,order_date,location,reason", rejected.get(0));
+        assertEquals(2, rejected.size());
+        assertTrue(rejected.get(1).startsWith(orphan.getId() + "," + deleted.getId() + ","));
+    }
+
+    private OrderJournalService newJournalService() throws Exception {
+        return new OrderJournalService(jdbcTemplate, transactionManager, restartDirectory.toString(), 1, 100, 0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.restaurante.gestionpedidos.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+    private static final int CAPACITY = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversTheUnappliedRecordsAfterARestart() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            assertEquals(1, journal.append(bytes("first")));
+            assertEquals(2, journal.append(bytes("second")));
+            assertEquals(3, journal.append(bytes("third")));
+            List<OrderJournal.Entry> entries = journal.read(1);
+            assertEquals(List.of("first"), texts(entries));
+            journal.markApplied(entries.get(0));
+        }
+
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            assertTrue(journal.hasUnapplied());
+            List<OrderJournal.Entry> entries = journal.read(10);
+            assertEquals(List.of("second", "third"), texts(entries));
+
+            // Records written after the restart follow the recovered ones
+            journal.append(bytes("fourth"));
+            assertEquals(List.of("second", "third", "fourth"), texts(journal.read(10)));
+            journal.markApplied(entries.get(1));
+        }
+
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            assertEquals(List.of("fourth"), texts(journal.read(10)));
+        }
+    }
+
+    @Test
+    void rewindsOnceEverythingIsAppliedAndIgnoresOlderRecords() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            journal.append(bytes("a long record that stays in the file after the rewind"));
+            journal.append(bytes("another old record"));
+            List<OrderJournal.Entry> entries = journal.read(10);
+            journal.markApplied(entries.get(1));
+            assertFalse(journal.hasUnapplied());
+
+            journal.append(bytes("new"));
+            assertEquals(List.of("new"), texts(journal.read(10)));
+        }
+
+        // The old records after "new" belong to an earlier epoch and are not part of the log
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            assertEquals(List.of("new"), texts(journal.read(10)));
+        }
+    }
+
+    @Test
+    void stopsAtATornRecord() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            journal.append(bytes("complete"));
+            journal.append(bytes("torn"));
+        }
+        // Flip one payload byte of the second record, as if the crash came in the middle of writing it
+        int second = OrderJournal.HEADER_SIZE + "complete".length();
+        try (FileChannel file = FileChannel.open(directory.resolve(OrderJournal.LOG_FILE), StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[]{'T'}), second + OrderJournal.HEADER_SIZE);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            assertEquals(List.of("complete"), texts(journal.read(10)));
+            journal.append(bytes("after"));
+        }
+        try (OrderJournal journal = OrderJournal.open(directory, CAPACITY)) {
+            assertEquals(List.of("complete", "after"), texts(journal.read(10)));
+        }
+    }
+
+    @Test
+    void refusesRecordsWhenFull() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory, 64)) {
+            assertEquals(1, journal.append(new byte[40]));
+            assertEquals(-1, journal.append(new byte[40]));
+
+            journal.markApplied(journal.read(10).get(0));
+            assertEquals(2, journal.append(new byte[40]));
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> texts(List<OrderJournal.Entry> entries) {
+        return entries.stream().map(entry -> new String(entry.payload(), StandardCharsets.UTF_8)).toList();
+    }
+}
@@ -0,0 +1,123 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.OrderItemTotals;
+import com.restaurante.gestionpedidos.dto.OrderTotals;
+import com.restaurante.gestionpedidos.dto.OrderView;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order totals are summed in whole cents, so amounts that have no exact binary
+ * representation (0.10, 0.20, ...) add up exactly.
+ */
+@DataJpaTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import({OrderService.class, OrderViewService.class, StockService.class})
+class OrderServiceTotalsTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void totalsAreExactToTheCent() {
+        Category category = categoryRepository.save(new Category("Extras"));
+        Product napkin = productRepository.save(new Product("Napkin", new BigDecimal("0.10"), "Paper napkin", category));
+        Product sauce = productRepository.save(new Product("Sauce", new BigDecimal("0.20"), "Hot sauce", category));
+        Customer customer = customerRepository.save(new Customer("Totals", "totals@example.com", "123456789"));
+
+        Order first = orderRepository.save(new Order(customer));
+        orderItemRepository.save(new OrderItem(first, napkin, 1));
+        orderItemRepository.save(new OrderItem(first, sauce, 1));
+        Order second = orderRepository.save(new Order(customer));
+        orderItemRepository.save(new OrderItem(second, napkin, 7));
+        Order empty = orderRepository.save(new Order(customer));
+        orderItemRepository.flush();
+
+        // 0.1 + 0.2 is 0.30000000000000004 in double arithmetic
+        assertEquals(new BigDecimal("0.30"), orderService.getOrderTotal(first.getId()).orElseThrow());
+        assertEquals(new BigDecimal("0.00"), orderService.getOrderTotal(empty.getId()).orElseThrow());
+        assertTrue(orderService.getOrderTotal(-1L).isEmpty());
+
+        LocalDate today = LocalDate.now();
+        OrderTotals totals = orderService.getOrderTotals(today, today);
+        assertEquals(3, totals.orders());
+        assertEquals(9, totals.units());
+        assertEquals(new BigDecimal("1.00"), totals.total());
+        assertEquals(0, orderService.getOrderTotals(today.plusDays(1), today.plusDays(2)).orders());
+    }
+
+    @Test
+    void itemsAreListedInChunksWithTheirProductAndTotals() {
+        Category category = categoryRepository.save(new Category("Catering"));
+        Product napkin = productRepository.save(new Product("Napkin", new BigDecimal("0.10"), "Paper napkin", category));
+        Product sauce = productRepository.save(new Product("Sauce", new BigDecimal("0.20"), "Hot sauce", category));
+        Customer customer = customerRepository.save(new Customer("Catering", "catering@example.com", "123456789"));
+        Order order = orderRepository.save(new Order(customer));
+        Order other = orderRepository.save(new Order(customer));
+        int count = 2 * OrderService.ITEMS_CHUNK + 3;
+        for (int i = 0; i < count; i++) {
+            orderItemRepository.save(new OrderItem(order, i % 2 == 0 ? napkin : sauce, 3));
+        }
+        orderItemRepository.save(new OrderItem(other, sauce, 1));
+        orderItemRepository.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<OrderView.Line> lines = new ArrayList<>();
+        OrderItemTotals totals = orderService.forEachOrderItem(order.getId(), lines::add);
+
+        assertEquals(count, lines.size());
+        List<Long> ids = lines.stream().map(OrderView.Line::id).toList();
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+        assertEquals("Napkin", lines.get(0).productName());
+        assertEquals(new BigDecimal("0.10"), lines.get(0).unitPrice());
+        assertEquals(new BigDecimal("0.30"), lines.get(0).lineTotal());
+        assertEquals(new BigDecimal("0.60"), lines.get(1).lineTotal());
+        // 502 napkins and 501 sauces, 3 units each: 502 * 0.30 + 501 * 0.60
+        assertEquals(3L * count, totals.units());
+        assertEquals(new BigDecimal("451.20"), totals.total());
+        // One statement per chunk, products included
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        OrderItemTotals empty = orderService.forEachOrderItem(-1L, line -> fail());
+        assertEquals(0, empty.units());
+        assertEquals(new BigDecimal("0.00"), empty.total());
+    }
+}
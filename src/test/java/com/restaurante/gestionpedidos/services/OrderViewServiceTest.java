@@ -0,0 +1,206 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.OrderView;
+import com.restaurante.gestionpedidos.dto.PriceAdjustment;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * After every write through the services, the view served from memory must equal the one built
+ * from the tables. Runs without the test-managed transaction, as the services do in production.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({OrderService.class, OrderItemService.class, ProductService.class, CustomerService.class,
+        StockService.class, OrderViewService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderViewServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private OrderViewService orderViewService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Test
+    void viewMatchesTheTablesAfterEveryWrite() {
+        Category category = categoryRepository.save(new Category("View"));
+        Product pizza = productRepository.save(new Product("Pizza", new BigDecimal("2.50"), "Slice", category));
+        Product soda = productRepository.save(new Product("Soda", new BigDecimal("1.00"), "Can", category));
+        Customer customer = customerRepository.save(new Customer("Table 4", "table4@example.com", "123456789"));
+
+        Order order = orderService.createOrder(new Order(customer));
+        OrderView view = assertConsistent(order.getId());
+        assertEquals("Table 4", view.customerName());
+        assertEquals(List.of(), view.items());
+
+        OrderItem pizzas = orderItemService.createOrderItem(new OrderItem(order, pizza, 2));
+        orderItemService.incrementQuantity(pizzas.getId(), 1);
+        OrderItem sodas = orderItemService.createOrderItem(new OrderItem(order, soda, 1));
+        OrderItem sodaChange = new OrderItem(order, soda, 4);
+        orderItemService.updateOrderItem(sodas.getId(), sodaChange);
+        view = assertConsistent(order.getId());
+        assertEquals(7, view.units());
+        assertEquals(new BigDecimal("11.50"), view.total());
+
+        Product renamed = new Product("Pepperoni pizza", new BigDecimal("3.00"), "Slice", category);
+        productService.updateProduct(pizza.getId(), renamed);
+        Customer renamedCustomer = new Customer("Table 5", "table4@example.com", "123456789");
+        customerService.updateCustomer(customer.getId(), renamedCustomer);
+        productService.adjustPrices(new PriceAdjustment(new BigDecimal("10"), null, category.getId(), null));
+        view = assertConsistent(order.getId());
+        assertEquals("Pepperoni pizza", view.items().get(0).productName());
+        assertEquals("Table 5", view.customerName());
+        assertEquals(new BigDecimal("14.30"), view.total());
+
+        orderItemService.deleteOrderItem(sodas.getId());
+        assertEquals(1, assertConsistent(order.getId()).items().size());
+
+        orderItemService.deleteOrderItem(pizzas.getId());
+        orderService.deleteOrder(order.getId());
+        assertTrue(orderService.getOrderView(order.getId()).isEmpty());
+    }
+
+    @Test
+    void keepsAtMostTheConfiguredNumberOfOrders() {
+        Customer customer = customerRepository.save(new Customer("Regular", "regular@example.com", "123456789"));
+        List<Order> orders = List.of(orderService.createOrder(new Order(customer)),
+                orderService.createOrder(new Order(customer)), orderService.createOrder(new Order(customer)));
+
+        OrderViewService bounded = new OrderViewService(jdbcTemplate, 2, 120, 3600, meterRegistry);
+        for (Order order : orders) {
+            assertTrue(bounded.getView(order.getId()).isPresent());
+        }
+        assertEquals(2, bounded.size());
+
+        // An evicted order is rebuilt from the tables on the next read
+        assertEquals(bounded.load(orders.get(0).getId()), bounded.getView(orders.get(0).getId()));
+    }
+
+    @Test
+    void changesFromOtherInstancesShowUpOnceTheViewIsTooOld() throws Exception {
+        Category category = categoryRepository.save(new Category("Elsewhere"));
+        Product soda = productRepository.save(new Product("Soda", new BigDecimal("1.00"), "Can", category));
+        Customer customer = customerRepository.save(new Customer("Table 8", "table8@example.com", "123456789"));
+        Order order = orderService.createOrder(new Order(customer));
+        OrderItem sodas = orderItemService.createOrderItem(new OrderItem(order, soda, 1));
+
+        OrderViewService views = new OrderViewService(jdbcTemplate, 100, 120, 1, meterRegistry);
+        assertEquals(1, views.getView(order.getId()).orElseThrow().units());
+        // Written by another instance: this one is not told
+        jdbcTemplate.update("UPDATE order_items SET quantity = 5 WHERE id = ?", sodas.getId());
+
+        // Reads served from memory meanwhile don't keep the stale view alive
+        long deadline = System.nanoTime() + 1_100_000_000L;
+        while (System.nanoTime() < deadline) {
+            views.getView(order.getId());
+            Thread.sleep(50);
+        }
+        assertEquals(5, views.getView(order.getId()).orElseThrow().units());
+    }
+
+    @Test
+    void aBuildThatStartedBeforeALaterChangeIsNotKept() throws Exception {
+        Customer customer = customerRepository.save(new Customer("Table 9", "table9@example.com", "123456789"));
+        Order order = orderService.createOrder(new Order(customer));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderViewService views = slowReads(loading, release);
+
+        // A read builds the view, and the order is renamed by a refresh while that build is still out
+        CompletableFuture<Optional<OrderView>> read = new CompletableFuture<>();
+        Thread reader = new Thread(() -> read.complete(views.getView(order.getId())), "slow-reader");
+        reader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        jdbcTemplate.update("UPDATE customers SET name = 'Renamed' WHERE id = ?", customer.getId());
+        views.refresh(order.getId());
+        release.countDown();
+        assertEquals("Table 9", read.get(5, TimeUnit.SECONDS).orElseThrow().customerName());
+        assertEquals("Renamed", views.getView(order.getId()).orElseThrow().customerName());
+
+        // A build that started before a drop is returned, but the next read rebuilds
+        CountDownLatch loadingAgain = new CountDownLatch(1);
+        CountDownLatch releaseAgain = new CountDownLatch(1);
+        OrderViewService dropping = slowReads(loadingAgain, releaseAgain);
+        CompletableFuture<Optional<OrderView>> dropped = new CompletableFuture<>();
+        Thread droppedReader = new Thread(() -> dropped.complete(dropping.getView(order.getId())), "slow-reader");
+        droppedReader.start();
+        assertTrue(loadingAgain.await(5, TimeUnit.SECONDS));
+        dropping.evictCustomer(customer.getId());
+        releaseAgain.countDown();
+        assertTrue(dropped.get(5, TimeUnit.SECONDS).isPresent());
+        assertEquals(0, dropping.size());
+    }
+
+    // Builds run by the thread named slow-reader wait for release once they have queried the tables
+    private OrderViewService slowReads(CountDownLatch loading, CountDownLatch release) {
+        return new OrderViewService(jdbcTemplate, 100, 120, 3600, meterRegistry) {
+            @Override
+            Optional<OrderView> load(Long orderId) {
+                Optional<OrderView> view = super.load(orderId);
+                if (Thread.currentThread().getName().equals("slow-reader")) {
+                    loading.countDown();
+                    await(release);
+                }
+                return view;
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private OrderView assertConsistent(Long orderId) {
+        OrderView fromTables = orderViewService.load(orderId).orElseThrow();
+        OrderView fromMemory = orderService.getOrderView(orderId).orElseThrow();
+        assertEquals(fromTables, fromMemory);
+        return fromMemory;
+    }
+}
@@ -0,0 +1,112 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.PriceAdjustment;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk price changes run as one JPQL UPDATE, with the factor applied in decimal arithmetic by the database.
+ * SchemaMigrationTest repeats the rounding cases on MySQL.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({ProductService.class, StockService.class, OrderViewService.class})
+class PriceAdjustmentTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void percentagesAreRoundedHalfUpToTheCent() {
+        Category food = categoryRepository.save(new Category("Food"));
+        Category drinks = categoryRepository.save(new Category("Drinks"));
+        Product threeCents = product("Mint", "0.03", food);
+        Product oneCent = product("Toothpick", "0.01", food);
+        Product pizza = product("Pizza", "1.45", food);
+        Product soda = product("Soda", "1.00", drinks);
+
+        // 0.03 * 1.5 = 0.045 and 0.01 * 1.5 = 0.015 both round up, 1.45 * 1.5 = 2.175 too
+        assertEquals(3, productService.adjustPrices(new PriceAdjustment(new BigDecimal("50"), null, food.getId(), null)));
+        assertEquals(List.of(5L, 2L, 218L, 100L), cents(threeCents, oneCent, pizza, soda));
+
+        // 2.18 * 0.9 = 1.962 rounds down; the other category is untouched
+        assertEquals(1, productService.adjustPrices(new PriceAdjustment(new BigDecimal("-10"), null, null, List.of(pizza.getId()))));
+        assertEquals(List.of(5L, 2L, 196L, 100L), cents(threeCents, oneCent, pizza, soda));
+
+        // The factor keeps all its decimals: 1000.00 * 1.1234567891 = 1123.4567891
+        Product wine = product("Wine", "1000.00", drinks);
+        productService.adjustPrices(new PriceAdjustment(new BigDecimal("12.34567891"), null, null, List.of(wine.getId())));
+        assertEquals(List.of(112346L), cents(wine));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.adjustPrices(new PriceAdjustment(new BigDecimal("12.345678912"), null, null, List.of(wine.getId()))));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.adjustPrices(new PriceAdjustment(new BigDecimal("-100"), null, drinks.getId(), null)));
+    }
+
+    @Test
+    void amountsAreAddedAndClampedAtZero() {
+        Category food = categoryRepository.save(new Category("Food"));
+        Product cheap = product("Bread", "0.30", food);
+        Product dear = product("Steak", "12.00", food);
+
+        assertEquals(2, productService.adjustPrices(new PriceAdjustment(null, new BigDecimal("-0.50"), food.getId(), null)));
+        assertEquals(List.of(0L, 1150L), cents(cheap, dear));
+
+        assertEquals(2, productService.adjustPrices(new PriceAdjustment(null, new BigDecimal("0.25"), null, List.of(cheap.getId(), dear.getId(), cheap.getId()))));
+        assertEquals(List.of(25L, 1175L), cents(cheap, dear));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.adjustPrices(new PriceAdjustment(null, new BigDecimal("0.001"), food.getId(), null)));
+        assertEquals(0, productService.adjustPrices(new PriceAdjustment(null, new BigDecimal("1.00"), null, List.of(-1L))));
+    }
+
+    @Test
+    void exactlyOneChangeAndOneTargetAreRequired() {
+        Category food = categoryRepository.save(new Category("Food"));
+        Product bread = product("Bread", "1.00", food);
+        BigDecimal ten = BigDecimal.TEN;
+        List<Long> ids = List.of(bread.getId());
+
+        assertRejected(new PriceAdjustment(ten, ten, food.getId(), null));
+        assertRejected(new PriceAdjustment(null, null, food.getId(), null));
+        assertRejected(new PriceAdjustment(ten, null, food.getId(), ids));
+        assertRejected(new PriceAdjustment(ten, null, null, null));
+        assertRejected(new PriceAdjustment(ten, null, null, List.of()));
+
+        List<Long> tooMany = LongStream.rangeClosed(1, ProductService.MAX_PRICE_ADJUSTMENT_IDS + 1).boxed().toList();
+        assertRejected(new PriceAdjustment(ten, null, null, tooMany));
+        List<Long> atTheLimit = LongStream.rangeClosed(1, ProductService.MAX_PRICE_ADJUSTMENT_IDS).map(id -> id == 1 ? bread.getId() : -id).boxed().toList();
+        assertEquals(1, productService.adjustPrices(new PriceAdjustment(ten, null, null, atTheLimit)));
+        assertEquals(List.of(110L), cents(bread));
+    }
+
+    private void assertRejected(PriceAdjustment adjustment) {
+        assertThrows(IllegalArgumentException.class, () -> productService.adjustPrices(adjustment));
+    }
+
+    private Product product(String name, String price, Category category) {
+        return productRepository.save(new Product(name, new BigDecimal(price), "Test product", category));
+    }
+
+    private List<Long> cents(Product... products) {
+        return Arrays.stream(products)
+                .map(product -> productRepository.findById(product.getId()).orElseThrow().getPriceCents())
+                .toList();
+    }
+}
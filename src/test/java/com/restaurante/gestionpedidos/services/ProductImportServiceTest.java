@@ -0,0 +1,57 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.dto.ImportReport;
+import com.restaurante.gestionpedidos.models.Category;
+import com.restaurante.gestionpedidos.repositories.CategoryRepository;
+import com.restaurante.gestionpedidos.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import(ProductImportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void importsChunksAndReportsBadRows() throws Exception {
+        categoryRepository.save(new Category("Pizzas"));
+
+        StringBuilder csv = new StringBuilder("name,price,description,category,stock\n");
+        int rows = ProductImportService.CHUNK_SIZE * 2 + 7;
+        for (int i = 0; i < rows; i++) {
+            csv.append("Pizza ").append(i).append(",10.5,\"Tomato, cheese\nand basil\",pizzas,3\n");
+        }
+        csv.append("Broken,abc,Bad price,Pizzas,\n");
+        csv.append("Soda,2.0,Cold drink,Drinks,\n");
+
+        ImportReport report = productImportService.importProducts(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(rows + 2, report.rowsRead());
+        assertEquals(rows + 1, report.rowsImported());
+        assertEquals(1, report.rowsFailed());
+        assertEquals(1, report.categoriesCreated());
+        // Each product description spans two lines, so the broken row starts on line 2 + 2 * rows
+        assertEquals(2 + 2L * rows, report.errors().get(0).line());
+        assertEquals(rows + 1, productRepository.count());
+        assertEquals(2, categoryRepository.count());
+    }
+}
@@ -0,0 +1,85 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.ReactiveDatabaseConfig;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The reactive read path runs over R2DBC against the same in-memory database JPA writes to,
+ * so rows must be committed (no test transaction) before they are visible to it.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "gestionpedidos.r2dbc.url=r2dbc:h2:mem:///reactive;DB_CLOSE_DELAY=-1",
+        "gestionpedidos.r2dbc.username=sa",
+        "gestionpedidos.r2dbc.password="})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReactiveDatabaseConfig.class, ReactiveReadRepository.class, ReactiveReadService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReactiveReadServiceTest {
+
+    @Autowired
+    private ReactiveReadService reactiveReadService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void readsWhatJpaWrote() {
+        Category pizzas = categoryRepository.save(new Category("Pizzas"));
+        Category drinks = categoryRepository.save(new Category("Drinks"));
+        Product margherita = productRepository.save(new Product("Margherita", new BigDecimal("10.50"), "Tomato and mozzarella", pizzas));
+        Product water = productRepository.save(new Product("Water", new BigDecimal("1.20"), "Still water", drinks));
+        Customer customer = customerRepository.save(new Customer("Reactive", "reactive@example.com", "123456789"));
+        Order order = orderRepository.save(new Order(customer));
+
+        List<Product> products = reactiveReadService.getAllProducts(null).collectList().block();
+        assertEquals(List.of(margherita.getId(), water.getId()), products.stream().map(Product::getId).toList());
+        assertEquals(new BigDecimal("10.50"), products.get(0).getPrice());
+        assertEquals("Pizzas", products.get(0).getCategory().getName());
+
+        List<Product> onlyDrinks = reactiveReadService.getAllProducts(drinks.getId()).collectList().block();
+        assertEquals(List.of("Water"), onlyDrinks.stream().map(Product::getName).toList());
+
+        assertEquals("Drinks", reactiveReadService.getCategoryById(drinks.getId()).block().getName());
+        assertEquals(2, reactiveReadService.getAllCategories().count().block());
+
+        Order read = reactiveReadService.getOrderById(order.getId()).block();
+        assertEquals(order.getVersion(), read.getVersion());
+        assertNotNull(read.getOrderDate());
+        assertEquals(1, reactiveReadService.getAllOrders(customer.getId()).count().block());
+
+        assertNull(reactiveReadService.getProductById(-1L).block());
+        assertEquals(0, reactiveReadService.getAllOrders(-1L).count().block());
+
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+}
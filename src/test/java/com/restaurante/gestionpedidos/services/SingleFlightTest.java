@@ -0,0 +1,106 @@
+package com.restaurante.gestionpedidos.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> flight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void aBurstOfIdenticalReadsRunsOneQuery() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> flight.load(7L, () -> {
+                    queries.incrementAndGet();
+                    await(release);
+                    return new String("product 7");
+                })));
+            }
+
+            // The query stays open until every other caller has joined it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (count("coalesced") < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            String first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<String> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, queries.get());
+        assertEquals(1, count("leader"));
+        assertEquals(CALLERS - 1, count("coalesced"));
+
+        // Nothing is kept once the burst is over
+        flight.load(7L, () -> "product " + queries.incrementAndGet());
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void followersGetTheLeadersExceptionAndTheNextCallRetries() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flight.load(7L, () -> {
+                await(release);
+                throw new IllegalStateException("database down");
+            }));
+            while (count("leader") < 1) {
+                Thread.sleep(1);
+            }
+
+            Future<String> follower = executor.submit(() -> flight.load(7L, () -> "never called"));
+            while (count("coalesced") < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<String> result : List.of(leader, follower)) {
+                ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertEquals("database down", failure.getCause().getMessage());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("product 7", flight.load(7L, () -> "product 7"));
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter(SingleFlight.METRIC, "name", "test", "outcome", outcome).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
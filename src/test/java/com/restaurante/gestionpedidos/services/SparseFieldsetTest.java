@@ -0,0 +1,60 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({ProductService.class, OrderItemService.class, StockService.class, OrderViewService.class})
+class SparseFieldsetTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Test
+    void returnsOnlyTheRequestedFields() {
+        Category category = categoryRepository.save(new Category("Pizzas"));
+        Product product = productRepository.save(new Product("Margherita", new BigDecimal("10.50"), "Long description", category));
+        Customer customer = customerRepository.save(new Customer("Kitchen", "kitchen@example.com", "123456789"));
+        Order order = orderRepository.save(new Order(customer));
+        OrderItem item = orderItemRepository.save(new OrderItem(order, product, 3));
+
+        List<Map<String, Object>> products = productService.getAllProducts("name, price,category");
+        assertEquals(List.of(Map.of("id", product.getId(), "name", "Margherita", "price", new BigDecimal("10.50"),
+                "category", Map.of("id", category.getId()))), products);
+
+        Map<String, Object> kitchenLine = orderItemService.getOrderItemById(item.getId(), "quantity,product.name").orElseThrow();
+        assertEquals(Map.of("id", item.getId(), "quantity", 3, "product", Map.of("name", "Margherita")), kitchenLine);
+
+        assertTrue(orderItemService.getOrderItemById(-1L, "quantity").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> productService.getAllProducts("name,secret"));
+        assertThrows(IllegalArgumentException.class, () -> productService.getAllProducts("name.length"));
+    }
+}
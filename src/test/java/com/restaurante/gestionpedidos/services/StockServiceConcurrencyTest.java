@@ -0,0 +1,172 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.exceptions.OutOfStockException;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multi-threaded test proving that stock reservations never oversell a product,
+ * both with the single stock column and with the sharded (striped) counter mode.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({OrderItemService.class, OrderService.class, CustomerService.class, StockService.class, OrderViewService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockServiceConcurrencyTest {
+
+    private static final int STOCK = 50;
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 10;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void singleRowStockIsNeverOversold() throws Exception {
+        assertNoOversell("single", null);
+    }
+
+    @Test
+    void shardedStockIsNeverOversold() throws Exception {
+        assertNoOversell("sharded", 4);
+    }
+
+    @Test
+    void deletingAnItemRestoresItsUnits() {
+        Product product = createProduct("restore", 5, null);
+        Order order = createOrder("restore");
+
+        OrderItem item = orderItemService.createOrderItem(new OrderItem(order, product, 5));
+        assertThrows(OutOfStockException.class, () -> orderItemService.createOrderItem(new OrderItem(order, product, 1)));
+
+        assertTrue(orderItemService.deleteOrderItem(item.getId()));
+        assertEquals(5, stockService.getAvailableStock(product.getId()));
+    }
+
+    @Test
+    void deletingAnOrderOrItsCustomerRestoresTheUnitsOfItsItems() {
+        Product single = createProduct("bulk single", 20, null);
+        Product sharded = createProduct("bulk sharded", 20, 4);
+        Order order = createOrder("bulk");
+        orderItemService.createOrderItem(new OrderItem(order, single, 3));
+        orderItemService.createOrderItem(new OrderItem(order, single, 2));
+        orderItemService.createOrderItem(new OrderItem(order, sharded, 6));
+        Order other = orderRepository.save(new Order(order.getCustomer()));
+        orderItemService.createOrderItem(new OrderItem(other, single, 4));
+        orderItemService.createOrderItem(new OrderItem(other, sharded, 1));
+
+        assertTrue(orderService.deleteOrder(order.getId()));
+        assertEquals(16, stockService.getAvailableStock(single.getId()));
+        assertEquals(19, stockService.getAvailableStock(sharded.getId()));
+
+        assertTrue(customerService.deleteCustomer(order.getCustomer().getId()));
+        assertEquals(20, stockService.getAvailableStock(single.getId()));
+        assertEquals(20, stockService.getAvailableStock(sharded.getId()));
+    }
+
+    @Test
+    void concurrentDeletesOfAnItemRestoreItsUnitsOnce() throws Exception {
+        Product product = createProduct("delete", 10, null);
+        Order order = createOrder("delete");
+        OrderItem item = orderItemService.createOrderItem(new OrderItem(order, product, 4));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return orderItemService.deleteOrderItem(item.getId());
+            }));
+        }
+        start.countDown();
+        int deleted = 0;
+        for (Future<Boolean> future : futures) {
+            deleted += future.get(60, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(1, deleted);
+        assertEquals(10, stockService.getAvailableStock(product.getId()));
+    }
+
+    private void assertNoOversell(String name, Integer shards) throws Exception {
+        Product product = createProduct(name, STOCK, shards);
+        Order order = createOrder(name);
+
+        AtomicInteger reservedUnits = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    int quantity = 1 + ThreadLocalRandom.current().nextInt(3);
+                    try {
+                        orderItemService.createOrderItem(new OrderItem(order, product, quantity));
+                        reservedUnits.addAndGet(quantity);
+                    } catch (OutOfStockException e) {
+                        // Expected once the product sells out
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int remaining = stockService.getAvailableStock(product.getId());
+        assertTrue(remaining >= 0);
+        assertEquals(STOCK, reservedUnits.get() + remaining);
+    }
+
+    private Product createProduct(String name, int stock, Integer shards) {
+        Category category = categoryRepository.save(new Category("Category " + name));
+        Product product = productRepository.save(new Product("Product " + name, new BigDecimal("10.00"), "Test product", category));
+        stockService.setStock(product.getId(), stock, shards);
+        return product;
+    }
+
+    private Order createOrder(String name) {
+        Customer customer = customerRepository.save(new Customer("Customer " + name, name + "@example.com", "123456789"));
+        return orderRepository.save(new Order(customer));
+    }
+}
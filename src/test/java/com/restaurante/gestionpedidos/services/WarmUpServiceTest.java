@@ -0,0 +1,99 @@
+package com.restaurante.gestionpedidos.services;
+
+import com.restaurante.gestionpedidos.config.LocationContext;
+import com.restaurante.gestionpedidos.config.Locations;
+import com.restaurante.gestionpedidos.models.*;
+import com.restaurante.gestionpedidos.repositories.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The warm-up goes through the real write paths but must leave neither rows nor in-memory state behind.
+ * Runs without the test-managed transaction, as it does at startup.
+ */
+@DataJpaTest(properties = {"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true", "gestionpedidos.warm-up.iterations=3"})
+@Import({WarmUpService.class, OrderService.class, OrderItemService.class, ProductService.class, CustomerService.class,
+        CategoryService.class, StockService.class, OrderViewService.class, IdFilterService.class,
+        WarmUpServiceTest.MainLocation.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WarmUpServiceTest {
+
+    @TestConfiguration
+    static class MainLocation {
+
+        @Bean
+        Locations locations() {
+            return new Locations(Set.of(LocationContext.MAIN));
+        }
+    }
+
+    private static final List<String> TABLES = List.of("order_items", "orders", "product_stock_shards", "products",
+            "categories", "customers");
+
+    @Autowired
+    private WarmUpService warmUp;
+
+    @Autowired
+    private IdFilterService idFilter;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        TABLES.forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+    }
+
+    @Test
+    void writesAreRolledBack() {
+        Category category = categoryRepository.save(new Category("Drinks"));
+        productRepository.save(new Product("Soda", new BigDecimal("1.00"), "Can", category));
+        List<Long> before = counts();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        warmUp.run(null);
+
+        // Every round created its category, product, customer, order and item, then rolled them back
+        assertEquals(3 * 5, statistics.getEntityInsertCount());
+        assertEquals(3, statistics.getTransactionCount() - statistics.getSuccessfulTransactionCount());
+        assertEquals(before, counts());
+        assertEquals(List.of("Drinks"), categoryRepository.findAll().stream().map(Category::getName).toList());
+
+        assertTrue(idFilter.mightExist(IdFilterService.Table.CATEGORIES, category.getId()));
+    }
+
+    private List<Long> counts() {
+        return TABLES.stream().map(table -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class)).toList();
+    }
+}